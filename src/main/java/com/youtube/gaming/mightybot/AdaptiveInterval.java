@@ -0,0 +1,70 @@
+package com.youtube.gaming.mightybot;
+
+import java.time.Duration;
+import java.util.Objects;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * An interval that adapts to how often a value changes. Each time the value is observed, the
+ * interval grows if the value did not change since the previous observation and shrinks if it did,
+ * always staying between a minimum and a maximum. Values that rarely change end up polled at the
+ * maximum interval, while values that change constantly are polled at the minimum interval.
+ *
+ * <p>
+ * This class is thread-safe.
+ */
+public class AdaptiveInterval {
+  /** Factor applied to the interval when the value did not change. */
+  private static final double GROWTH_FACTOR = 1.5;
+  /** Factor applied to the interval when the value changed. */
+  private static final double SHRINK_FACTOR = 0.5;
+
+  private final long minMillis;
+  private final long maxMillis;
+
+  private long currentMillis;
+  @Nullable private Object lastValue;
+  private boolean observed;
+
+  /**
+   * Creates a new adaptive interval.
+   *
+   * @param initial the interval to start with, clamped between the minimum and the maximum
+   * @param min the minimum interval, must be positive
+   * @param max the maximum interval, must be greater than or equal to the minimum
+   */
+  public AdaptiveInterval(Duration initial, Duration min, Duration max) {
+    Preconditions.checkArgument(!min.isNegative() && !min.isZero(), "Minimum must be positive");
+    Preconditions.checkArgument(min.compareTo(max) <= 0, "Minimum can't be more than maximum");
+    this.minMillis = min.toMillis();
+    this.maxMillis = max.toMillis();
+    this.currentMillis = clamp(initial.toMillis());
+  }
+
+  /** Returns the current interval. */
+  public synchronized Duration get() {
+    return Duration.ofMillis(currentMillis);
+  }
+
+  /**
+   * Records a new observation of the value and adapts the interval. The first observation only
+   * records the value.
+   *
+   * @param value the value that was observed, compared with {@link Object#equals(Object)}
+   */
+  public synchronized void observe(@Nullable Object value) {
+    if (observed) {
+      double factor = Objects.equals(lastValue, value) ? GROWTH_FACTOR : SHRINK_FACTOR;
+      currentMillis = clamp((long) (currentMillis * factor));
+    }
+    lastValue = value;
+    observed = true;
+  }
+
+  private long clamp(long millis) {
+    return Math.max(minMillis, Math.min(maxMillis, millis));
+  }
+}
@@ -0,0 +1,124 @@
+package com.youtube.gaming.mightybot;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.youtube.gaming.mightybot.api.BroadcastInfo;
+import com.youtube.gaming.mightybot.api.ChannelStatistics;
+import com.youtube.gaming.mightybot.api.QuotaBudget;
+import com.youtube.gaming.mightybot.api.VideoStatistics;
+import com.youtube.gaming.mightybot.api.YouTubeApi;
+import com.youtube.gaming.mightybot.http.CancellableConnectionFactory;
+import com.youtube.gaming.mightybot.http.CancellationScope;
+
+/**
+ * Asynchronous versions of the calls of {@link YouTubeHelper} and {@link YouTubeApi}, so that a
+ * module can issue several calls at once instead of waiting for each of them in turn. Calls run
+ * on a dedicated executor and are charged to the {@link QuotaBudget} of the module that issued
+ * them. Futures fail with a {@link CompletionException} wrapping the {@link IOException} of the
+ * call, see {@link #await(CompletableFuture)}.
+ *
+ * <p>
+ * Calls belong to the run of the module that issued them: when the run exceeds its time budget,
+ * their requests are aborted along with the ones of the module's thread. Calls are not batched with
+ * the requests of other modules.
+ */
+public class AsyncYouTube {
+  private final YouTubeHelper youTubeHelper;
+  private final YouTubeApi youTubeApi;
+  private final QuotaBudget quotaBudget;
+  private final CancellableConnectionFactory connectionFactory;
+  private final Executor executor;
+
+  AsyncYouTube(YouTubeHelper youTubeHelper, YouTubeApi youTubeApi, QuotaBudget quotaBudget,
+      CancellableConnectionFactory connectionFactory, Executor executor) {
+    this.youTubeHelper = Preconditions.checkNotNull(youTubeHelper);
+    this.youTubeApi = Preconditions.checkNotNull(youTubeApi);
+    this.quotaBudget = Preconditions.checkNotNull(quotaBudget);
+    this.connectionFactory = Preconditions.checkNotNull(connectionFactory);
+    this.executor = Preconditions.checkNotNull(executor);
+  }
+
+  /**
+   * Waits for the given call and returns its result. Unlike {@link CompletableFuture#join()}, the
+   * wait ends when the thread is interrupted, e.g. when the run of the module is cancelled.
+   *
+   * @throws IOException if the call failed
+   */
+  public static <T> T await(CompletableFuture<T> call) throws IOException {
+    try {
+      return call.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for a call to YouTube");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  /** See {@link YouTubeHelper#getActiveBroadcasts()}. */
+  public CompletableFuture<List<BroadcastInfo>> getActiveBroadcasts() {
+    return supply(youTubeHelper::getActiveBroadcasts);
+  }
+
+  /** See {@link YouTubeHelper#getMostRecentLiveBroadcast()}. */
+  public CompletableFuture<Optional<BroadcastInfo>> getMostRecentLiveBroadcast() {
+    return supply(youTubeHelper::getMostRecentLiveBroadcast);
+  }
+
+  /** See {@link YouTubeHelper#getActiveLiveChatIds()}. */
+  public CompletableFuture<List<String>> getActiveLiveChatIds() {
+    return supply(youTubeHelper::getActiveLiveChatIds);
+  }
+
+  /** See {@link YouTubeHelper#postTextMessageToLiveChat(String, String)}. */
+  public CompletableFuture<Void> postTextMessageToLiveChat(String liveChatId, String message) {
+    return supply(() -> {
+      youTubeHelper.postTextMessageToLiveChat(liveChatId, message);
+      return null;
+    });
+  }
+
+  /** See {@link YouTubeApi#listChannelStatistics(List)}. */
+  public CompletableFuture<List<ChannelStatistics>> listChannelStatistics(
+      List<String> channelIds) {
+    return supply(() -> youTubeApi.listChannelStatistics(channelIds));
+  }
+
+  /** See {@link YouTubeApi#listVideoStatistics(List)}. */
+  public CompletableFuture<List<VideoStatistics>> listVideoStatistics(List<String> videoIds) {
+    return supply(() -> youTubeApi.listVideoStatistics(videoIds));
+  }
+
+  private <T> CompletableFuture<T> supply(Call<T> call) {
+    String consumer = quotaBudget.getCurrentConsumer();
+    CancellationScope scope = connectionFactory.getCurrentScope();
+    return CompletableFuture.supplyAsync(() -> {
+      quotaBudget.setCurrentConsumer(consumer);
+      CancellationScope previousScope = connectionFactory.enter(scope);
+      try {
+        return call.execute();
+      } catch (IOException e) {
+        throw new CompletionException(e);
+      } finally {
+        connectionFactory.exit(previousScope);
+        quotaBudget.setCurrentConsumer(null);
+      }
+    }, executor);
+  }
+
+  /** A blocking call to YouTube. */
+  private interface Call<T> {
+    T execute() throws IOException;
+  }
+}
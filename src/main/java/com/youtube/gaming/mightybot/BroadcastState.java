@@ -0,0 +1,9 @@
+package com.youtube.gaming.mightybot;
+
+/** Whether the channel is currently streaming, as seen by the {@link YouTubeHelper}. */
+public enum BroadcastState {
+  /** No broadcast is starting or live. Broadcasts in the ready or testing life cycle are idle. */
+  IDLE,
+  /** At least one broadcast is in the {@code liveStarting} or {@code live} life cycle. */
+  LIVE;
+}
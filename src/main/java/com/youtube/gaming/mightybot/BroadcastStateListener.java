@@ -0,0 +1,13 @@
+package com.youtube.gaming.mightybot;
+
+/** Gets notified by the {@link YouTubeHelper} when the {@link BroadcastState} changes. */
+public interface BroadcastStateListener {
+  /**
+   * Called when the broadcast state changes. Called from the thread that refreshed the active
+   * broadcasts, so implementations should return quickly.
+   *
+   * @param previous the previous state
+   * @param current the new state
+   */
+  void onBroadcastStateChanged(BroadcastState previous, BroadcastState current);
+}
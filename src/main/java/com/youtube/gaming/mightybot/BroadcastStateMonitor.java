@@ -0,0 +1,46 @@
+package com.youtube.gaming.mightybot;
+
+import java.time.Duration;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Internal module keeping the {@link BroadcastState} up to date by reading the active broadcasts
+ * regularly, which keeps the {@link YouTubeHelper} refreshing them in the background. It is
+ * scheduled by the bot when at least one enabled module
+ * {@link Module#requiresLiveBroadcast() requires a live broadcast}, so that these modules go back
+ * to their normal interval soon after a broadcast starts even though they are running at their
+ * idle interval.
+ */
+class BroadcastStateMonitor extends Module {
+
+  @Override
+  public boolean isEnabled() {
+    return true;
+  }
+
+  @Override
+  public void checkProperties() {}
+
+  @Override
+  public void init() {}
+
+  @Override
+  @Nullable
+  public Set<String> getRequiredOauthScopes() {
+    return ImmutableSet.of("https://www.googleapis.com/auth/youtube");
+  }
+
+  @Override
+  public Duration getInterval() {
+    return Duration.ofMillis(YouTubeHelper.ACTIVE_BROADCASTS_REFRESH_CYCLE_MILLIS);
+  }
+
+  @Override
+  public void run(MightyContext context) throws Exception {
+    context.youTubeHelper().getActiveBroadcasts();
+  }
+}
@@ -0,0 +1,218 @@
+package com.youtube.gaming.mightybot;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.youtube.gaming.mightybot.exceptions.InvalidConfigurationException;
+import com.youtube.gaming.mightybot.properties.MightyProperties;
+import com.youtube.gaming.mightybot.watch.FileWatcher;
+
+/**
+ * Applies the changes made to the bot's properties file while the bot runs, so that it doesn't need
+ * to be restarted, which would authorize it again and lose the state of the modules.
+ *
+ * <p>
+ * When the file changes, the properties whose value differs from the current ones are computed and
+ * only the modules owning one of them are reconfigured: each is removed from the scheduler once its
+ * current run is complete, checked and initialized again, and scheduled again if still enabled.
+ * Modules are enabled and disabled the same way. A module whose new properties are invalid keeps
+ * running with its previous ones.
+ *
+ * <p>
+ * Changed global properties are checked first, and the whole change is ignored if they are invalid.
+ * They are seen by everything reading them while running, such as the channel id, but components
+ * created from them at startup, such as the HTTP connections or the API cache, keep their previous
+ * values until the bot restarts.
+ */
+class ConfigurationReloader {
+  private static final Logger logger = LoggerFactory.getLogger(ConfigurationReloader.class);
+
+  private final MightyProperties properties;
+  private final ImmutableList<Module> modules;
+  private final ModuleScheduler scheduler;
+  private final BroadcastStateMonitor monitor;
+  @Nullable
+  private final Set<String> authorizedOauthScopes;
+
+  /** Guarded by {@code this}, like the field below. */
+  private final Set<Module> scheduledModules = new HashSet<>();
+  private boolean monitorScheduled;
+
+  /**
+   * @param properties the bot's properties, to which the modules are bound
+   * @param modules all the modules of the bot, enabled or not
+   * @param scheduler the scheduler running the enabled modules
+   * @param monitor the module watching the broadcast state for the modules requiring a live
+   *        broadcast
+   * @param authorizedOauthScopes the OAuth scopes authorized when the bot started, or {@code null}
+   *        if the requests of the bot don't need authorization
+   */
+  ConfigurationReloader(MightyProperties properties, List<Module> modules,
+      ModuleScheduler scheduler, BroadcastStateMonitor monitor,
+      @Nullable Set<String> authorizedOauthScopes) {
+    this.properties = Preconditions.checkNotNull(properties);
+    this.modules = ImmutableList.copyOf(modules);
+    this.scheduler = Preconditions.checkNotNull(scheduler);
+    this.monitor = Preconditions.checkNotNull(monitor);
+    this.authorizedOauthScopes = authorizedOauthScopes;
+  }
+
+  /** Schedules the enabled modules, which must already be initialized. */
+  synchronized void scheduleEnabledModules() {
+    for (Module module : modules) {
+      if (module.isEnabled()) {
+        schedule(module);
+      }
+    }
+  }
+
+  /** Reloads the bot's properties whenever their file changes. */
+  void watch(FileWatcher fileWatcher) {
+    fileWatcher.watch(properties.getPath(), this::reload);
+    logger.info("Watching {} for changes", properties.getPath().toAbsolutePath());
+  }
+
+  /** Reads the properties file again and reconfigures the modules whose properties changed. */
+  synchronized void reload() {
+    MightyProperties reread;
+    try {
+      reread = properties.readAgain();
+    } catch (IOException e) {
+      logger.warn("Could not read the properties again. Keeping the current ones.", e);
+      return;
+    }
+    Set<String> changed = properties.diff(reread);
+    if (changed.isEmpty()) {
+      return;
+    }
+    logger.info("Properties changed: {}", new TreeSet<>(changed));
+    try {
+      YouTubeGamingMightyBot.doGlobalConfigurationChecks(reread);
+    } catch (InvalidConfigurationException e) {
+      logger.error("Invalid configuration, ignoring the changes", e);
+      return;
+    }
+
+    List<Module> changedModules = new ArrayList<>();
+    Set<String> changedGlobalProperties = new TreeSet<>(changed);
+    for (Module module : modules) {
+      if (changed.stream().anyMatch(module::ownsProperty)) {
+        changedModules.add(module);
+        changedGlobalProperties.removeIf(module::ownsProperty);
+      }
+    }
+    if (!changedGlobalProperties.isEmpty()) {
+      logger.warn("Global properties {} changed. Some of them only apply once the bot restarts.",
+          changedGlobalProperties);
+    }
+
+    // Changed modules must not run while their properties are replaced and they are initialized
+    try {
+      for (Module module : changedModules) {
+        scheduler.unschedule(module);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      logger.error("Interrupted while reloading the properties. Modules may have stopped.");
+      return;
+    }
+    MightyProperties previous = properties.copy();
+    properties.replaceWith(reread);
+    for (Module module : changedModules) {
+      reconfigure(module, previous);
+    }
+    updateMonitor();
+  }
+
+  /**
+   * Initializes an unscheduled module with the current properties, and schedules it again if it is
+   * enabled. If they are invalid and the module was scheduled, it gets its previous properties
+   * back.
+   */
+  private void reconfigure(Module module, MightyProperties previous) {
+    boolean wasScheduled = scheduledModules.remove(module);
+    // Modules that kept their previous properties are bound to a copy
+    module.setProperties(properties);
+    if (!module.isEnabled()) {
+      if (wasScheduled) {
+        logger.info("{} is now disabled ('{}' != true)", module.getName(),
+            module.getEnabledProperty());
+      }
+      return;
+    }
+
+    try {
+      checkOauthScopes(module);
+      init(module);
+    } catch (RuntimeException e) {
+      if (!wasScheduled) {
+        logger.error("Could not enable {}", module.getName(), e);
+        return;
+      }
+      logger.error("Could not reconfigure {}, keeping its previous properties", module.getName(),
+          e);
+      module.setProperties(previous);
+      try {
+        init(module);
+      } catch (RuntimeException e2) {
+        logger.error("Could not restore the previous properties of {}, stopping it",
+            module.getName(), e2);
+        return;
+      }
+    }
+    schedule(module);
+    logger.info("{} is now {}", module.getName(), wasScheduled ? "reconfigured" : "enabled");
+  }
+
+  private void checkOauthScopes(Module module) {
+    if (authorizedOauthScopes == null || module.getRequiredOauthScopes() == null
+        || authorizedOauthScopes.containsAll(module.getRequiredOauthScopes())) {
+      return;
+    }
+    throw new InvalidConfigurationException(String.format(
+        "%s needs OAuth scopes that were not authorized when the bot started: %s. Restart the bot "
+            + "to authorize them.",
+        module.getName(), module.getRequiredOauthScopes()));
+  }
+
+  /** Checks the properties of a module and initializes it, like when the bot starts. */
+  private static void init(Module module) {
+    module.checkSchedulingProperties();
+    module.checkProperties();
+    module.init();
+    module.initScheduling();
+  }
+
+  private void schedule(Module module) {
+    scheduler.schedule(module);
+    scheduledModules.add(module);
+    updateMonitor();
+  }
+
+  /** Schedules the broadcast state monitor only while a module requires a live broadcast. */
+  private void updateMonitor() {
+    boolean monitorNeeded = scheduledModules.stream().anyMatch(Module::requiresLiveBroadcast);
+    if (monitorNeeded && !monitorScheduled) {
+      scheduler.schedule(monitor);
+      monitorScheduled = true;
+    } else if (!monitorNeeded && monitorScheduled) {
+      try {
+        scheduler.unschedule(monitor);
+        monitorScheduled = false;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
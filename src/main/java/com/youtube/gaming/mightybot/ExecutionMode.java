@@ -0,0 +1,18 @@
+package com.youtube.gaming.mightybot;
+
+/** How the {@link ModuleScheduler} runs the modules that are due. */
+public enum ExecutionMode {
+  /** Modules run one after the other on the scheduler thread. */
+  SEQUENTIAL,
+  /**
+   * Modules run concurrently on a bounded pool of worker threads. A module never runs concurrently
+   * with itself.
+   */
+  POOL,
+  /**
+   * Each module run starts on its own virtual thread, and so do the YouTube API calls it makes.
+   * There is no pool to size. A module never runs concurrently with itself. Requires Java 21 or
+   * later.
+   */
+  VIRTUAL;
+}
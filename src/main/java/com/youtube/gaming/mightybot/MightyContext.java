@@ -1,18 +1,34 @@
 package com.youtube.gaming.mightybot;
 
 import java.time.Clock;
+import java.util.concurrent.Executor;
 
 import com.google.api.services.youtube.YouTube;
 import com.google.common.base.Preconditions;
+import com.youtube.gaming.mightybot.api.QuotaBudget;
+import com.youtube.gaming.mightybot.api.YouTubeApi;
+import com.youtube.gaming.mightybot.chat.ChatIngestion;
+import com.youtube.gaming.mightybot.http.CancellableConnectionFactory;
+import com.youtube.gaming.mightybot.output.OutputSink;
+import com.youtube.gaming.mightybot.overlay.OverlayHub;
 import com.youtube.gaming.mightybot.properties.MightyProperties;
+import com.youtube.gaming.mightybot.properties.MightyProperty;
+import com.youtube.gaming.mightybot.watch.FileWatcher;
 
 /**
  * The mighty context in which modules are ran. Provides the {@link YouTube} API and the clock to
- * the bot modules.
+ * the bot modules. The context is shared by all modules and is safe to use concurrently.
  */
 public class MightyContext {
   private final YouTube youTube;
   private final YouTubeHelper youTubeHelper;
+  private final YouTubeApi youTubeApi;
+  private final AsyncYouTube asyncYouTube;
+  private final ChatIngestion chatIngestion;
+  private final OutputSink outputSink = new OutputSink();
+  private final OverlayHub overlayHub = new OverlayHub();
+  private final FileWatcher fileWatcher;
+  private final QuotaBudget quotaBudget;
   private final Clock clock;
 
   /**
@@ -20,11 +36,30 @@ public class MightyContext {
    * already connected when this method is called.
    *
    * @param youTube a connected {@link YouTube} API
+   * @param youTubeApi the cached access to the {@link YouTube} API shared by modules
+   * @param quotaBudget the budget to which the requests of the {@link YouTube} API are charged
+   * @param connectionFactory the factory opening the connections of the {@link YouTube} API, used
+   *        to cancel the calls of {@link #asyncYouTube()} along with the run of their module
+   * @param asyncExecutor the executor running the calls of {@link #asyncYouTube()} and the
+   *        background refreshes of the {@link YouTubeHelper}
+   * @param fileWatcher the watcher already used by the modules to watch their files
    * @param clock the system clock used by the bot
    */
-  MightyContext(MightyProperties properties, YouTube youTube, Clock clock) {
+  MightyContext(MightyProperties properties, YouTube youTube, YouTubeApi youTubeApi,
+      QuotaBudget quotaBudget, CancellableConnectionFactory connectionFactory,
+      Executor asyncExecutor, FileWatcher fileWatcher, Clock clock) {
     this.youTube = Preconditions.checkNotNull(youTube);
-    this.youTubeHelper = new YouTubeHelper(properties, youTube, clock);
+    this.youTubeHelper =
+        new YouTubeHelper(properties, youTubeApi, quotaBudget, clock, asyncExecutor);
+    this.youTubeApi = Preconditions.checkNotNull(youTubeApi);
+    this.quotaBudget = Preconditions.checkNotNull(quotaBudget);
+    this.asyncYouTube = new AsyncYouTube(youTubeHelper, youTubeApi, quotaBudget,
+        connectionFactory, asyncExecutor);
+    this.chatIngestion = new ChatIngestion(youTubeHelper, youTubeApi, quotaBudget, clock,
+        properties.getInt(MightyProperty.CHAT_BUFFER_CAPACITY),
+        properties.getLong(MightyProperty.CHAT_MIN_POLLING_INTERVAL_MILLIS),
+        properties.getInt(MightyProperty.CHAT_QUOTA_PRIORITY));
+    this.fileWatcher = Preconditions.checkNotNull(fileWatcher);
     this.clock = Preconditions.checkNotNull(clock);
   }
 
@@ -36,6 +71,56 @@ public class MightyContext {
     return youTubeHelper;
   }
 
+  /**
+   * Returns the cached access to the {@link YouTube} API. Modules should prefer it over
+   * {@link #youTube()} for the requests it supports.
+   */
+  public YouTubeApi youTubeApi() {
+    return youTubeApi;
+  }
+
+  /**
+   * Returns asynchronous versions of the calls of {@link #youTubeHelper()} and
+   * {@link #youTubeApi()}.
+   */
+  public AsyncYouTube asyncYouTube() {
+    return asyncYouTube;
+  }
+
+  /**
+   * Returns the messages posted in the live chats of the active broadcasts. Each module reading
+   * chat should {@linkplain ChatIngestion#subscribe() subscribe} once and keep its cursor.
+   */
+  public ChatIngestion chatIngestion() {
+    return chatIngestion;
+  }
+
+  /** Returns the writer of the files read by the streaming software, shared by all modules. */
+  public OutputSink outputSink() {
+    return outputSink;
+  }
+
+  /**
+   * Returns the named values pushed to browser overlays. Modules should publish the values they
+   * compute, whether or not an overlay is connected.
+   */
+  public OverlayHub overlayHub() {
+    return overlayHub;
+  }
+
+  /**
+   * Returns the watcher of the files edited by the user while the bot runs, such as formats.
+   * Modules should watch such files rather than read them on every run.
+   */
+  public FileWatcher fileWatcher() {
+    return fileWatcher;
+  }
+
+  /** Returns the YouTube API quota consumed by the bot. */
+  public QuotaBudget quotaBudget() {
+    return quotaBudget;
+  }
+
   public Clock clock() {
     return clock;
   }
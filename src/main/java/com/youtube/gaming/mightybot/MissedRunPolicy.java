@@ -0,0 +1,17 @@
+package com.youtube.gaming.mightybot;
+
+/**
+ * What the {@link ModuleScheduler} does when a module could not run at one or more of its
+ * scheduled times, for example because another module took too long to run.
+ */
+public enum MissedRunPolicy {
+  /** Drops all missed runs; the module runs again at its next scheduled time. */
+  SKIP,
+  /**
+   * Runs the module once as soon as possible, then resumes on its original schedule. Other missed
+   * runs are dropped.
+   */
+  RUN_ONCE,
+  /** Runs the module once for every missed run, back to back, until it is on schedule again. */
+  CATCH_UP;
+}
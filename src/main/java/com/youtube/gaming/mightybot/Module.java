@@ -1,22 +1,34 @@
 package com.youtube.gaming.mightybot;
 
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Nullable;
 
 import com.google.api.services.youtube.YouTube;
 import com.google.common.base.CaseFormat;
+import com.google.common.base.Strings;
 import com.youtube.gaming.mightybot.exceptions.InvalidConfigurationException;
 import com.youtube.gaming.mightybot.properties.MightyModuleProperties;
 import com.youtube.gaming.mightybot.properties.MightyProperties;
+import com.youtube.gaming.mightybot.watch.FileWatcher;
 
 /** A mighty bot module. **/
 public abstract class Module {
   private static final String ENABLED_PROPERTY = "enabled";
+  private static final String TIMEOUT_MILLIS_PROPERTY = "timeoutMillis";
+  private static final String IDLE_INTERVAL_PROPERTY = "idleInterval";
+  private static final String MIN_INTERVAL_PROPERTY = "minInterval";
+  private static final String MAX_INTERVAL_PROPERTY = "maxInterval";
+  private static final String QUOTA_PRIORITY_PROPERTY = "quotaPriority";
 
   private MightyModuleProperties properties;
-  private long lastRunEpochSecond;
+  private FileWatcher fileWatcher;
+  private volatile long lastRunEpochSecond;
+  private final AtomicLong overrunCount = new AtomicLong();
+  @Nullable private AdaptiveInterval adaptiveInterval;
 
   /** Returns the name of this module. Should not be overridden for most cases. */
   public String getName() {
@@ -37,16 +49,72 @@ public abstract class Module {
     return properties;
   }
 
+  /** Sets the {@link FileWatcher} returned by {@link #getFileWatcher()}. */
+  final void setFileWatcher(FileWatcher fileWatcher) {
+    this.fileWatcher = fileWatcher;
+  }
+
+  /**
+   * Returns the {@link FileWatcher} shared by the bot, so that {@link #init()} can watch the files
+   * read by the module. It is the same as the one of the {@link MightyContext}.
+   */
+  protected FileWatcher getFileWatcher() {
+    return fileWatcher;
+  }
+
   /** Returns the enabled property of this module, which is {@code "moduleName.enabled"}. */
   public String getEnabledProperty() {
     return properties.addPrefix(ENABLED_PROPERTY);
   }
 
+  /** Returns {@code true} if the given property belongs to this module, e.g. "moduleName.x". */
+  final boolean ownsProperty(String property) {
+    return property.startsWith(properties.addPrefix(""));
+  }
+
   /** Returns {@code true} if this module is enabled in the configuration of the bot. */
   public boolean isEnabled() {
     return "true".equalsIgnoreCase(properties.get(ENABLED_PROPERTY));
   }
 
+  /**
+   * Returns {@code true} if this module only has useful work to do while a broadcast is live, for
+   * example because it reads data from the live broadcast. While no broadcast is live, such modules
+   * run every {@link #getIdleInterval(Duration) idle interval} instead of following their trigger,
+   * and they run again as soon as a broadcast goes live. Returns {@code false} by default.
+   */
+  public boolean requiresLiveBroadcast() {
+    return false;
+  }
+
+  /**
+   * Returns the time between each run of the module while no broadcast is live, as set by the
+   * {@code "moduleName.idleInterval"} property in seconds. Only used if
+   * {@link #requiresLiveBroadcast()} returns {@code true}.
+   *
+   * @param defaultIdleInterval the value to return if the property is not set
+   */
+  public Duration getIdleInterval(Duration defaultIdleInterval) {
+    String idleInterval = properties.get(IDLE_INTERVAL_PROPERTY);
+    if (Strings.isNullOrEmpty(idleInterval) || idleInterval.trim().isEmpty()) {
+      return defaultIdleInterval;
+    }
+    return Duration.ofSeconds(Long.parseLong(idleInterval.trim()));
+  }
+
+  /**
+   * Returns the priority of this module when the bot runs short of YouTube API quota, as set by
+   * the {@code "moduleName.quotaPriority"} property. Modules with the lowest priority are slowed
+   * down first. Returns {@code 0} if the property is not set.
+   */
+  public int getQuotaPriority() {
+    String quotaPriority = properties.get(QUOTA_PRIORITY_PROPERTY);
+    if (Strings.isNullOrEmpty(quotaPriority) || quotaPriority.trim().isEmpty()) {
+      return 0;
+    }
+    return Integer.parseInt(quotaPriority.trim());
+  }
+
   /**
    * Checks if the properties of this module are present and enabled. This method should make an
    * extensive use of the {@link MightyModuleProperties#throwIfNullOrEmpty(String, String)} (use
@@ -77,20 +145,143 @@ public abstract class Module {
    */
   public abstract void init();
 
+  /**
+   * Checks the properties that are common to all modules and used by the scheduler, such as
+   * {@code "moduleName.timeoutMillis"} or {@code "moduleName.idleInterval"}.
+   *
+   * @throws InvalidConfigurationException if any of these properties is invalid
+   */
+  final void checkSchedulingProperties() {
+    throwIfSetAndNotMatching(TIMEOUT_MILLIS_PROPERTY, "[0-9]+",
+        "Timeout must be a number of milliseconds (0 to disable)");
+    throwIfSetAndNotMatching(IDLE_INTERVAL_PROPERTY, "[1-9][0-9]*",
+        "Idle interval must be a positive number of seconds");
+    throwIfSetAndNotMatching(MIN_INTERVAL_PROPERTY, "[1-9][0-9]*",
+        "Minimum interval must be a positive number of seconds");
+    throwIfSetAndNotMatching(MAX_INTERVAL_PROPERTY, "[1-9][0-9]*",
+        "Maximum interval must be a positive number of seconds");
+    throwIfSetAndNotMatching(QUOTA_PRIORITY_PROPERTY, "-?[0-9]+",
+        "Quota priority must be a number");
+    boolean hasMinInterval = !Strings.isNullOrEmpty(properties.get(MIN_INTERVAL_PROPERTY));
+    boolean hasMaxInterval = !Strings.isNullOrEmpty(properties.get(MAX_INTERVAL_PROPERTY));
+    if (hasMinInterval != hasMaxInterval) {
+      throw new InvalidConfigurationException(properties.addPrefix(MIN_INTERVAL_PROPERTY),
+          "Minimum and maximum intervals must be set together");
+    }
+    if (hasMinInterval && properties.getInt(MIN_INTERVAL_PROPERTY) > properties
+        .getInt(MAX_INTERVAL_PROPERTY)) {
+      throw new InvalidConfigurationException(properties.addPrefix(MIN_INTERVAL_PROPERTY),
+          "Minimum interval can't be more than maximum interval");
+    }
+  }
+
+  /**
+   * Initializes the scheduling state of this module from the properties checked by
+   * {@link #checkSchedulingProperties()}. Called after {@link #init()}, again whenever the
+   * properties of the module change.
+   */
+  final void initScheduling() {
+    if (!Strings.isNullOrEmpty(properties.get(MIN_INTERVAL_PROPERTY))) {
+      adaptiveInterval = new AdaptiveInterval(getInterval(),
+          Duration.ofSeconds(properties.getInt(MIN_INTERVAL_PROPERTY)),
+          Duration.ofSeconds(properties.getInt(MAX_INTERVAL_PROPERTY)));
+    } else {
+      adaptiveInterval = null;
+    }
+  }
+
+  private void throwIfSetAndNotMatching(String property, String regex,
+      String userVisibleMessage) {
+    String value = properties.get(property);
+    if (!Strings.isNullOrEmpty(value) && !value.trim().matches(regex)) {
+      throw new InvalidConfigurationException(properties.addPrefix(property), userVisibleMessage);
+    }
+  }
+
+  /**
+   * Returns the maximum number of milliseconds a single run of this module may take before it is
+   * cancelled, as set by the {@code "moduleName.timeoutMillis"} property. {@code 0} means the run
+   * is never cancelled.
+   *
+   * @param defaultTimeoutMillis the value to return if the property is not set
+   */
+  public long getTimeoutMillis(long defaultTimeoutMillis) {
+    String timeoutMillis = properties.get(TIMEOUT_MILLIS_PROPERTY);
+    if (Strings.isNullOrEmpty(timeoutMillis) || timeoutMillis.trim().isEmpty()) {
+      return defaultTimeoutMillis;
+    }
+    return Long.parseLong(timeoutMillis.trim());
+  }
+
   /** Returns a set of OAuth scopes that this module requires when using the {@link YouTube} API. */
   @Nullable public abstract Set<String> getRequiredOauthScopes();
 
-  /** Returns the number of seconds to wait between each run of the module. */
-  public abstract long getIntervalSecond();
+  /**
+   * Returns the number of seconds between each run of the module.
+   *
+   * @deprecated Override {@link #getInterval()} instead, which allows sub-second intervals.
+   */
+  @Deprecated
+  public long getIntervalSecond() {
+    throw new UnsupportedOperationException(
+        getClass().getSimpleName() + " must override getInterval()");
+  }
+
+  /**
+   * Returns the time between each run of the module. The module runs at a fixed rate, which means
+   * the time it takes to run is not added to the interval. The interval can be shorter than a
+   * second. By default, this is {@link #getIntervalSecond()} seconds, so that modules written
+   * before this method existed keep working.
+   */
+  @SuppressWarnings("deprecation")
+  public Duration getInterval() {
+    return Duration.ofSeconds(getIntervalSecond());
+  }
+
+  /**
+   * Returns the trigger deciding when the module runs. By default, the module runs every
+   * {@link #getInterval()}, or at an {@link AdaptiveInterval} if the
+   * {@code "moduleName.minInterval"} and {@code "moduleName.maxInterval"} properties are set (see
+   * {@link #reportValue(Object)}). Modules whose output depends on the wall clock can override this
+   * method to run on clock boundaries instead, see {@link Trigger#alignedTo(Duration)}.
+   */
+  public Trigger getTrigger() {
+    if (adaptiveInterval != null) {
+      return Trigger.every(adaptiveInterval.get());
+    }
+    return Trigger.every(getInterval());
+  }
+
+  /**
+   * Reports the value fetched by the current run of the module. If the module has an adaptive
+   * interval, it grows while the reported value stays the same and shrinks when it changes. Does
+   * nothing otherwise. Modules polling a value should call this method once per run.
+   *
+   * @param value the fetched value, compared with {@link Object#equals(Object)}
+   */
+  protected final void reportValue(@Nullable Object value) {
+    if (adaptiveInterval != null) {
+      adaptiveInterval.observe(value);
+    }
+  }
 
   /**
-   * The meaty part of the module, where the task is executed. This is only called after
-   * {@link #getIntervalSecond()} has passed since the last time this module ran.
+   * The meaty part of the module, where the task is executed. This is called by the scheduler
+   * whenever the {@link #getTrigger() trigger} of the module fires.
+   *
+   * <p>
+   * Depending on the execution mode of the bot, this method may be called from different threads
+   * over time and concurrently with other modules, but never concurrently with itself.
    *
    * <p>
    * This method should generally not raise an exception when something bad happens, but rather log
    * the error and return successfully. In the case a critical error occurs, it is okay to throw an
-   * exception as it will be caught by the main loop and logged.
+   * exception as it will be caught by the scheduler and logged.
+   *
+   * <p>
+   * If the run takes longer than {@link #getTimeoutMillis(long)}, the scheduler interrupts the
+   * thread and aborts the HTTP requests it has in flight, which makes them throw an
+   * {@link java.io.IOException}.
    *
    * <p>
    * Examples:
@@ -121,4 +312,17 @@ public abstract class Module {
   public final long getLastRunEpochSecond() {
     return lastRunEpochSecond;
   }
+
+  /**
+   * Records that a run of this module took longer than its timeout and was cancelled. Called by the
+   * scheduler's watchdog.
+   */
+  final void recordOverrun() {
+    overrunCount.incrementAndGet();
+  }
+
+  /** Returns the number of runs of this module that were cancelled because they timed out. */
+  public final long getOverrunCount() {
+    return overrunCount.get();
+  }
 }
@@ -0,0 +1,368 @@
+package com.youtube.gaming.mightybot;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.youtube.gaming.mightybot.api.BatchCoalescer;
+import com.youtube.gaming.mightybot.api.CircuitOpenException;
+import com.youtube.gaming.mightybot.api.QuotaBudget;
+import com.youtube.gaming.mightybot.http.CancellableConnectionFactory;
+import com.youtube.gaming.mightybot.http.CancellationScope;
+
+/**
+ * Runs modules when their {@link Trigger} fires. The scheduler keeps the next deadline of every
+ * module in a priority queue and sleeps until the earliest one is due, so it does not wake up when
+ * no module has to run. Deadlines are computed from the previous slot of the trigger rather than
+ * from the end of the previous run, which means the run time of a module does not make its
+ * schedule drift.
+ *
+ * <p>
+ * Due modules are handed to an {@link Executor}. A module is only put back in the queue once its
+ * run is complete, so it never runs concurrently with itself even if the executor runs different
+ * modules in parallel.
+ *
+ * <p>
+ * Each run is given a time budget (see {@link Module#getTimeoutMillis(long)}). When a run exceeds
+ * it, a watchdog aborts the HTTP requests the run has in flight and interrupts its thread, so a
+ * stalled YouTube API call cannot hold up the schedule of the other modules.
+ *
+ * <p>
+ * Modules that {@link Module#requiresLiveBroadcast() require a live broadcast} run at their idle
+ * interval while the {@link BroadcastState} is idle, and are moved to the front of the queue as
+ * soon as it becomes live.
+ *
+ * <p>
+ * Modules can be added and removed while the scheduler runs, for example when they are enabled or
+ * disabled by a change of the bot's properties.
+ *
+ * <p>
+ * The API requests made by a run are charged to the module in the {@link QuotaBudget}, and the
+ * triggers of modules are stretched by the factor the budget asks for. Runs take part in the
+ * {@link BatchCoalescer}, so that the requests of modules running in parallel can share a single
+ * batch request.
+ */
+class ModuleScheduler implements BroadcastStateListener {
+  private static final Logger logger = LoggerFactory.getLogger(ModuleScheduler.class);
+
+  private final MightyContext context;
+  private final Clock clock;
+  private final MissedRunPolicy missedRunPolicy;
+  private final Executor executor;
+  private final long defaultTimeoutMillis;
+  private final Duration defaultIdleInterval;
+  private final CancellableConnectionFactory connectionFactory;
+  private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder().setNameFormat("watchdog").setDaemon(true).build());
+
+  private final Object lock = new Object();
+  private final PriorityQueue<ScheduledModule> queue = new PriorityQueue<>();
+  /** Modules taken out of the queue to run, until they are put back. */
+  private final Set<Module> running = new HashSet<>();
+  /** Running modules that must not be put back in the queue. */
+  private final Set<Module> unscheduled = new HashSet<>();
+
+  /**
+   * Creates a new scheduler.
+   *
+   * @param context the context passed to modules when they run
+   * @param clock the clock used to compute deadlines
+   * @param missedRunPolicy what to do when a module missed one or more runs
+   * @param executor the executor on which modules run
+   * @param defaultTimeoutMillis time budget of modules that don't set one, {@code 0} for none
+   * @param defaultIdleInterval interval while idle of modules that don't set one
+   * @param connectionFactory the factory opening the connections of the YouTube API, used to abort
+   *        the requests of runs that time out
+   */
+  ModuleScheduler(MightyContext context, Clock clock, MissedRunPolicy missedRunPolicy,
+      Executor executor, long defaultTimeoutMillis,
+      Duration defaultIdleInterval, CancellableConnectionFactory connectionFactory) {
+    this.context = Preconditions.checkNotNull(context);
+    this.clock = Preconditions.checkNotNull(clock);
+    this.missedRunPolicy = Preconditions.checkNotNull(missedRunPolicy);
+    this.executor = Preconditions.checkNotNull(executor);
+    this.defaultTimeoutMillis = defaultTimeoutMillis;
+    this.defaultIdleInterval = Preconditions.checkNotNull(defaultIdleInterval);
+    this.connectionFactory = Preconditions.checkNotNull(connectionFactory);
+    context.youTubeHelper().addBroadcastStateListener(this);
+  }
+
+  /** Adds a module to the scheduler. The module will run as soon as possible for the first time. */
+  void schedule(Module module) {
+    context.quotaBudget().registerModule(module.getName(), module.getQuotaPriority());
+    synchronized (lock) {
+      queue.add(new ScheduledModule(module, clock.millis()));
+      lock.notifyAll();
+    }
+  }
+
+  /**
+   * Removes a module from the scheduler. If the module is running, waits until its run is complete,
+   * so that the module can be reconfigured safely once this method returns.
+   *
+   * @throws InterruptedException if the thread is interrupted while waiting for the run
+   */
+  void unschedule(Module module) throws InterruptedException {
+    synchronized (lock) {
+      queue.removeIf(scheduled -> scheduled.module == module);
+      if (running.contains(module)) {
+        unscheduled.add(module);
+        while (running.contains(module)) {
+          lock.wait();
+        }
+      }
+    }
+  }
+
+  @Override
+  public void onBroadcastStateChanged(BroadcastState previous, BroadcastState current) {
+    if (current != BroadcastState.LIVE) {
+      return;
+    }
+    long now = clock.millis();
+    synchronized (lock) {
+      List<ScheduledModule> woken = new ArrayList<>();
+      for (Iterator<ScheduledModule> it = queue.iterator(); it.hasNext();) {
+        ScheduledModule scheduled = it.next();
+        if (scheduled.module.requiresLiveBroadcast() && scheduled.deadlineMillis > now) {
+          it.remove();
+          scheduled.slotMillis = now;
+          scheduled.deadlineMillis = now;
+          woken.add(scheduled);
+        }
+      }
+      queue.addAll(woken);
+      lock.notifyAll();
+    }
+  }
+
+  /**
+   * Runs the modules when they are due, forever.
+   *
+   * @throws InterruptedException if the thread is interrupted while waiting for the next deadline
+   */
+  void run() throws InterruptedException {
+    BatchCoalescer batchCoalescer = context.youTubeApi().getBatchCoalescer();
+    while (true) {
+      for (ScheduledModule next : takeAllDue()) {
+        executor.execute(() -> {
+          // On the thread of the run, so that modules waiting for a thread don't hold up batches
+          batchCoalescer.enter();
+          try {
+            runModule(next.module);
+          } finally {
+            batchCoalescer.leave();
+            // Even if the run threw an Error, or the module would never leave the running set
+            reschedule(next);
+          }
+        });
+      }
+    }
+  }
+
+  /**
+   * Blocks until at least one module is due, then removes all due modules from the queue and
+   * returns them, earliest deadline first.
+   */
+  private List<ScheduledModule> takeAllDue() throws InterruptedException {
+    synchronized (lock) {
+      while (true) {
+        ScheduledModule next = queue.peek();
+        if (next == null) {
+          lock.wait();
+          continue;
+        }
+        long now = clock.millis();
+        long waitMillis = next.deadlineMillis - now;
+        if (waitMillis <= 0) {
+          List<ScheduledModule> due = new ArrayList<>();
+          while (!queue.isEmpty() && queue.peek().deadlineMillis <= now) {
+            ScheduledModule scheduled = queue.poll();
+            running.add(scheduled.module);
+            due.add(scheduled);
+          }
+          return due;
+        }
+        lock.wait(waitMillis);
+      }
+    }
+  }
+
+  private void runModule(Module module) {
+    logger.info("Running module {}", module.getName());
+    Watch watch = new Watch(module, Thread.currentThread());
+    CancellationScope previousScope = connectionFactory.enter(watch.scope);
+    long timeoutMillis = module.getTimeoutMillis(defaultTimeoutMillis);
+    if (timeoutMillis > 0) {
+      watch.alarm = watchdog.schedule(watch::expire, timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+    context.quotaBudget().setCurrentConsumer(module.getName());
+    try {
+      module.run(context);
+    } catch (CircuitOpenException e) {
+      logger.warn("Module {} could not run: {}", module.getName(), e.getMessage());
+    } catch (Exception e) {
+      if (watch.isExpired()) {
+        logger.warn("Module {} was cancelled after {} ms", module.getName(), timeoutMillis);
+      } else {
+        logger.error("Failed to run module {}", module.getName(), e);
+      }
+    } finally {
+      watch.finish();
+      connectionFactory.exit(previousScope);
+      context.quotaBudget().setCurrentConsumer(null);
+    }
+    module.setLastRunEpochSecond(clock.instant().getEpochSecond());
+  }
+
+  /** Computes the next deadline of a module that just ran and puts it back in the queue. */
+  private void reschedule(ScheduledModule scheduled) {
+    long missedRuns = advance(scheduled, getTrigger(scheduled.module), clock.getZone(),
+        clock.millis(), missedRunPolicy);
+    if (missedRuns > 0) {
+      logger.debug("Module {} missed {} run(s) ({})", scheduled.module.getName(), missedRuns,
+          missedRunPolicy);
+    }
+
+    synchronized (lock) {
+      running.remove(scheduled.module);
+      if (!unscheduled.remove(scheduled.module)) {
+        queue.add(scheduled);
+      }
+      lock.notifyAll();
+    }
+  }
+
+  /**
+   * Moves a module that just ran to the next slot of its trigger. If that slot is already past,
+   * the module missed runs and the given policy decides when it runs next.
+   *
+   * @return the number of runs the module missed
+   */
+  static long advance(ScheduledModule scheduled, Trigger trigger, ZoneId zone, long now,
+      MissedRunPolicy missedRunPolicy) {
+    long nextSlot = trigger.nextSlotMillis(scheduled.slotMillis, zone);
+    scheduled.slotMillis = nextSlot;
+    scheduled.deadlineMillis = nextSlot;
+    if (nextSlot > now) {
+      return 0;
+    }
+
+    // Find the last slot that was missed and the first one still to come
+    long lastMissedSlot = nextSlot;
+    long firstFutureSlot = trigger.nextSlotMillis(lastMissedSlot, zone);
+    long missedRuns = 1;
+    while (firstFutureSlot <= now) {
+      lastMissedSlot = firstFutureSlot;
+      firstFutureSlot = trigger.nextSlotMillis(lastMissedSlot, zone);
+      missedRuns++;
+    }
+    switch (missedRunPolicy) {
+      case SKIP:
+        scheduled.slotMillis = firstFutureSlot;
+        scheduled.deadlineMillis = firstFutureSlot;
+        break;
+      case RUN_ONCE:
+        scheduled.slotMillis = lastMissedSlot;
+        scheduled.deadlineMillis = now;
+        break;
+      case CATCH_UP:
+        break;
+    }
+    return missedRuns;
+  }
+
+  /** Returns the trigger of the module, taking the broadcast state and quota into account. */
+  private Trigger getTrigger(Module module) {
+    Trigger trigger;
+    if (module.requiresLiveBroadcast()
+        && context.youTubeHelper().getBroadcastState() == BroadcastState.IDLE) {
+      trigger = Trigger.every(module.getIdleInterval(defaultIdleInterval));
+    } else {
+      trigger = module.getTrigger();
+    }
+    return trigger.stretchedBy(context.quotaBudget().getStretchFactor(module.getName()));
+  }
+
+  /** Watches a single run of a module and cancels it if it takes too long. */
+  private class Watch {
+    private final Module module;
+    private final Thread thread;
+    /** The connections opened for the run, on its thread or on behalf of it. */
+    private final CancellationScope scope = new CancellationScope();
+    private Future<?> alarm;
+    private boolean finished;
+    private boolean expired;
+
+    Watch(Module module, Thread thread) {
+      this.module = module;
+      this.thread = thread;
+    }
+
+    /** Called by the watchdog when the time budget of the run is exhausted. */
+    synchronized void expire() {
+      if (finished) {
+        return;
+      }
+      expired = true;
+      module.recordOverrun();
+      logger.warn("Module {} exceeded its time budget ({} overrun(s) so far). Cancelling.",
+          module.getName(), module.getOverrunCount());
+      scope.cancel();
+      thread.interrupt();
+    }
+
+    synchronized boolean isExpired() {
+      return expired;
+    }
+
+    /** Called by the thread of the run when it is complete, whether it expired or not. */
+    synchronized void finish() {
+      finished = true;
+      if (alarm != null) {
+        alarm.cancel(false);
+      }
+      scope.close();
+      if (expired) {
+        // Clears the interrupt so that it does not leak into the next task run by this thread
+        Thread.interrupted();
+      }
+    }
+  }
+
+  /** A module in the scheduler queue. */
+  static class ScheduledModule implements Comparable<ScheduledModule> {
+    private final Module module;
+    /** Time at which the module should have run according to its trigger. */
+    long slotMillis;
+    /** Time at which the module will actually run. Never earlier than the slot. */
+    long deadlineMillis;
+
+    ScheduledModule(Module module, long firstRunMillis) {
+      this.module = module;
+      this.slotMillis = firstRunMillis;
+      this.deadlineMillis = firstRunMillis;
+    }
+
+    @Override
+    public int compareTo(ScheduledModule other) {
+      return Long.compare(deadlineMillis, other.deadlineMillis);
+    }
+  }
+}
@@ -0,0 +1,123 @@
+package com.youtube.gaming.mightybot;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Decides when a module runs. A trigger computes the successive times, or slots, at which a module
+ * should run. The scheduler uses the zone of the {@link MightyContext#clock()} for triggers that
+ * depend on the wall clock.
+ */
+public abstract class Trigger {
+
+  /**
+   * Returns a trigger firing at a fixed rate, starting as soon as the module is scheduled. The
+   * interval can be shorter than a second.
+   *
+   * @param interval the time between two runs, must be positive
+   */
+  public static Trigger every(Duration interval) {
+    return new FixedRateTrigger(interval);
+  }
+
+  /**
+   * Returns a trigger firing once as soon as the module is scheduled, then every time the wall
+   * clock reaches a multiple of the given period. For example, a period of one minute fires at
+   * {@code 12:00:00.000}, {@code 12:01:00.000}, etc. Periods of an hour or more are aligned on the
+   * local time of the clock, not on UTC.
+   *
+   * @param period the period on which to align the runs, must be positive
+   */
+  public static Trigger alignedTo(Duration period) {
+    return new AlignedTrigger(period);
+  }
+
+  /**
+   * Returns a trigger whose slots are spaced by this trigger's spacing multiplied by the given
+   * factor. Used to slow modules down, e.g. to save quota.
+   *
+   * @param factor the factor by which to stretch the time between slots, at least {@code 1}
+   */
+  public Trigger stretchedBy(double factor) {
+    Preconditions.checkArgument(factor >= 1, "Factor can't be less than 1: %s", factor);
+    if (factor == 1) {
+      return this;
+    }
+    return new StretchedTrigger(this, factor);
+  }
+
+  /**
+   * Returns the first slot after the given one.
+   *
+   * @param previousSlotMillis the previous slot, in milliseconds since the epoch
+   * @param zone the zone of the clock used by the bot
+   */
+  public abstract long nextSlotMillis(long previousSlotMillis, ZoneId zone);
+
+  private static class FixedRateTrigger extends Trigger {
+    private final long intervalMillis;
+
+    FixedRateTrigger(Duration interval) {
+      Preconditions.checkArgument(!interval.isNegative() && !interval.isZero(),
+          "Interval must be positive: %s", interval);
+      this.intervalMillis = interval.toMillis();
+    }
+
+    @Override
+    public long nextSlotMillis(long previousSlotMillis, ZoneId zone) {
+      return previousSlotMillis + intervalMillis;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("every %d ms", intervalMillis);
+    }
+  }
+
+  private static class StretchedTrigger extends Trigger {
+    private final Trigger trigger;
+    private final double factor;
+
+    StretchedTrigger(Trigger trigger, double factor) {
+      this.trigger = trigger;
+      this.factor = factor;
+    }
+
+    @Override
+    public long nextSlotMillis(long previousSlotMillis, ZoneId zone) {
+      long spacingMillis = trigger.nextSlotMillis(previousSlotMillis, zone) - previousSlotMillis;
+      return previousSlotMillis + (long) (spacingMillis * factor);
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s stretched %.2f times", trigger, factor);
+    }
+  }
+
+  private static class AlignedTrigger extends Trigger {
+    private final long periodMillis;
+
+    AlignedTrigger(Duration period) {
+      Preconditions.checkArgument(!period.isNegative() && !period.isZero(),
+          "Period must be positive: %s", period);
+      this.periodMillis = period.toMillis();
+    }
+
+    @Override
+    public long nextSlotMillis(long previousSlotMillis, ZoneId zone) {
+      long offsetMillis = zone.getRules().getOffset(Instant.ofEpochMilli(previousSlotMillis))
+          .getTotalSeconds() * 1000L;
+      long localMillis = previousSlotMillis + offsetMillis;
+      return (Math.floorDiv(localMillis, periodMillis) + 1) * periodMillis - offsetMillis;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("aligned to %d ms", periodMillis);
+    }
+  }
+}
@@ -3,19 +3,37 @@ package com.youtube.gaming.mightybot;
 import java.io.IOException;
 import java.security.GeneralSecurityException;
 import java.time.Clock;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.api.client.auth.oauth2.Credential;
-import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
+import com.google.api.client.http.HttpTransport;
 import com.google.api.client.json.jackson2.JacksonFactory;
 import com.google.api.services.youtube.YouTube;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.youtube.gaming.mightybot.api.ApiResponseCache;
+import com.youtube.gaming.mightybot.api.BatchCoalescer;
+import com.youtube.gaming.mightybot.api.ConditionalRequestExecutor;
+import com.youtube.gaming.mightybot.api.QuotaBudget;
+import com.youtube.gaming.mightybot.api.ResilientRequestExecutor;
+import com.youtube.gaming.mightybot.api.YouTubeApi;
 import com.youtube.gaming.mightybot.exceptions.InvalidConfigurationException;
+import com.youtube.gaming.mightybot.fake.FakeYouTubeServer;
+import com.youtube.gaming.mightybot.http.CancellableConnectionFactory;
+import com.youtube.gaming.mightybot.http.HttpTransports;
+import com.youtube.gaming.mightybot.http.TransportRequestInitializer;
+import com.youtube.gaming.mightybot.modules.ActiveBroadcastsConcurrentViewersAndLikes;
 import com.youtube.gaming.mightybot.modules.MostRecentLiveBroadcastConcurrentViewersAndLikes;
 import com.youtube.gaming.mightybot.modules.MostRecentLiveBroadcastTitle;
 import com.youtube.gaming.mightybot.modules.CurrentTime;
@@ -23,8 +41,12 @@ import com.youtube.gaming.mightybot.modules.NewSubChatAnnouncer;
 import com.youtube.gaming.mightybot.modules.SubCount;
 import com.youtube.gaming.mightybot.modules.Trivia;
 import com.youtube.gaming.mightybot.oauth.Auth;
+import com.youtube.gaming.mightybot.overlay.OverlayServer;
 import com.youtube.gaming.mightybot.properties.MightyProperties;
 import com.youtube.gaming.mightybot.properties.MightyProperty;
+import com.youtube.gaming.mightybot.util.DynamicPath;
+import com.youtube.gaming.mightybot.util.VirtualThreads;
+import com.youtube.gaming.mightybot.watch.FileWatcher;
 
 /**
  * A modular and mighty YouTube Gaming bot.
@@ -32,20 +54,29 @@ import com.youtube.gaming.mightybot.properties.MightyProperty;
 public class YouTubeGamingMightyBot {
   private static final Logger logger = LoggerFactory.getLogger(YouTubeGamingMightyBot.class);
 
-  /**
-   * Time to wait between each run of the main loop. This time will be added after the main loop has
-   * run, which means if the main loop takes 3,000 millis to run, the next loop will run 4,000
-   * millis after it originally started.
-   */
-  private static final long MAIN_LOOP_CYCLE_MILLIS = 1000;
-
   public static void main(String[] args) {
+    if (args.length > 0 && args[0].equals("--fake-server")) {
+      // Serve a fake YouTube Data API instead, see FakeYouTubeServer for the scenario properties
+      try {
+        FakeYouTubeServer.main(Arrays.copyOfRange(args, 1, args.length));
+      } catch (IOException e) {
+        logger.error("Could not start the fake YouTube Data API", e);
+      }
+      return;
+    }
+
     // Get the mighty properties
     MightyProperties properties = new MightyProperties();
 
     // Do global configuration checks
+    MissedRunPolicy missedRunPolicy;
+    ExecutionMode executionMode;
     try {
       doGlobalConfigurationChecks(properties);
+      missedRunPolicy =
+          properties.getEnum(MightyProperty.SCHEDULER_MISSED_RUN_POLICY, MissedRunPolicy.class);
+      executionMode =
+          properties.getEnum(MightyProperty.SCHEDULER_EXECUTION_MODE, ExecutionMode.class);
     } catch (InvalidConfigurationException e) {
       logger.error("Invalid configuration", e);
       return;
@@ -58,15 +89,20 @@ public class YouTubeGamingMightyBot {
         new NewSubChatAnnouncer(),
         new MostRecentLiveBroadcastConcurrentViewersAndLikes(),
         new MostRecentLiveBroadcastTitle(),
+        new ActiveBroadcastsConcurrentViewersAndLikes(),
         new Trivia());
+    FileWatcher fileWatcher = new FileWatcher();
     Set<String> requiredOauthScopes = new HashSet<>();
     boolean atLeastOneModuleEnabled = false;
     for (Module module : modules) {
       module.setProperties(properties);
+      module.setFileWatcher(fileWatcher);
       if (module.isEnabled()) {
         atLeastOneModuleEnabled = true;
+        module.checkSchedulingProperties();
         module.checkProperties();
         module.init();
+        module.initScheduling();
         if (module.getRequiredOauthScopes() != null) {
           requiredOauthScopes.addAll(module.getRequiredOauthScopes());
         }
@@ -81,57 +117,233 @@ public class YouTubeGamingMightyBot {
       return;
     }
 
+    Clock clock = Clock.systemDefaultZone();
+
     // Initialize YouTube
+    HttpTransports.configureConnectionPool(
+        properties.getInt(MightyProperty.HTTP_MAX_CONNECTIONS),
+        "true".equalsIgnoreCase(properties.get(MightyProperty.HTTP_KEEP_ALIVE)));
+    CancellableConnectionFactory connectionFactory = new CancellableConnectionFactory();
+    QuotaBudget quotaBudget = new QuotaBudget(clock,
+        properties.getLong(MightyProperty.API_QUOTA_DAILY_BUDGET),
+        DynamicPath.locate(properties.get(MightyProperty.API_QUOTA_STATE_FILE)));
+    // Otherwise the consumption since the last recomputation would be lost when the bot stops
+    Runtime.getRuntime().addShutdownHook(new Thread(quotaBudget::save, "quota-budget-save"));
     YouTube youTube;
+    // Scopes that can be used by modules enabled later, or null if requests aren't authorized
+    Set<String> authorizedOauthScopes = null;
     try {
+      // A single transport for the whole bot, so that connections are reused
+      HttpTransport httpTransport = HttpTransports.newTrustedTransport(connectionFactory);
       Credential credential = null;
-      if (!requiredOauthScopes.isEmpty()) {
-        credential= Auth.authorize(new ArrayList<>(requiredOauthScopes), "mightybot");
+      String rootUrl = properties.get(MightyProperty.API_ROOT_URL);
+      if (!rootUrl.equals(YouTube.DEFAULT_ROOT_URL)) {
+        logger.warn("Using the YouTube Data API at {}, skipping authorization", rootUrl);
+      } else {
+        authorizedOauthScopes = requiredOauthScopes;
+        if (!requiredOauthScopes.isEmpty()) {
+          credential= Auth.authorize(httpTransport, new ArrayList<>(requiredOauthScopes),
+              "mightybot");
+        }
       }
 
       youTube = new YouTube.Builder(
-            GoogleNetHttpTransport.newTrustedTransport(),
+            httpTransport,
             JacksonFactory.getDefaultInstance(),
-            credential)
+            new TransportRequestInitializer(credential,
+                properties.getInt(MightyProperty.HTTP_CONNECT_TIMEOUT_MILLIS),
+                properties.getInt(MightyProperty.HTTP_READ_TIMEOUT_MILLIS),
+                "true".equalsIgnoreCase(properties.get(MightyProperty.HTTP_GZIP))))
         .setApplicationName(properties.get(MightyProperty.PROJECT_ID))
+        .setRootUrl(rootUrl)
         .build();
     } catch (IOException | GeneralSecurityException e) {
       logger.error("Could not initialize the YouTube API.", e);
       return;
     }
 
-    Clock clock = Clock.systemDefaultZone();
-
-    // Start the loop
-    MightyContext context = new MightyContext(properties, youTube, clock);
-    boolean loop = true;
-    while(loop) {
-      for (Module module : modules) {
-        if (module.isEnabled() && clock.instant().getEpochSecond()
-            - module.getLastRunEpochSecond() > module.getIntervalSecond()) {
-          logger.info("Running module {}", module.getName());
-          try {
-            module.run(context);
-          } catch (Exception e) {
-            logger.error("Failed to run module {}", module.getName(), e);
-          }
-          module.setLastRunEpochSecond(clock.instant().getEpochSecond());
-        }
-      }
+    // Start the scheduler
+    ApiResponseCache apiResponseCache = new ApiResponseCache(ImmutableMap.of(
+        YouTubeApi.CHANNELS_LIST,
+        properties.getLong(MightyProperty.API_CACHE_CHANNELS_TTL_MILLIS),
+        YouTubeApi.VIDEOS_LIST,
+        properties.getLong(MightyProperty.API_CACHE_VIDEOS_TTL_MILLIS)),
+        properties.getLong(MightyProperty.API_CACHE_MAX_SIZE));
+    BatchCoalescer batchCoalescer =
+        new BatchCoalescer(youTube, properties.getLong(MightyProperty.API_BATCH_WINDOW_MILLIS),
+            getMaxConcurrentModules(executionMode, properties));
+    ResilientRequestExecutor resilientRequestExecutor = new ResilientRequestExecutor(
+        batchCoalescer, quotaBudget, clock,
+        properties.getInt(MightyProperty.API_RETRY_MAX_ATTEMPTS),
+        properties.getLong(MightyProperty.API_RETRY_BASE_DELAY_MILLIS),
+        properties.getLong(MightyProperty.API_RETRY_MAX_DELAY_MILLIS),
+        properties.getInt(MightyProperty.API_CIRCUIT_BREAKER_FAILURE_THRESHOLD),
+        properties.getLong(MightyProperty.API_CIRCUIT_BREAKER_OPEN_MILLIS));
+    ConditionalRequestExecutor conditionalRequestExecutor = new ConditionalRequestExecutor(
+        resilientRequestExecutor, properties.getLong(MightyProperty.API_CACHE_MAX_SIZE));
+    Executor asyncExecutor = createAsyncExecutor(executionMode, properties);
+    MightyContext context = new MightyContext(properties, youTube,
+        new YouTubeApi(youTube, properties, apiResponseCache, conditionalRequestExecutor),
+        quotaBudget, connectionFactory, asyncExecutor, fileWatcher, clock);
+    ModuleScheduler scheduler = new ModuleScheduler(context, clock, missedRunPolicy,
+        createModuleExecutor(executionMode, properties),
+        properties.getLong(MightyProperty.SCHEDULER_DEFAULT_TIMEOUT_MILLIS),
+        Duration.ofSeconds(properties.getLong(MightyProperty.SCHEDULER_IDLE_INTERVAL)),
+        connectionFactory);
+    BroadcastStateMonitor monitor = new BroadcastStateMonitor();
+    monitor.setProperties(properties);
+    ConfigurationReloader reloader = new ConfigurationReloader(properties, modules, scheduler,
+        monitor, authorizedOauthScopes);
+    reloader.scheduleEnabledModules();
+    if ("true".equalsIgnoreCase(properties.get(MightyProperty.RELOAD_ENABLED))) {
+      reloader.watch(context.fileWatcher());
+    }
 
+    if ("true".equalsIgnoreCase(properties.get(MightyProperty.OVERLAY_ENABLED))) {
       try {
-        Thread.sleep(MAIN_LOOP_CYCLE_MILLIS);
-      } catch (InterruptedException e) {
-        logger.error("Could not make the thread sleep. Quitting.");
-        loop = false;
+        new OverlayServer(context.overlayHub(), properties.getInt(MightyProperty.OVERLAY_PORT))
+            .start();
+      } catch (IOException e) {
+        logger.error("Could not start the overlay server.", e);
+        return;
       }
     }
+
+    try {
+      scheduler.run();
+    } catch (InterruptedException e) {
+      logger.error("Scheduler was interrupted. Quitting.");
+    }
   }
 
   /** Checks that the mandatory properties are present in the given properties file. */
-  private static void doGlobalConfigurationChecks(MightyProperties properties) {
+  static void doGlobalConfigurationChecks(MightyProperties properties) {
     for (MightyProperty property : MightyProperty.values()) {
-      properties.throwIfNullOrEmpty(property, "Property can't be empty");
+      if (property.isRequired()) {
+        properties.throwIfNullOrEmpty(property, "Property can't be empty");
+      }
+    }
+    if (properties.getEnum(MightyProperty.SCHEDULER_EXECUTION_MODE,
+        ExecutionMode.class) == ExecutionMode.VIRTUAL && !VirtualThreads.isSupported()) {
+      throw new InvalidConfigurationException(MightyProperty.SCHEDULER_EXECUTION_MODE.getName(),
+          "Virtual threads require Java 21 or later");
+    }
+    if (properties.getInt(MightyProperty.SCHEDULER_POOL_SIZE) < 1) {
+      throw new InvalidConfigurationException(MightyProperty.SCHEDULER_POOL_SIZE.getName(),
+          "Pool size can't be less than 1");
+    }
+    if (properties.getLong(MightyProperty.API_QUOTA_DAILY_BUDGET) < 1) {
+      throw new InvalidConfigurationException(MightyProperty.API_QUOTA_DAILY_BUDGET.getName(),
+          "Daily quota budget can't be less than 1");
+    }
+    if (properties.getInt(MightyProperty.CHAT_BUFFER_CAPACITY) < 1) {
+      throw new InvalidConfigurationException(MightyProperty.CHAT_BUFFER_CAPACITY.getName(),
+          "Chat buffer capacity can't be less than 1");
+    }
+    if (properties.getLong(MightyProperty.CHAT_MIN_POLLING_INTERVAL_MILLIS) < 1) {
+      throw new InvalidConfigurationException(
+          MightyProperty.CHAT_MIN_POLLING_INTERVAL_MILLIS.getName(),
+          "Minimum chat polling interval can't be less than 1ms");
+    }
+    if (properties.getInt(MightyProperty.CHAT_OUTBOX_CAPACITY) < 1) {
+      throw new InvalidConfigurationException(MightyProperty.CHAT_OUTBOX_CAPACITY.getName(),
+          "Chat outbox capacity can't be less than 1");
+    }
+    if (properties.getLong(MightyProperty.CHAT_OUTBOX_MIN_INTERVAL_MILLIS) < 1) {
+      throw new InvalidConfigurationException(
+          MightyProperty.CHAT_OUTBOX_MIN_INTERVAL_MILLIS.getName(),
+          "Minimum interval between chat messages can't be less than 1ms");
+    }
+    if (properties.getLong(MightyProperty.SCHEDULER_IDLE_INTERVAL) < 1) {
+      throw new InvalidConfigurationException(MightyProperty.SCHEDULER_IDLE_INTERVAL.getName(),
+          "Idle interval can't be less than 1s");
+    }
+    if (properties.getInt(MightyProperty.API_RETRY_MAX_ATTEMPTS) < 1) {
+      throw new InvalidConfigurationException(MightyProperty.API_RETRY_MAX_ATTEMPTS.getName(),
+          "Maximum number of attempts can't be less than 1 (use 1 to disable retries)");
+    }
+    if (properties.getLong(MightyProperty.API_RETRY_BASE_DELAY_MILLIS) < 0
+        || properties.getLong(MightyProperty.API_RETRY_MAX_DELAY_MILLIS) < 0) {
+      throw new InvalidConfigurationException(MightyProperty.API_RETRY_BASE_DELAY_MILLIS.getName(),
+          "Retry delays can't be negative");
+    }
+    if (properties.getInt(MightyProperty.API_CIRCUIT_BREAKER_FAILURE_THRESHOLD) < 1) {
+      throw new InvalidConfigurationException(
+          MightyProperty.API_CIRCUIT_BREAKER_FAILURE_THRESHOLD.getName(),
+          "Failure threshold can't be less than 1");
+    }
+    if (properties.getLong(MightyProperty.API_CIRCUIT_BREAKER_OPEN_MILLIS) < 0) {
+      throw new InvalidConfigurationException(
+          MightyProperty.API_CIRCUIT_BREAKER_OPEN_MILLIS.getName(),
+          "Open time can't be negative");
+    }
+    if (properties.getInt(MightyProperty.HTTP_MAX_CONNECTIONS) < 1) {
+      throw new InvalidConfigurationException(MightyProperty.HTTP_MAX_CONNECTIONS.getName(),
+          "Maximum number of connections can't be less than 1");
+    }
+    if (properties.getInt(MightyProperty.HTTP_CONNECT_TIMEOUT_MILLIS) < 0) {
+      throw new InvalidConfigurationException(MightyProperty.HTTP_CONNECT_TIMEOUT_MILLIS.getName(),
+          "Timeout can't be negative (use 0 to disable)");
+    }
+    if (properties.getInt(MightyProperty.HTTP_READ_TIMEOUT_MILLIS) < 0) {
+      throw new InvalidConfigurationException(MightyProperty.HTTP_READ_TIMEOUT_MILLIS.getName(),
+          "Timeout can't be negative (use 0 to disable)");
+    }
+    if (properties.getLong(MightyProperty.API_BATCH_WINDOW_MILLIS) < 0) {
+      throw new InvalidConfigurationException(MightyProperty.API_BATCH_WINDOW_MILLIS.getName(),
+          "Batch window can't be negative (use 0 to disable)");
+    }
+    if (properties.getLong(MightyProperty.SCHEDULER_DEFAULT_TIMEOUT_MILLIS) < 0) {
+      throw new InvalidConfigurationException(
+          MightyProperty.SCHEDULER_DEFAULT_TIMEOUT_MILLIS.getName(),
+          "Timeout can't be negative (use 0 to disable)");
+    }
+  }
+
+  /**
+   * Creates the executor on which asynchronous calls and background refreshes wait for YouTube. On
+   * virtual threads, a blocked call doesn't hold a platform thread, so there is no need to bound
+   * them.
+   */
+  private static Executor createAsyncExecutor(ExecutionMode executionMode,
+      MightyProperties properties) {
+    if (executionMode == ExecutionMode.VIRTUAL) {
+      return VirtualThreads.newVirtualThreadPerTaskExecutor("api-async-");
+    }
+    // Async calls can't run faster than the connections they can use
+    return Executors.newFixedThreadPool(properties.getInt(MightyProperty.HTTP_MAX_CONNECTIONS),
+        new ThreadFactoryBuilder().setNameFormat("api-async-%d").setDaemon(true).build());
+  }
+
+  /** Returns the maximum number of modules the executor of the given mode runs at once. */
+  private static int getMaxConcurrentModules(ExecutionMode executionMode,
+      MightyProperties properties) {
+    switch (executionMode) {
+      case POOL:
+        return properties.getInt(MightyProperty.SCHEDULER_POOL_SIZE);
+      case VIRTUAL:
+        return Integer.MAX_VALUE;
+      case SEQUENTIAL:
+      default:
+        return 1;
+    }
+  }
+
+  /** Creates the executor on which the scheduler runs the modules. */
+  private static Executor createModuleExecutor(ExecutionMode executionMode,
+      MightyProperties properties) {
+    switch (executionMode) {
+      case POOL:
+        int poolSize = properties.getInt(MightyProperty.SCHEDULER_POOL_SIZE);
+        logger.info("Running modules on a pool of {} thread(s)", poolSize);
+        return Executors.newFixedThreadPool(poolSize,
+            new ThreadFactoryBuilder().setNameFormat("module-%d").setDaemon(true).build());
+      case VIRTUAL:
+        logger.info("Running modules on virtual threads");
+        return VirtualThreads.newVirtualThreadPerTaskExecutor("module-");
+      case SEQUENTIAL:
+      default:
+        return MoreExecutors.directExecutor();
     }
   }
 }
@@ -4,78 +4,145 @@ import java.io.IOException;
 import java.time.Clock;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.api.client.util.DateTime;
 import com.google.api.services.youtube.YouTube;
-import com.google.api.services.youtube.model.LiveBroadcast;
-import com.google.api.services.youtube.model.LiveBroadcastListResponse;
-import com.google.api.services.youtube.model.LiveChatMessage;
-import com.google.api.services.youtube.model.LiveChatMessageSnippet;
-import com.google.api.services.youtube.model.LiveChatTextMessageDetails;
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.youtube.gaming.mightybot.api.BroadcastInfo;
+import com.youtube.gaming.mightybot.api.QuotaBudget;
+import com.youtube.gaming.mightybot.api.YouTubeApi;
+import com.youtube.gaming.mightybot.chat.ChatCoalescingPolicy;
+import com.youtube.gaming.mightybot.chat.ChatOutbox;
+import com.youtube.gaming.mightybot.chat.ChatPriority;
 import com.youtube.gaming.mightybot.properties.MightyProperties;
 import com.youtube.gaming.mightybot.properties.MightyProperty;
+import com.youtube.gaming.mightybot.util.RefreshAheadCache;
+import com.youtube.gaming.mightybot.util.RefreshAheadCache.Snapshot;
 
+/**
+ * Helper methods around the {@link YouTube} API shared by all modules. All methods are safe to
+ * call from modules running concurrently.
+ */
 public class YouTubeHelper {
   private static final Logger logger = LoggerFactory.getLogger(YouTubeHelper.class);
 
-  private static final long ACTIVE_BROADCASTS_REFRESH_CYCLE_MILLIS = 60000;
+  static final long ACTIVE_BROADCASTS_REFRESH_CYCLE_MILLIS = 60000;
+  private static final long ACTIVE_BROADCASTS_REFRESH_AHEAD_MILLIS = 5000;
+  private static final long ACTIVE_BROADCASTS_MAX_STALENESS_MILLIS = 180000;
   private static final List<String> BROADCAST_ACTIVE_LIFE_CYCLES =
       ImmutableList.of("ready", "testing", "liveStarting", "live");
+  private static final List<String> BROADCAST_LIVE_LIFE_CYCLES =
+      ImmutableList.of("liveStarting", "live");
 
-  private final YouTube youTube;
+  private final YouTubeApi youTubeApi;
   private final MightyProperties properties;
   private final Clock clock;
 
-  private List<LiveBroadcast> activeBroadcasts = new ArrayList<>();
-  private DateTime lastActiveBroadcastsRefresh = new DateTime(0);
+  private final RefreshAheadCache<List<BroadcastInfo>> activeBroadcasts;
+  private final ChatOutbox chatOutbox;
 
-  YouTubeHelper(MightyProperties properties, YouTube youTube, Clock clock) {
-    this.youTube = youTube;
+  private volatile BroadcastState broadcastState = BroadcastState.IDLE;
+  private final List<BroadcastStateListener> broadcastStateListeners =
+      new CopyOnWriteArrayList<>();
+
+  YouTubeHelper(MightyProperties properties, YouTubeApi youTubeApi, QuotaBudget quotaBudget,
+      Clock clock, Executor refreshExecutor) {
+    this.youTubeApi = youTubeApi;
     this.properties = properties;
     this.clock = clock;
+    this.activeBroadcasts = new RefreshAheadCache<>("active broadcasts",
+        this::loadActiveBroadcasts, clock, ACTIVE_BROADCASTS_REFRESH_CYCLE_MILLIS,
+        ACTIVE_BROADCASTS_REFRESH_AHEAD_MILLIS, ACTIVE_BROADCASTS_MAX_STALENESS_MILLIS,
+        Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+            .setNameFormat("active-broadcasts").setDaemon(true).build()),
+        refreshExecutor);
+    this.chatOutbox = new ChatOutbox(youTubeApi, quotaBudget,
+        Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+            .setNameFormat("chat-outbox-%d").setDaemon(true).build()),
+        properties.getInt(MightyProperty.CHAT_OUTBOX_CAPACITY),
+        properties.getLong(MightyProperty.CHAT_OUTBOX_MIN_INTERVAL_MILLIS));
   }
 
   /**
    * Returns all current active broadcasts on the channel, filtering out persistent broadcasts if
    * the "{@code ignorePersistentBroadcasts}" module property is {@code true}. An active broadcast
    * is in one of the {@link #BROADCAST_ACTIVE_LIFE_CYCLES} states, which means this method also
-   * returns broadcasts that are in the testing or starting life cycle. Returned broadcast are
-   * requested using the {@code "snippet,status"} parts.
+   * returns broadcasts that are in the testing or starting life cycle. Only the properties of
+   * broadcasts that modules read are requested, see {@link BroadcastInfo}.
+   * <p>
+   * The helper caches the list for {@link #ACTIVE_BROADCASTS_REFRESH_CYCLE_MILLIS} milliseconds.
+   * While the list is being read, it is refreshed in the background shortly before it expires. An
+   * expired list is still returned while it is refreshed, unless it is older than
+   * {@link #ACTIVE_BROADCASTS_MAX_STALENESS_MILLIS}. This method only waits for YouTube when the
+   * list was never loaded or is too stale, and only one request is ever in flight.
    * <p>
-   * The helper caches the list for {@link #ACTIVE_BROADCASTS_REFRESH_CYCLE_MILLIS} seconds, and
-   * will hold off on refreshing the data after this time is expired until the method is called
-   * again.
+   * This method is safe to call from several modules running concurrently. The returned list is
+   * immutable.
    * <p>
    * This method will only work in a module that requested the
    * {@code https://www.googleapis.com/auth/youtube} OAuth scope.
    *
    * @return a list of active broadcasts, empty if there is none
-   * @throws IOException if an error occurred while contacting YouTube
+   * @throws IOException if the list had to be loaded and an error occurred while contacting YouTube
    */
-  public List<LiveBroadcast> getActiveBroadcasts() throws IOException {
-    if (clock.millis()
-        - lastActiveBroadcastsRefresh.getValue() > ACTIVE_BROADCASTS_REFRESH_CYCLE_MILLIS) {
-      logger.debug("Refreshing active broadcasts (ignoring persistent: {})",
-          shouldIgnorePersistentBroadcasts());
-      YouTube.LiveBroadcasts.List activeRequest = youTube.liveBroadcasts().list("snippet,status");
-      activeRequest.setBroadcastStatus("active");
-      if (shouldIgnorePersistentBroadcasts()) {
-        activeRequest.setBroadcastType("event");
-      } else {
-        activeRequest.setBroadcastType("all");
-      }
-      LiveBroadcastListResponse activeResponse = activeRequest.execute();
+  public List<BroadcastInfo> getActiveBroadcasts() throws IOException {
+    return activeBroadcasts.get();
+  }
 
-      activeBroadcasts = getActiveBroadcasts(activeResponse.getItems());
-      lastActiveBroadcastsRefresh = new DateTime(clock.millis());
-      logger.info("Found {} active broadcast(s)", activeBroadcasts.size());
+  /**
+   * Returns the age of the cached active broadcasts in milliseconds, or an absent optional if they
+   * were never loaded.
+   */
+  public Optional<Long> getActiveBroadcastsAgeMillis() {
+    Optional<Snapshot<List<BroadcastInfo>>> snapshot = activeBroadcasts.getSnapshot();
+    if (!snapshot.isPresent()) {
+      return Optional.absent();
     }
-    return activeBroadcasts;
+    return Optional.of(clock.millis() - snapshot.get().getLoadedAtMillis());
+  }
+
+  /**
+   * Returns how long the last refresh of the active broadcasts took in milliseconds, or an absent
+   * optional if they were never loaded.
+   */
+  public Optional<Long> getActiveBroadcastsRefreshLatencyMillis() {
+    Optional<Snapshot<List<BroadcastInfo>>> snapshot = activeBroadcasts.getSnapshot();
+    if (!snapshot.isPresent()) {
+      return Optional.absent();
+    }
+    return Optional.of(snapshot.get().getLoadLatencyMillis());
+  }
+
+  private List<BroadcastInfo> loadActiveBroadcasts() throws IOException {
+    logger.debug("Refreshing active broadcasts (ignoring persistent: {})",
+        shouldIgnorePersistentBroadcasts());
+    List<BroadcastInfo> loaded = getActiveBroadcasts(youTubeApi.listActiveBroadcasts(
+        shouldIgnorePersistentBroadcasts() ? "event" : "all"));
+    logger.info("Found {} active broadcast(s)", loaded.size());
+    updateBroadcastState(loaded);
+    return loaded;
+  }
+
+  /**
+   * Returns the broadcast state of the channel as of the last refresh of the active broadcasts.
+   * The state is {@link BroadcastState#IDLE} until the active broadcasts are refreshed for the
+   * first time.
+   */
+  public BroadcastState getBroadcastState() {
+    return broadcastState;
+  }
+
+  /** Registers a listener that is notified every time the {@link BroadcastState} changes. */
+  public void addBroadcastStateListener(BroadcastStateListener listener) {
+    broadcastStateListeners.add(listener);
   }
 
   /**
@@ -91,14 +158,14 @@ public class YouTubeHelper {
    * @return the most recent live broadcast
    * @throws IOException if an error occurred while contacting YouTube
    */
-  public Optional<LiveBroadcast> getMostRecentLiveBroadcast() throws IOException {
-    LiveBroadcast broadcast = null;
-    for (LiveBroadcast activeBroadcast : getActiveBroadcasts()) {
-      if (!activeBroadcast.getStatus().getLifeCycleStatus().equals("live")) {
+  public Optional<BroadcastInfo> getMostRecentLiveBroadcast() throws IOException {
+    BroadcastInfo broadcast = null;
+    for (BroadcastInfo activeBroadcast : getActiveBroadcasts()) {
+      if (!activeBroadcast.getLifeCycleStatus().equals("live")) {
         continue;
       }
-      if (broadcast == null || broadcast.getSnippet().getActualStartTime()
-          .getValue() < activeBroadcast.getSnippet().getActualStartTime().getValue()) {
+      if (broadcast == null
+          || broadcast.getActualStartTimeMillis() < activeBroadcast.getActualStartTimeMillis()) {
         broadcast = activeBroadcast;
       }
     }
@@ -120,8 +187,10 @@ public class YouTubeHelper {
    */
   public List<String> getActiveLiveChatIds() throws IOException {
     List<String> activeLiveChatIds = new ArrayList<>();
-    for (LiveBroadcast liveBroadcast : getActiveBroadcasts()) {
-      activeLiveChatIds.add(liveBroadcast.getSnippet().getLiveChatId());
+    for (BroadcastInfo liveBroadcast : getActiveBroadcasts()) {
+      if (liveBroadcast.getLiveChatId() != null) {
+        activeLiveChatIds.add(liveBroadcast.getLiveChatId());
+      }
     }
     return activeLiveChatIds;
   }
@@ -141,33 +210,67 @@ public class YouTubeHelper {
    * @throws IOException if an error occurred while contacting YouTube
    */
   public Optional<String> getMostRecentLiveBroadcastLiveChatId() throws IOException {
-    Optional<LiveBroadcast> liveBroadcast = getMostRecentLiveBroadcast();
+    Optional<BroadcastInfo> liveBroadcast = getMostRecentLiveBroadcast();
     if (!liveBroadcast.isPresent()) {
       return Optional.absent();
     }
 
-    return Optional.of(liveBroadcast.get().getSnippet().getLiveChatId());
+    return Optional.fromNullable(liveBroadcast.get().getLiveChatId());
   }
 
   /**
-   * Posts the given text message to live chat with the provided id.
+   * Queues the given text message for the live chat with the provided id. The message is posted
+   * from another thread, at the pace set for the chat, see {@link ChatOutbox}.
+   * <p>
+   * This method will only work in a module that requested the
+   * {@code https://www.googleapis.com/auth/youtube} OAuth scope.
    *
    * @param liveChatId id of the live chat where to post the message
    * @param message the message to post
-   * @throws IOException if an error occurred while contacting YouTube
+   * @param priority the priority of the message over the other messages queued
+   * @return a future completing once the message is posted, or exceptionally if it could not be
    */
-  public void postTextMessageToLiveChat(String liveChatId, String message) throws IOException {
-    LiveChatMessage content = new LiveChatMessage()
-        .setSnippet(new LiveChatMessageSnippet()
-            .setLiveChatId(liveChatId)
-            .setType("textMessageEvent")
-            .setTextMessageDetails(new LiveChatTextMessageDetails()
-                .setMessageText(message)));
+  public CompletableFuture<Void> queueTextMessageToLiveChat(String liveChatId, String message,
+      ChatPriority priority) {
+    return chatOutbox.queue(liveChatId, message, priority);
+  }
 
-    YouTube.LiveChatMessages.Insert request =
-        youTube.liveChatMessages().insert("snippet", content);
+  /**
+   * Queues an item to announce in the live chat with the provided id. Items queued with the same
+   * coalescing key before the message is posted are announced together, in the message built by
+   * the given policy, see {@link ChatOutbox}.
+   * <p>
+   * This method will only work in a module that requested the
+   * {@code https://www.googleapis.com/auth/youtube} OAuth scope.
+   *
+   * @param liveChatId id of the live chat where to post the message
+   * @param coalescingKey what the items announce, e.g. {@code "newSubscribers"}
+   * @param item the item to announce, e.g. the name of a new subscriber
+   * @param priority the priority of the message over the other messages queued
+   * @param policy the policy building the message announcing the items
+   * @return a future completing once the message is posted, or exceptionally if it could not be
+   */
+  public CompletableFuture<Void> queueCoalescingTextMessageToLiveChat(String liveChatId,
+      String coalescingKey, String item, ChatPriority priority, ChatCoalescingPolicy policy) {
+    return chatOutbox.queueCoalescing(liveChatId, coalescingKey, item, priority, policy);
+  }
 
-    request.execute();
+  /** Returns the outbox of the messages queued for live chats. */
+  public ChatOutbox getChatOutbox() {
+    return chatOutbox;
+  }
+
+  /**
+   * Posts the given text message to live chat with the provided id, waiting for YouTube. Prefer
+   * {@link #queueTextMessageToLiveChat(String, String, ChatPriority)}, which does not wait and
+   * respects the pace of the chat.
+   *
+   * @param liveChatId id of the live chat where to post the message
+   * @param message the message to post
+   * @throws IOException if an error occurred while contacting YouTube
+   */
+  public void postTextMessageToLiveChat(String liveChatId, String message) throws IOException {
+    youTubeApi.insertLiveChatTextMessage(liveChatId, message);
   }
 
   private boolean shouldIgnorePersistentBroadcasts() {
@@ -175,13 +278,31 @@ public class YouTubeHelper {
         .equalsIgnoreCase(properties.get(MightyProperty.IGNORE_PERSISTENT_BROADCASTS));
   }
 
-  private List<LiveBroadcast> getActiveBroadcasts(List<LiveBroadcast> liveBroadcasts) {
-    List<LiveBroadcast> activeBroadcasts = new ArrayList<>();
-    for (LiveBroadcast liveBroadcast : liveBroadcasts) {
-      if (BROADCAST_ACTIVE_LIFE_CYCLES.contains(liveBroadcast.getStatus().getLifeCycleStatus())) {
+  private void updateBroadcastState(List<BroadcastInfo> activeBroadcasts) {
+    BroadcastState newState = BroadcastState.IDLE;
+    for (BroadcastInfo activeBroadcast : activeBroadcasts) {
+      if (BROADCAST_LIVE_LIFE_CYCLES.contains(activeBroadcast.getLifeCycleStatus())) {
+        newState = BroadcastState.LIVE;
+      }
+    }
+
+    BroadcastState previousState = broadcastState;
+    if (newState != previousState) {
+      broadcastState = newState;
+      logger.info("Broadcast state changed from {} to {}", previousState, newState);
+      for (BroadcastStateListener listener : broadcastStateListeners) {
+        listener.onBroadcastStateChanged(previousState, newState);
+      }
+    }
+  }
+
+  private List<BroadcastInfo> getActiveBroadcasts(List<BroadcastInfo> liveBroadcasts) {
+    ImmutableList.Builder<BroadcastInfo> activeBroadcasts = ImmutableList.builder();
+    for (BroadcastInfo liveBroadcast : liveBroadcasts) {
+      if (BROADCAST_ACTIVE_LIFE_CYCLES.contains(liveBroadcast.getLifeCycleStatus())) {
         activeBroadcasts.add(liveBroadcast);
       }
     }
-    return activeBroadcasts;
+    return activeBroadcasts.build();
   }
 }
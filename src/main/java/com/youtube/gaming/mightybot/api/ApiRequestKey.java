@@ -0,0 +1,72 @@
+package com.youtube.gaming.mightybot.api;
+
+import java.util.List;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Identifies a read request to the YouTube Data API: the resource and method (e.g.
+ * {@code "videos.list"}), the requested parts and the requested ids. Requests that don't select
+ * resources by id use the parameters that select them instead, e.g.
+ * {@code "broadcastStatus=active"}. Two requests with the same key return the same data.
+ */
+public final class ApiRequestKey {
+  private final String endpoint;
+  private final String parts;
+  private final List<String> ids;
+
+  /**
+   * Creates a new key.
+   *
+   * @param endpoint the resource and method, e.g. {@code "videos.list"}
+   * @param parts the requested parts, e.g. {@code "statistics"}
+   * @param ids the requested ids, in the order they are sent
+   */
+  public ApiRequestKey(String endpoint, String parts, List<String> ids) {
+    this.endpoint = Preconditions.checkNotNull(endpoint);
+    this.parts = Preconditions.checkNotNull(parts);
+    this.ids = ImmutableList.copyOf(ids);
+  }
+
+  /** Returns the resource and method of the request, e.g. {@code "videos.list"}. */
+  public String getEndpoint() {
+    return endpoint;
+  }
+
+  /** Returns the requested parts. */
+  public String getParts() {
+    return parts;
+  }
+
+  /** Returns the requested ids. */
+  public List<String> getIds() {
+    return ids;
+  }
+
+  /** Returns the requested ids joined with commas, as expected by the {@code id} parameter. */
+  public String getJoinedIds() {
+    return Joiner.on(',').join(ids);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (!(obj instanceof ApiRequestKey)) {
+      return false;
+    }
+    ApiRequestKey other = (ApiRequestKey) obj;
+    return endpoint.equals(other.endpoint) && parts.equals(other.parts) && ids.equals(other.ids);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hashCode(endpoint, parts, ids);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s(part=%s, id=%s)", endpoint, parts, getJoinedIds());
+  }
+}
@@ -0,0 +1,24 @@
+package com.youtube.gaming.mightybot.api;
+
+import com.google.api.client.http.HttpHeaders;
+
+/** A parsed response of the YouTube Data API along with its HTTP headers. */
+final class ApiResponse<T> {
+  private final T value;
+  private final HttpHeaders headers;
+
+  ApiResponse(T value, HttpHeaders headers) {
+    this.value = value;
+    this.headers = headers;
+  }
+
+  /** Returns the parsed response. */
+  T getValue() {
+    return value;
+  }
+
+  /** Returns the HTTP headers of the response. */
+  HttpHeaders getHeaders() {
+    return headers;
+  }
+}
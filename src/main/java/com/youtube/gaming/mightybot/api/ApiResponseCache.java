@@ -0,0 +1,190 @@
+package com.youtube.gaming.mightybot.api;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Caches the resources read from the YouTube Data API for a short time, so that several modules
+ * reading the same resource within that time only cost one API call. Each endpoint has its own time
+ * to live and the number of resources kept per endpoint is bounded, least recently used resources
+ * being evicted first.
+ *
+ * <p>
+ * Resources are cached per id, so that requests for overlapping or reordered lists of ids share
+ * the resources already read, and only the missing ids are requested from YouTube, in a single
+ * call. Ids that YouTube doesn't know are cached too. Concurrent requests for the same id wait for
+ * a single call.
+ *
+ * <p>
+ * This class is thread-safe.
+ */
+public class ApiResponseCache {
+  private final ImmutableMap<String, Cache<ApiRequestKey, Optional<?>>> caches;
+  /** Ids being loaded, and the future resource of each. */
+  private final ConcurrentMap<ApiRequestKey, CompletableFuture<Optional<?>>> inFlight =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Creates a new cache.
+   *
+   * @param timeToLiveMillisByEndpoint how long resources are kept for each endpoint, e.g.
+   *        {@code "videos.list"}; resources of other endpoints are not cached
+   * @param maximumSizePerEndpoint maximum number of resources kept for each endpoint
+   */
+  public ApiResponseCache(Map<String, Long> timeToLiveMillisByEndpoint,
+      long maximumSizePerEndpoint) {
+    ImmutableMap.Builder<String, Cache<ApiRequestKey, Optional<?>>> caches =
+        ImmutableMap.builder();
+    for (Map.Entry<String, Long> timeToLive : timeToLiveMillisByEndpoint.entrySet()) {
+      caches.put(timeToLive.getKey(), CacheBuilder.newBuilder()
+          .expireAfterWrite(timeToLive.getValue(), TimeUnit.MILLISECONDS)
+          .maximumSize(maximumSizePerEndpoint)
+          .recordStats()
+          .build());
+    }
+    this.caches = caches.build();
+  }
+
+  /**
+   * Returns the resources with the given ids, reading the ones that are not cached with the given
+   * loader.
+   *
+   * @param endpoint the endpoint reading the resources, e.g. {@code "videos.list"}
+   * @param parts the parts of the resources that are read
+   * @param ids the ids of the resources
+   * @param idOf returns the id of a resource
+   * @param loader reads the resources with the ids that are not cached
+   * @return the resources that were found, in the order of their ids, which must not be modified
+   * @throws IOException if the loader fails
+   */
+  public <T> List<T> getAll(String endpoint, String parts, List<String> ids,
+      Function<? super T, String> idOf, Loader<T> loader) throws IOException {
+    Set<String> distinctIds = new LinkedHashSet<>(ids);
+    Cache<ApiRequestKey, Optional<?>> cache = caches.get(endpoint);
+    if (cache == null) {
+      return distinctIds.isEmpty() ? ImmutableList.of()
+          : loader.load(ImmutableList.copyOf(distinctIds));
+    }
+
+    Map<String, Optional<?>> resources = new HashMap<>();
+    Map<String, CompletableFuture<Optional<?>>> claimed = new LinkedHashMap<>();
+    Map<String, CompletableFuture<Optional<?>>> awaited = new HashMap<>();
+    for (String id : distinctIds) {
+      ApiRequestKey key = getKey(endpoint, parts, id);
+      Optional<?> cached = cache.getIfPresent(key);
+      if (cached != null) {
+        resources.put(id, cached);
+        continue;
+      }
+      CompletableFuture<Optional<?>> load = new CompletableFuture<>();
+      CompletableFuture<Optional<?>> otherLoad = inFlight.putIfAbsent(key, load);
+      if (otherLoad == null) {
+        claimed.put(id, load);
+      } else {
+        awaited.put(id, otherLoad);
+      }
+    }
+
+    if (!claimed.isEmpty()) {
+      resources.putAll(load(cache, endpoint, parts, claimed, idOf, loader));
+    }
+    for (Map.Entry<String, CompletableFuture<Optional<?>>> load : awaited.entrySet()) {
+      resources.put(load.getKey(), await(load.getValue()));
+    }
+
+    ImmutableList.Builder<T> found = ImmutableList.builder();
+    for (String id : distinctIds) {
+      @SuppressWarnings("unchecked")
+      Optional<T> resource = (Optional<T>) resources.get(id);
+      if (resource.isPresent()) {
+        found.add(resource.get());
+      }
+    }
+    return found.build();
+  }
+
+  /** Reads the given ids in a single call, caches them and completes their loads. */
+  private <T> Map<String, Optional<?>> load(Cache<ApiRequestKey, Optional<?>> cache,
+      String endpoint, String parts, Map<String, CompletableFuture<Optional<?>>> claimed,
+      Function<? super T, String> idOf, Loader<T> loader) throws IOException {
+    Map<String, Optional<?>> loaded = new HashMap<>();
+    try {
+      for (T resource : loader.load(ImmutableList.copyOf(claimed.keySet()))) {
+        loaded.put(idOf.apply(resource), Optional.of(resource));
+      }
+      for (Map.Entry<String, CompletableFuture<Optional<?>>> load : claimed.entrySet()) {
+        Optional<?> resource = loaded.computeIfAbsent(load.getKey(), id -> Optional.absent());
+        cache.put(getKey(endpoint, parts, load.getKey()), resource);
+        load.getValue().complete(resource);
+      }
+      return loaded;
+    } catch (Throwable e) {
+      // Also for an Error, or requests waiting for these ids would never return
+      for (CompletableFuture<Optional<?>> load : claimed.values()) {
+        load.completeExceptionally(e);
+      }
+      throw e;
+    } finally {
+      for (Map.Entry<String, CompletableFuture<Optional<?>>> load : claimed.entrySet()) {
+        inFlight.remove(getKey(endpoint, parts, load.getKey()), load.getValue());
+      }
+    }
+  }
+
+  private static ApiRequestKey getKey(String endpoint, String parts, String id) {
+    return new ApiRequestKey(endpoint, parts, ImmutableList.of(id));
+  }
+
+  private static Optional<?> await(CompletableFuture<Optional<?>> load) throws IOException {
+    try {
+      return load.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for another request");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  /** Returns the hit and miss statistics of each cached endpoint, counted per id. */
+  public ImmutableMap<String, CacheStats> getStats() {
+    ImmutableMap.Builder<String, CacheStats> stats = ImmutableMap.builder();
+    for (Map.Entry<String, Cache<ApiRequestKey, Optional<?>>> cache : caches.entrySet()) {
+      stats.put(cache.getKey(), cache.getValue().stats());
+    }
+    return stats.build();
+  }
+
+  /** Reads resources from YouTube. */
+  public interface Loader<T> {
+    /**
+     * Reads the resources with the given ids in a single call.
+     *
+     * @return the resources that were found, in any order
+     * @throws IOException if an error occurred while contacting YouTube
+     */
+    List<T> load(List<String> ids) throws IOException;
+  }
+}
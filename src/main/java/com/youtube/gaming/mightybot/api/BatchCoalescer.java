@@ -0,0 +1,284 @@
+package com.youtube.gaming.mightybot.api;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.api.client.googleapis.batch.BatchCallback;
+import com.google.api.client.googleapis.batch.BatchRequest;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.googleapis.services.json.AbstractGoogleJsonClientRequest;
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpUnsuccessfulResponseHandler;
+import com.google.api.services.youtube.YouTube;
+import com.google.common.base.Preconditions;
+
+/**
+ * Gathers the YouTube Data API requests of modules that run at the same time and sends them as a
+ * single HTTP batch request, so that a tick of the scheduler costs about one round trip instead of
+ * one per module.
+ *
+ * <p>
+ * Modules {@link #enter() enter} the coalescer on the thread of their run once it starts, and
+ * {@link #leave() leave} it when the run is complete, so that modules still waiting for a thread
+ * are not waited for. A request is held until every module running is waiting for a request of its
+ * own, or until the batch window expires, whichever comes first. When only one module is running,
+ * its requests are executed directly. Requests made by other threads, such as the chat pollers or
+ * asynchronous calls, are executed directly too.
+ *
+ * <p>
+ * A batch is sent by the thread of the module that completed it, or whose window expired, so that
+ * the batch is aborted along with that module's run if it times out, and batches don't wait for
+ * each other.
+ *
+ * <p>
+ * Batched requests are charged the same quota as individual requests. This class is thread-safe.
+ */
+public class BatchCoalescer {
+  private static final Logger logger = LoggerFactory.getLogger(BatchCoalescer.class);
+
+  /** Path of the batch endpoint of the YouTube Data API, relative to the root URL. */
+  private static final String BATCH_PATH = "batch/youtube/v3";
+
+  private final YouTube youTube;
+  private final long windowMillis;
+  private final int maxParticipants;
+  /** Whether the current thread runs a module that {@link #enter() entered}. */
+  private final ThreadLocal<Boolean> inModuleRun = ThreadLocal.withInitial(() -> false);
+
+  private final Object lock = new Object();
+  /** Guarded by {@link #lock}, like the fields below. */
+  private List<PendingRequest<?>> pending = new ArrayList<>();
+  private int participants;
+  /** When the window of the first pending request expires, in {@link System#nanoTime()}. */
+  private long windowDeadlineNanos;
+
+  /**
+   * Creates a new coalescer.
+   *
+   * @param youTube the API used to send batch requests
+   * @param windowMillis maximum number of milliseconds a request is held while waiting for the
+   *        requests of other modules, {@code 0} to never batch requests
+   * @param maxParticipants maximum number of modules that can run at the same time, e.g. the size
+   *        of the pool running them; the requests of modules entering beyond it are not batched
+   */
+  public BatchCoalescer(YouTube youTube, long windowMillis, int maxParticipants) {
+    Preconditions.checkArgument(windowMillis >= 0, "Window can't be negative");
+    Preconditions.checkArgument(maxParticipants > 0, "Max participants must be positive");
+    this.youTube = Preconditions.checkNotNull(youTube);
+    this.windowMillis = windowMillis;
+    this.maxParticipants = maxParticipants;
+  }
+
+  /**
+   * Declares that the current thread started the run of a module, so that its requests can be
+   * batched with the ones of the other modules running.
+   */
+  public void enter() {
+    synchronized (lock) {
+      if (participants >= maxParticipants) {
+        return;
+      }
+      participants++;
+    }
+    inModuleRun.set(true);
+  }
+
+  /**
+   * Declares that the module run by the current thread completed its run. The requests of the
+   * modules still running are sent if they were only waiting for this one.
+   */
+  public void leave() {
+    if (!inModuleRun.get()) {
+      return;
+    }
+    inModuleRun.remove();
+    synchronized (lock) {
+      participants--;
+      lock.notifyAll();
+    }
+  }
+
+  /**
+   * Executes the given request, possibly in a batch with the requests of other modules. Blocks
+   * until the response is received.
+   *
+   * @param request the request to execute
+   * @return the response and its headers
+   * @throws IOException if an error occurred while contacting YouTube, in particular an
+   *         {@link com.google.api.client.http.HttpResponseException HttpResponseException} if
+   *         YouTube answered with an unsuccessful status code
+   */
+  <T> ApiResponse<T> execute(AbstractGoogleJsonClientRequest<T> request) throws IOException {
+    PendingRequest<T> pendingRequest = new PendingRequest<>(request);
+    List<PendingRequest<?>> ready;
+    synchronized (lock) {
+      if (windowMillis == 0 || !inModuleRun.get() || (pending.isEmpty() && participants <= 1)) {
+        // Nobody to batch with
+        ready = null;
+      } else {
+        pending.add(pendingRequest);
+        if (pending.size() == 1) {
+          windowDeadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        }
+        lock.notifyAll();
+        ready = awaitBatch(pendingRequest);
+      }
+    }
+    if (ready == null) {
+      return executeDirectly(request);
+    }
+    flush(ready);
+    return pendingRequest.await();
+  }
+
+  /**
+   * Waits until the given pending request is taken in a batch. Must be called while holding the
+   * lock.
+   *
+   * @return the batch if the current thread must send it, because there is a pending request for
+   *         each running module or the window expired, or an empty list if another thread sends it
+   * @throws InterruptedIOException if the thread is interrupted before the request is taken, in
+   *         which case the request is withdrawn
+   */
+  private List<PendingRequest<?>> awaitBatch(PendingRequest<?> request)
+      throws InterruptedIOException {
+    while (!request.taken) {
+      long remainingNanos = windowDeadlineNanos - System.nanoTime();
+      if (pending.size() >= participants || remainingNanos <= 0) {
+        return takePending();
+      }
+      try {
+        TimeUnit.NANOSECONDS.timedWait(lock, remainingNanos);
+      } catch (InterruptedException e) {
+        if (!request.taken) {
+          pending.remove(request);
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted while waiting for a batch");
+        }
+        // Already sent by another thread, await() sees the interrupt
+        Thread.currentThread().interrupt();
+      }
+    }
+    return new ArrayList<>();
+  }
+
+  /** Removes and returns the pending requests. Must be called while holding the lock. */
+  private List<PendingRequest<?>> takePending() {
+    List<PendingRequest<?>> taken = pending;
+    pending = new ArrayList<>();
+    for (PendingRequest<?> request : taken) {
+      request.taken = true;
+    }
+    return taken;
+  }
+
+  /** Sends the given requests, as a batch if there are several of them. */
+  private void flush(List<PendingRequest<?>> requests) {
+    if (requests.isEmpty()) {
+      return;
+    }
+    if (requests.size() == 1) {
+      requests.get(0).executeDirectly();
+      return;
+    }
+
+    logger.debug("Sending {} requests in a batch", requests.size());
+    try {
+      BatchRequest batch = youTube.batch();
+      batch.setBatchUrl(new GenericUrl(youTube.getRootUrl() + BATCH_PATH));
+      for (PendingRequest<?> request : requests) {
+        request.queue(batch);
+      }
+      batch.execute();
+    } catch (IOException | RuntimeException e) {
+      for (PendingRequest<?> request : requests) {
+        request.result.completeExceptionally(e);
+      }
+    }
+    for (PendingRequest<?> request : requests) {
+      // Should never happen, BatchRequest calls back every queued request
+      request.result.completeExceptionally(new IOException("No response in batch"));
+    }
+  }
+
+  private static <T> ApiResponse<T> executeDirectly(AbstractGoogleJsonClientRequest<T> request)
+      throws IOException {
+    T value = request.execute();
+    return new ApiResponse<>(value, request.getLastResponseHeaders());
+  }
+
+  /** A request waiting to be sent and its future response. */
+  private static class PendingRequest<T> {
+    private final AbstractGoogleJsonClientRequest<T> request;
+    private final CompletableFuture<ApiResponse<T>> result = new CompletableFuture<>();
+    /** The error of the request, set when YouTube answered with an unsuccessful status code. */
+    private volatile IOException failure;
+    /** Whether the request was taken out of the pending requests to be sent. Guarded by the lock. */
+    private boolean taken;
+
+    PendingRequest(AbstractGoogleJsonClientRequest<T> request) {
+      this.request = request;
+    }
+
+    void executeDirectly() {
+      try {
+        result.complete(BatchCoalescer.executeDirectly(request));
+      } catch (IOException | RuntimeException e) {
+        result.completeExceptionally(e);
+      }
+    }
+
+    void queue(BatchRequest batch) throws IOException {
+      HttpRequest httpRequest = request.buildHttpRequest();
+      // BatchCallback does not tell the status code of failures, so it is captured here. Errors
+      // are not parsed by the batch either, since responses like 304 Not Modified have no body.
+      HttpUnsuccessfulResponseHandler delegate = httpRequest.getUnsuccessfulResponseHandler();
+      httpRequest.setUnsuccessfulResponseHandler((unsuccessfulRequest, response, supportsRetry) -> {
+        if (delegate != null
+            && delegate.handleResponse(unsuccessfulRequest, response, supportsRetry)) {
+          return true;
+        }
+        failure = GoogleJsonResponseException.from(
+            request.getAbstractGoogleClient().getJsonFactory(), response);
+        return false;
+      });
+      batch.queue(httpRequest, request.getResponseClass(), Void.class,
+          new BatchCallback<T, Void>() {
+            @Override
+            public void onSuccess(T value, HttpHeaders responseHeaders) {
+              result.complete(new ApiResponse<>(value, responseHeaders));
+            }
+
+            @Override
+            public void onFailure(Void error, HttpHeaders responseHeaders) {
+              result.completeExceptionally(
+                  failure != null ? failure : new IOException("Batched request failed"));
+            }
+          });
+    }
+
+    ApiResponse<T> await() throws IOException {
+      try {
+        return result.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for a batched request");
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof IOException) {
+          throw (IOException) e.getCause();
+        }
+        throw new IOException(e.getCause());
+      }
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package com.youtube.gaming.mightybot.api;
+
+import javax.annotation.Nullable;
+
+import com.google.api.client.util.DateTime;
+import com.google.api.services.youtube.model.LiveBroadcast;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+
+/**
+ * The properties of a live broadcast read by the bot: its id, life cycle status, actual start
+ * time, title and live chat id. Instances are immutable.
+ */
+public final class BroadcastInfo {
+  /** Parts to request to build a {@link BroadcastInfo}. */
+  static final String PARTS = "snippet,status";
+  /** Fields of a list response to request to build {@link BroadcastInfo}s. */
+  static final String FIELDS =
+      "items(id,snippet(title,actualStartTime,liveChatId),status/lifeCycleStatus)";
+
+  private final String id;
+  private final String lifeCycleStatus;
+  private final long actualStartTimeMillis;
+  private final String title;
+  @Nullable
+  private final String liveChatId;
+
+  public BroadcastInfo(String id, String lifeCycleStatus, long actualStartTimeMillis,
+      String title, @Nullable String liveChatId) {
+    this.id = Preconditions.checkNotNull(id);
+    this.lifeCycleStatus = Preconditions.checkNotNull(lifeCycleStatus);
+    this.actualStartTimeMillis = actualStartTimeMillis;
+    this.title = Preconditions.checkNotNull(title);
+    this.liveChatId = liveChatId;
+  }
+
+  /** Creates the projection of a broadcast requested with {@link #PARTS} and {@link #FIELDS}. */
+  static BroadcastInfo of(LiveBroadcast broadcast) {
+    DateTime actualStartTime = broadcast.getSnippet().getActualStartTime();
+    return new BroadcastInfo(broadcast.getId(), broadcast.getStatus().getLifeCycleStatus(),
+        actualStartTime == null ? 0 : actualStartTime.getValue(),
+        MoreObjects.firstNonNull(broadcast.getSnippet().getTitle(), ""),
+        broadcast.getSnippet().getLiveChatId());
+  }
+
+  /** Returns the id of the broadcast, which is also the id of its video. */
+  public String getId() {
+    return id;
+  }
+
+  /** Returns the life cycle status of the broadcast, e.g. {@code "live"}. */
+  public String getLifeCycleStatus() {
+    return lifeCycleStatus;
+  }
+
+  /**
+   * Returns when the broadcast actually started in milliseconds since the epoch, or 0 if it did
+   * not start yet.
+   */
+  public long getActualStartTimeMillis() {
+    return actualStartTimeMillis;
+  }
+
+  /** Returns the title of the broadcast. */
+  public String getTitle() {
+    return title;
+  }
+
+  /** Returns the id of the live chat of the broadcast, or {@code null} if it has none. */
+  @Nullable
+  public String getLiveChatId() {
+    return liveChatId;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("id", id)
+        .add("lifeCycleStatus", lifeCycleStatus)
+        .add("actualStartTimeMillis", actualStartTimeMillis)
+        .add("title", title)
+        .add("liveChatId", liveChatId)
+        .toString();
+  }
+}
@@ -0,0 +1,51 @@
+package com.youtube.gaming.mightybot.api;
+
+import java.math.BigInteger;
+
+import com.google.api.services.youtube.model.Channel;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+
+/**
+ * The statistics of a channel read by the bot: its id and subscriber count. Instances are
+ * immutable.
+ */
+public final class ChannelStatistics {
+  /** Parts to request to build a {@link ChannelStatistics}. */
+  static final String PARTS = "statistics";
+  /** Fields of a list response to request to build {@link ChannelStatistics}. */
+  static final String FIELDS = "items(id,statistics/subscriberCount)";
+
+  private final String id;
+  private final long subscriberCount;
+
+  public ChannelStatistics(String id, long subscriberCount) {
+    this.id = Preconditions.checkNotNull(id);
+    this.subscriberCount = subscriberCount;
+  }
+
+  /** Creates the projection of a channel requested with {@link #PARTS} and {@link #FIELDS}. */
+  static ChannelStatistics of(Channel channel) {
+    BigInteger subscriberCount = channel.getStatistics().getSubscriberCount();
+    return new ChannelStatistics(channel.getId(),
+        subscriberCount == null ? 0 : subscriberCount.longValue());
+  }
+
+  /** Returns the id of the channel. */
+  public String getId() {
+    return id;
+  }
+
+  /** Returns the subscriber count of the channel, or 0 if it is hidden. */
+  public long getSubscriberCount() {
+    return subscriberCount;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("id", id)
+        .add("subscriberCount", subscriberCount)
+        .toString();
+  }
+}
@@ -0,0 +1,108 @@
+package com.youtube.gaming.mightybot.api;
+
+import javax.annotation.Nullable;
+
+import com.google.api.client.util.DateTime;
+import com.google.api.services.youtube.model.LiveChatMessage;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+
+/**
+ * A live chat message read by the bot: its id, live chat id, type, author, text and publication
+ * time. Instances are immutable.
+ */
+public final class ChatMessage {
+  /** Parts to request to build a {@link ChatMessage}. */
+  static final String PARTS = "snippet,authorDetails";
+  /** Fields of a list response to request to build a {@link ChatMessagePage}. */
+  static final String FIELDS = "nextPageToken,pollingIntervalMillis,offlineAt,"
+      + "items(id,snippet(type,liveChatId,publishedAt,displayMessage),"
+      + "authorDetails(channelId,displayName))";
+
+  private final String id;
+  private final String liveChatId;
+  private final String type;
+  @Nullable
+  private final String authorChannelId;
+  private final String authorName;
+  private final String text;
+  private final long publishedAtMillis;
+
+  public ChatMessage(String id, String liveChatId, String type, @Nullable String authorChannelId,
+      String authorName, String text, long publishedAtMillis) {
+    this.id = Preconditions.checkNotNull(id);
+    this.liveChatId = Preconditions.checkNotNull(liveChatId);
+    this.type = Preconditions.checkNotNull(type);
+    this.authorChannelId = authorChannelId;
+    this.authorName = Preconditions.checkNotNull(authorName);
+    this.text = Preconditions.checkNotNull(text);
+    this.publishedAtMillis = publishedAtMillis;
+  }
+
+  /**
+   * Creates the projection of a message of the given live chat requested with {@link #PARTS} and
+   * {@link #FIELDS}.
+   */
+  static ChatMessage of(String liveChatId, LiveChatMessage message) {
+    DateTime publishedAt = message.getSnippet().getPublishedAt();
+    String authorChannelId = null;
+    String authorName = "";
+    if (message.getAuthorDetails() != null) {
+      authorChannelId = message.getAuthorDetails().getChannelId();
+      authorName = MoreObjects.firstNonNull(message.getAuthorDetails().getDisplayName(), "");
+    }
+    return new ChatMessage(message.getId(), liveChatId,
+        MoreObjects.firstNonNull(message.getSnippet().getType(), ""), authorChannelId, authorName,
+        MoreObjects.firstNonNull(message.getSnippet().getDisplayMessage(), ""),
+        publishedAt == null ? 0 : publishedAt.getValue());
+  }
+
+  /** Returns the id of the message. */
+  public String getId() {
+    return id;
+  }
+
+  /** Returns the id of the live chat in which the message was posted. */
+  public String getLiveChatId() {
+    return liveChatId;
+  }
+
+  /** Returns the type of the message, e.g. {@code "textMessageEvent"}. */
+  public String getType() {
+    return type;
+  }
+
+  /** Returns the channel id of the author of the message, or {@code null} if unknown. */
+  @Nullable
+  public String getAuthorChannelId() {
+    return authorChannelId;
+  }
+
+  /** Returns the display name of the author of the message, or an empty string if unknown. */
+  public String getAuthorName() {
+    return authorName;
+  }
+
+  /** Returns the text of the message as displayed in chat. */
+  public String getText() {
+    return text;
+  }
+
+  /** Returns when the message was posted in milliseconds since the epoch, or 0 if unknown. */
+  public long getPublishedAtMillis() {
+    return publishedAtMillis;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("id", id)
+        .add("liveChatId", liveChatId)
+        .add("type", type)
+        .add("authorChannelId", authorChannelId)
+        .add("authorName", authorName)
+        .add("text", text)
+        .add("publishedAtMillis", publishedAtMillis)
+        .toString();
+  }
+}
@@ -0,0 +1,80 @@
+package com.youtube.gaming.mightybot.api;
+
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import com.google.api.services.youtube.model.LiveChatMessage;
+import com.google.api.services.youtube.model.LiveChatMessageListResponse;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * A page of live chat messages, along with where and when to read the next one. Instances are
+ * immutable.
+ */
+public final class ChatMessagePage {
+  private final List<ChatMessage> messages;
+  @Nullable
+  private final String nextPageToken;
+  private final long pollingIntervalMillis;
+  private final boolean offline;
+
+  public ChatMessagePage(List<ChatMessage> messages, @Nullable String nextPageToken,
+      long pollingIntervalMillis, boolean offline) {
+    this.messages = ImmutableList.copyOf(messages);
+    this.nextPageToken = nextPageToken;
+    this.pollingIntervalMillis = pollingIntervalMillis;
+    this.offline = offline;
+  }
+
+  /** Creates the page of a response requested with {@link ChatMessage#FIELDS}. */
+  static ChatMessagePage of(String liveChatId, LiveChatMessageListResponse response) {
+    Preconditions.checkNotNull(liveChatId);
+    ImmutableList.Builder<ChatMessage> messages = ImmutableList.builder();
+    if (response.getItems() != null) {
+      for (LiveChatMessage message : response.getItems()) {
+        messages.add(ChatMessage.of(liveChatId, message));
+      }
+    }
+    Long pollingIntervalMillis = response.getPollingIntervalMillis();
+    return new ChatMessagePage(messages.build(), response.getNextPageToken(),
+        pollingIntervalMillis == null ? 0 : pollingIntervalMillis,
+        response.getOfflineAt() != null);
+  }
+
+  /** Returns the messages of the page, oldest first. */
+  public List<ChatMessage> getMessages() {
+    return messages;
+  }
+
+  /** Returns the token to read the messages posted after this page, or {@code null} if none. */
+  @Nullable
+  public String getNextPageToken() {
+    return nextPageToken;
+  }
+
+  /**
+   * Returns how long YouTube asks to wait before reading the next page in milliseconds, or 0 if it
+   * did not say.
+   */
+  public long getPollingIntervalMillis() {
+    return pollingIntervalMillis;
+  }
+
+  /** Returns whether the live chat went offline, in which case it has no more messages. */
+  public boolean isOffline() {
+    return offline;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("messages", messages.size())
+        .add("nextPageToken", nextPageToken)
+        .add("pollingIntervalMillis", pollingIntervalMillis)
+        .add("offline", offline)
+        .toString();
+  }
+}
@@ -0,0 +1,119 @@
+package com.youtube.gaming.mightybot.api;
+
+import java.time.Clock;
+import java.time.Instant;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Stops calling an endpoint of YouTube for a while after several consecutive failures, so that
+ * modules fail fast instead of waiting for timeouts while YouTube is degraded.
+ *
+ * <p>
+ * The breaker is closed while calls succeed. After {@code failureThreshold} consecutive failures,
+ * it opens and rejects all calls for {@code openMillis}. Then a single call is let through: if it
+ * succeeds, the breaker closes, otherwise it opens again for twice as long, up to
+ * {@link #MAX_OPEN_MILLIS}.
+ *
+ * <p>
+ * This class is thread-safe.
+ */
+class CircuitBreaker {
+  private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+  /** Maximum time during which the breaker stays open. */
+  static final long MAX_OPEN_MILLIS = 300000;
+
+  private enum State {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  private final String endpoint;
+  private final Clock clock;
+  private final int failureThreshold;
+  private final long openMillis;
+
+  private State state = State.CLOSED;
+  private int consecutiveFailures;
+  private long currentOpenMillis;
+  private long openUntilMillis;
+  private long probeStartedMillis;
+  private String lastFailure;
+
+  /**
+   * Creates a new closed breaker.
+   *
+   * @param endpoint the endpoint protected by the breaker, for logging
+   * @param clock the clock used to time the open state
+   * @param failureThreshold number of consecutive failures after which the breaker opens
+   * @param openMillis initial time during which the breaker stays open
+   */
+  CircuitBreaker(String endpoint, Clock clock, int failureThreshold, long openMillis) {
+    Preconditions.checkArgument(failureThreshold > 0, "Failure threshold must be positive");
+    this.endpoint = Preconditions.checkNotNull(endpoint);
+    this.clock = Preconditions.checkNotNull(clock);
+    this.failureThreshold = failureThreshold;
+    this.openMillis = openMillis;
+    this.currentOpenMillis = openMillis;
+  }
+
+  /**
+   * Checks whether a call can be made now.
+   *
+   * @throws CircuitOpenException if the breaker is open, or half-open and already probing
+   */
+  synchronized void checkCallAllowed() throws CircuitOpenException {
+    switch (state) {
+      case CLOSED:
+        return;
+      case OPEN:
+        if (clock.millis() >= openUntilMillis) {
+          // Let this call probe the endpoint
+          state = State.HALF_OPEN;
+          probeStartedMillis = clock.millis();
+          return;
+        }
+        break;
+      case HALF_OPEN:
+        if (clock.millis() - probeStartedMillis >= currentOpenMillis) {
+          // The probe never completed, e.g. because its module was cancelled
+          probeStartedMillis = clock.millis();
+          return;
+        }
+        break;
+    }
+    throw new CircuitOpenException(endpoint, Instant.ofEpochMilli(openUntilMillis), lastFailure);
+  }
+
+  /** Records that a call reached YouTube and got an answer that is not a server error. */
+  synchronized void recordSuccess() {
+    if (state != State.CLOSED) {
+      logger.info("YouTube is answering calls to {} again", endpoint);
+    }
+    state = State.CLOSED;
+    consecutiveFailures = 0;
+    currentOpenMillis = openMillis;
+  }
+
+  /** Records that a call failed because of YouTube or of the network. */
+  synchronized void recordFailure(String failure) {
+    lastFailure = failure;
+    consecutiveFailures++;
+    if (state == State.HALF_OPEN) {
+      currentOpenMillis = Math.min(currentOpenMillis * 2, MAX_OPEN_MILLIS);
+      open();
+    } else if (state == State.CLOSED && consecutiveFailures >= failureThreshold) {
+      open();
+    }
+  }
+
+  private void open() {
+    state = State.OPEN;
+    openUntilMillis = clock.millis() + currentOpenMillis;
+    logger.warn("{} consecutive failures calling {}, not calling it for {} ms (last failure: {})",
+        consecutiveFailures, endpoint, currentOpenMillis, lastFailure);
+  }
+}
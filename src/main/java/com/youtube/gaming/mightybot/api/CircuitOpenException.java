@@ -0,0 +1,31 @@
+package com.youtube.gaming.mightybot.api;
+
+import java.io.IOException;
+import java.time.Instant;
+
+/**
+ * Thrown instead of sending a request to YouTube while the endpoint it targets is considered
+ * unavailable, see {@link CircuitBreaker}.
+ */
+public class CircuitOpenException extends IOException {
+  private static final long serialVersionUID = 1L;
+
+  private final String endpoint;
+  private final Instant retryAt;
+
+  public CircuitOpenException(String endpoint, Instant retryAt, String reason) {
+    super(String.format("Not calling %s until %s: %s", endpoint, retryAt, reason));
+    this.endpoint = endpoint;
+    this.retryAt = retryAt;
+  }
+
+  /** Returns the endpoint that was not called, e.g. {@code "videos.list"}. */
+  public String getEndpoint() {
+    return endpoint;
+  }
+
+  /** Returns when the endpoint will be called again. */
+  public Instant getRetryAt() {
+    return retryAt;
+  }
+}
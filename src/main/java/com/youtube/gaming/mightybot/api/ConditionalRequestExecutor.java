@@ -0,0 +1,148 @@
+package com.youtube.gaming.mightybot.api;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.api.client.googleapis.services.json.AbstractGoogleJsonClientRequest;
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpResponseException;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Executes YouTube Data API read requests conditionally. The ETag of every response is remembered
+ * along with the response. When the same request is executed again, it is sent with an
+ * {@code If-None-Match} header, and if YouTube answers {@code 304 Not Modified}, the remembered
+ * response is returned instead of downloading, parsing and converting it again.
+ *
+ * <p>
+ * This class is thread-safe.
+ */
+public class ConditionalRequestExecutor {
+  private static final Logger logger = LoggerFactory.getLogger(ConditionalRequestExecutor.class);
+
+  /** Number of requests between two logs of the savings. */
+  private static final long LOG_SAVINGS_EVERY = 100;
+
+  private final ResilientRequestExecutor resilientRequestExecutor;
+  private final Cache<ApiRequestKey, TaggedResponse> responses;
+  private final Map<String, Savings> savingsByEndpoint = new ConcurrentHashMap<>();
+  private final AtomicLong requestCount = new AtomicLong();
+
+  /**
+   * Creates a new executor.
+   *
+   * @param resilientRequestExecutor the executor through which requests are sent
+   * @param maximumSize maximum number of responses remembered, least recently used ones being
+   *        forgotten first
+   */
+  public ConditionalRequestExecutor(ResilientRequestExecutor resilientRequestExecutor,
+      long maximumSize) {
+    this.resilientRequestExecutor = Preconditions.checkNotNull(resilientRequestExecutor);
+    this.responses = CacheBuilder.newBuilder().maximumSize(maximumSize).build();
+  }
+
+  /**
+   * Executes the given request, conditionally if a response was already received for the same
+   * key, and converts the response. Only the converted response is remembered.
+   *
+   * @param key the key of the request
+   * @param request the request to execute
+   * @param converter converts the response of YouTube into the returned value
+   * @return the converted response, either fresh or remembered; must not be modified
+   * @throws IOException if an error occurred while contacting YouTube
+   */
+  public <T, R> R execute(ApiRequestKey key, AbstractGoogleJsonClientRequest<T> request,
+      Function<? super T, ? extends R> converter) throws IOException {
+    Savings savings = savingsByEndpoint.computeIfAbsent(key.getEndpoint(), e -> new Savings());
+    TaggedResponse previous = responses.getIfPresent(key);
+    if (previous != null) {
+      request.getRequestHeaders().setIfNoneMatch(previous.etag);
+    }
+
+    ApiResponse<T> response;
+    try {
+      response = resilientRequestExecutor.execute(key.getEndpoint(), request, true);
+    } catch (HttpResponseException e) {
+      if (previous != null && e.getStatusCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+        savings.notModified.incrementAndGet();
+        savings.bytesSaved.addAndGet(previous.contentLength);
+        logSavingsPeriodically();
+        @SuppressWarnings("unchecked")
+        R previousResponse = (R) previous.response;
+        return previousResponse;
+      }
+      throw e;
+    }
+
+    savings.modified.incrementAndGet();
+    R converted = converter.apply(response.getValue());
+    HttpHeaders headers = response.getHeaders();
+    if (headers != null && headers.getETag() != null) {
+      Long contentLength = headers.getContentLength();
+      responses.put(key, new TaggedResponse(headers.getETag(), converted,
+          contentLength == null ? 0 : contentLength));
+    }
+    logSavingsPeriodically();
+    return converted;
+  }
+
+  /**
+   * Returns, for each endpoint, the number of requests answered with a full response, the number
+   * answered with {@code 304 Not Modified} and the number of bytes that did not have to be
+   * downloaded, as a human readable string.
+   */
+  public ImmutableMap<String, String> getSavings() {
+    ImmutableMap.Builder<String, String> savings = ImmutableMap.builder();
+    for (Map.Entry<String, Savings> endpointSavings : savingsByEndpoint.entrySet()) {
+      savings.put(endpointSavings.getKey(), endpointSavings.getValue().toString());
+    }
+    return savings.build();
+  }
+
+  /** Returns the executor through which requests are sent. */
+  ResilientRequestExecutor getResilientRequestExecutor() {
+    return resilientRequestExecutor;
+  }
+
+  private void logSavingsPeriodically() {
+    if (requestCount.incrementAndGet() % LOG_SAVINGS_EVERY == 0) {
+      logger.info("Conditional request savings: {}", getSavings());
+    }
+  }
+
+  /** A converted response and the ETag it was received with. */
+  private static class TaggedResponse {
+    private final String etag;
+    private final Object response;
+    private final long contentLength;
+
+    TaggedResponse(String etag, Object response, long contentLength) {
+      this.etag = etag;
+      this.response = response;
+      this.contentLength = contentLength;
+    }
+  }
+
+  /** Savings of a single endpoint. */
+  private static class Savings {
+    private final AtomicLong modified = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+    private final AtomicLong bytesSaved = new AtomicLong();
+
+    @Override
+    public String toString() {
+      return String.format("%d full, %d not modified, %d bytes saved", modified.get(),
+          notModified.get(), bytesSaved.get());
+    }
+  }
+}
@@ -0,0 +1,395 @@
+package com.youtube.gaming.mightybot.api;
+
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.youtube.gaming.mightybot.util.ObjectStreamUtils;
+
+/**
+ * Keeps track of the YouTube Data API quota consumed by the bot and stretches the intervals of
+ * modules to stay within a daily budget.
+ *
+ * <p>
+ * Every request sent to YouTube is charged its cost in quota units (see {@link #getCost(String)})
+ * to the module running on the current thread. Once the budget of the day is used up, requests are
+ * refused until midnight Pacific Time, when YouTube resets quotas. About once a minute, the budget
+ * measures the recent consumption rate of each module and projects when the quota will run out. If
+ * it would run out before the end of the day, it computes stretch factors for module intervals,
+ * starting with the modules of lowest priority, until the projected consumption fits in the
+ * budget. Consumption is saved to a file at each recomputation and when the bot {@linkplain #save()
+ * stops}, so that it survives restarts of the bot.
+ *
+ * <p>
+ * This class is thread-safe.
+ */
+public class QuotaBudget {
+  private static final Logger logger = LoggerFactory.getLogger(QuotaBudget.class);
+
+  /** Time zone in which YouTube resets quotas. */
+  private static final ZoneId QUOTA_ZONE = ZoneId.of("America/Los_Angeles");
+  /** How often rates, projections and stretch factors are recomputed. */
+  private static final long RECOMPUTE_INTERVAL_MILLIS = 60000;
+  /** Weight of the last measured rate in the smoothed rate of each module. */
+  private static final double RATE_SMOOTHING = 0.5;
+  /** Fraction of the remaining budget the bot aims to consume by the end of the day. */
+  private static final double TARGET_USAGE = 0.95;
+  /** Maximum factor by which the interval of a module can be stretched. */
+  private static final double MAX_STRETCH_FACTOR = 10;
+  /** Name used for requests made outside of a module, e.g. background cache refreshes. */
+  private static final String SHARED_CONSUMER = "(shared)";
+
+  /** Cost in units of each endpoint, as documented by YouTube. */
+  private static final ImmutableMap<String, Integer> COSTS = ImmutableMap.<String, Integer>builder()
+      .put("channels.list", 1)
+      .put("videos.list", 1)
+      .put("liveBroadcasts.list", 1)
+      .put("subscriptions.list", 1)
+      .put("liveChatMessages.list", 5)
+      .put("liveChatMessages.insert", 50)
+      .build();
+  private static final int DEFAULT_READ_COST = 1;
+  private static final int DEFAULT_WRITE_COST = 50;
+
+  private final Clock clock;
+  private final long dailyBudget;
+  private final Path statePath;
+  private final ThreadLocal<String> currentConsumer = new ThreadLocal<>();
+  private final Map<String, Integer> priorities = new ConcurrentHashMap<>();
+
+  // Guarded by this
+  private QuotaState state;
+  private final Map<String, Long> unitsSinceRecompute = new HashMap<>();
+  private final Map<String, Double> ratesPerSecond = new HashMap<>();
+  private long lastRecomputeMillis;
+
+  private final Object saveLock = new Object();
+  /** The most recent consumption saved, guarded by {@link #saveLock}. */
+  @Nullable
+  private QuotaState saved;
+
+  private volatile ImmutableMap<String, Double> stretchFactors = ImmutableMap.of();
+  private volatile Optional<Instant> projectedExhaustion = Optional.absent();
+
+  /**
+   * Creates a new quota budget, restoring the consumption of the current day from the given file
+   * if it exists.
+   *
+   * @param clock the clock of the bot
+   * @param dailyBudget the number of units the bot may consume per day
+   * @param statePath the file in which consumption is saved
+   */
+  public QuotaBudget(Clock clock, long dailyBudget, Path statePath) {
+    this.clock = Preconditions.checkNotNull(clock);
+    this.dailyBudget = dailyBudget;
+    this.statePath = Preconditions.checkNotNull(statePath);
+    this.state = restoreState();
+    this.lastRecomputeMillis = clock.millis();
+  }
+
+  /**
+   * Returns the cost in quota units of a call to the given endpoint, e.g. {@code "videos.list"}.
+   * Unknown endpoints are assumed to cost as much as a typical read or write.
+   */
+  public static int getCost(String endpoint) {
+    Integer cost = COSTS.get(endpoint);
+    if (cost != null) {
+      return cost;
+    }
+    return endpoint.endsWith(".list") ? DEFAULT_READ_COST : DEFAULT_WRITE_COST;
+  }
+
+  /**
+   * Registers a module whose interval can be stretched.
+   *
+   * @param moduleName the name of the module
+   * @param priority the quota priority of the module; modules with the lowest priority are
+   *        stretched first
+   */
+  public void registerModule(String moduleName, int priority) {
+    priorities.put(moduleName, priority);
+  }
+
+  /**
+   * Sets the module to which the requests made by the current thread are charged, or {@code null}
+   * to charge them to no module in particular.
+   */
+  public void setCurrentConsumer(@Nullable String moduleName) {
+    if (moduleName == null) {
+      currentConsumer.remove();
+    } else {
+      currentConsumer.set(moduleName);
+    }
+  }
+
+  /** Returns the module to which the requests made by the current thread are charged, if any. */
+  @Nullable
+  public String getCurrentConsumer() {
+    return currentConsumer.get();
+  }
+
+  /**
+   * Charges a call to the given endpoint to the module running on the current thread. Must be
+   * called right before each attempt to send the request.
+   *
+   * @throws CircuitOpenException if the call would exceed the budget of the day, in which case
+   *         nothing is charged and the request must not be sent
+   */
+  public void charge(String endpoint) throws CircuitOpenException {
+    String consumer = currentConsumer.get();
+    if (consumer == null) {
+      consumer = SHARED_CONSUMER;
+    }
+    int cost = getCost(endpoint);
+    synchronized (this) {
+      rollOverIfNewDay();
+      if (state.usedToday + cost > dailyBudget) {
+        throw new CircuitOpenException(endpoint, Instant.ofEpochMilli(getNextResetMillis()),
+            String.format("daily quota budget of %d units used up", dailyBudget));
+      }
+      state.usedToday += cost;
+      state.unitsByEndpoint.merge(endpoint, (long) cost, Long::sum);
+      unitsSinceRecompute.merge(consumer, (long) cost, Long::sum);
+    }
+    recomputeIfNeeded();
+  }
+
+  /**
+   * Returns the factor by which the interval of the given module should be stretched to stay within
+   * the budget. Returns {@code 1} if the module does not need to be slowed down.
+   */
+  public double getStretchFactor(String moduleName) {
+    recomputeIfNeeded();
+    Double factor = stretchFactors.get(moduleName);
+    return factor == null ? 1 : factor;
+  }
+
+  /** Returns the number of units consumed since the last quota reset. */
+  public synchronized long getUsedToday() {
+    rollOverIfNewDay();
+    return state.usedToday;
+  }
+
+  /** Returns the number of units consumed by each endpoint since the last quota reset. */
+  public synchronized ImmutableMap<String, Long> getUnitsByEndpoint() {
+    rollOverIfNewDay();
+    return ImmutableMap.copyOf(state.unitsByEndpoint);
+  }
+
+  /** Returns the daily budget in units. */
+  public long getDailyBudget() {
+    return dailyBudget;
+  }
+
+  /**
+   * Returns when the budget will be exhausted at the current consumption rate, or an absent
+   * optional if it will last until the next quota reset.
+   */
+  public Optional<Instant> getProjectedExhaustion() {
+    return projectedExhaustion;
+  }
+
+  /**
+   * Saves the consumption of the current day to the file it is restored from, e.g. before the bot
+   * stops.
+   */
+  public void save() {
+    QuotaState snapshot;
+    synchronized (this) {
+      snapshot = state.copy();
+    }
+    saveState(snapshot);
+  }
+
+  private void recomputeIfNeeded() {
+    QuotaState snapshot = recomputeIfDue();
+    if (snapshot != null) {
+      // Written outside of the lock, which every request needs
+      saveState(snapshot);
+    }
+  }
+
+  /**
+   * Recomputes rates, projections and stretch factors if they were not recomputed for a while.
+   *
+   * @return a copy of the consumption to save, or {@code null} if nothing was recomputed
+   */
+  @Nullable
+  private synchronized QuotaState recomputeIfDue() {
+    long now = clock.millis();
+    long elapsedMillis = now - lastRecomputeMillis;
+    if (elapsedMillis < RECOMPUTE_INTERVAL_MILLIS) {
+      return null;
+    }
+    lastRecomputeMillis = now;
+    rollOverIfNewDay();
+
+    // Smooth the rate of each consumer
+    for (String consumer : ratesPerSecond.keySet()) {
+      unitsSinceRecompute.putIfAbsent(consumer, 0L);
+    }
+    double totalRate = 0;
+    for (Map.Entry<String, Long> units : unitsSinceRecompute.entrySet()) {
+      double measured = units.getValue() * 1000.0 / elapsedMillis;
+      Double previous = ratesPerSecond.get(units.getKey());
+      double rate = previous == null ? measured
+          : RATE_SMOOTHING * measured + (1 - RATE_SMOOTHING) * previous;
+      ratesPerSecond.put(units.getKey(), rate);
+      totalRate += rate;
+    }
+    unitsSinceRecompute.clear();
+
+    // Project the consumption until the next quota reset
+    long remaining = Math.max(0, dailyBudget - state.usedToday);
+    double secondsUntilReset = (getNextResetMillis() - now) / 1000.0;
+    if (totalRate > 0 && remaining / totalRate < secondsUntilReset) {
+      projectedExhaustion = Optional.of(Instant.ofEpochMilli(now + (long) (remaining / totalRate
+          * 1000)));
+    } else {
+      projectedExhaustion = Optional.absent();
+    }
+
+    stretchFactors = computeStretchFactors(TARGET_USAGE * remaining / secondsUntilReset);
+
+    logger.info("Quota: {}/{} units used today, {} units/min, exhaustion: {}, stretching: {}",
+        state.usedToday, dailyBudget, String.format("%.1f", totalRate * 60),
+        projectedExhaustion.isPresent() ? projectedExhaustion.get() : "not before reset",
+        stretchFactors);
+    return state.copy();
+  }
+
+  /**
+   * Computes how much each module must be slowed down for the total rate to drop to the target
+   * rate, slowing down the modules with the lowest priority first. Works on the rates modules would
+   * have without being stretched, so that the factors don't oscillate.
+   */
+  private ImmutableMap<String, Double> computeStretchFactors(double targetRate) {
+    Map<String, Double> naturalRates = new HashMap<>();
+    double totalNaturalRate = 0;
+    for (Map.Entry<String, Double> rate : ratesPerSecond.entrySet()) {
+      Double factor = stretchFactors.get(rate.getKey());
+      double naturalRate = rate.getValue() * (factor == null ? 1 : factor);
+      naturalRates.put(rate.getKey(), naturalRate);
+      totalNaturalRate += naturalRate;
+    }
+    double excessRate = totalNaturalRate - targetRate;
+    if (excessRate <= 0) {
+      return ImmutableMap.of();
+    }
+
+    List<String> modules = new ArrayList<>(priorities.keySet());
+    modules.retainAll(naturalRates.keySet());
+    Collections.sort(modules, Comparator.comparing((String module) -> priorities.get(module))
+        .thenComparing(module -> -naturalRates.get(module)));
+
+    ImmutableMap.Builder<String, Double> factors = ImmutableMap.builder();
+    for (String module : modules) {
+      double rate = naturalRates.get(module);
+      if (excessRate <= 0 || rate <= 0) {
+        continue;
+      }
+      double maxReduction = rate * (1 - 1 / MAX_STRETCH_FACTOR);
+      if (excessRate >= maxReduction) {
+        factors.put(module, MAX_STRETCH_FACTOR);
+        excessRate -= maxReduction;
+      } else {
+        factors.put(module, rate / (rate - excessRate));
+        excessRate = 0;
+      }
+    }
+    if (excessRate > 0) {
+      logger.warn("Quota budget can't be met even with all modules slowed down {} times",
+          MAX_STRETCH_FACTOR);
+    }
+    return factors.build();
+  }
+
+  private void rollOverIfNewDay() {
+    LocalDate today = LocalDate.now(clock.withZone(QUOTA_ZONE));
+    if (!today.equals(state.day)) {
+      logger.info("Quota reset: {} units were used on {}", state.usedToday, state.day);
+      state = new QuotaState(today);
+    }
+  }
+
+  /** Returns when YouTube resets quotas next, in milliseconds since the epoch. */
+  public long getNextResetMillis() {
+    return LocalDate.now(clock.withZone(QUOTA_ZONE)).plusDays(1).atStartOfDay(QUOTA_ZONE)
+        .toInstant().toEpochMilli();
+  }
+
+  private QuotaState restoreState() {
+    LocalDate today = LocalDate.now(clock.withZone(QUOTA_ZONE));
+    if (Files.exists(statePath)) {
+      try {
+        QuotaState restored = ObjectStreamUtils.readObjectStreamFromFile(statePath);
+        if (today.equals(restored.day)) {
+          logger.info("Restored quota consumption: {} units used today", restored.usedToday);
+          return restored;
+        }
+      } catch (RuntimeException e) {
+        logger.warn("Could not restore quota consumption from {}", statePath, e);
+      }
+    }
+    return new QuotaState(today);
+  }
+
+  private void saveState(QuotaState snapshot) {
+    synchronized (saveLock) {
+      if (saved != null && saved.isMoreRecentThan(snapshot)) {
+        // Another thread saved a more recent copy in the meantime
+        return;
+      }
+      try {
+        ObjectStreamUtils.writeObjectStreamToFile(statePath, snapshot);
+        saved = snapshot;
+      } catch (RuntimeException e) {
+        logger.warn("Could not save quota consumption to {}", statePath, e);
+      }
+    }
+  }
+
+  /** Consumption of a single quota day, saved across restarts. */
+  private static final class QuotaState implements Serializable {
+    private static final long serialVersionUID = 4410936585474329713L;
+
+    private final LocalDate day;
+    private long usedToday;
+    private final HashMap<String, Long> unitsByEndpoint = new HashMap<>();
+
+    QuotaState(LocalDate day) {
+      this.day = day;
+    }
+
+    QuotaState copy() {
+      QuotaState copy = new QuotaState(day);
+      copy.usedToday = usedToday;
+      copy.unitsByEndpoint.putAll(unitsByEndpoint);
+      return copy;
+    }
+
+    /** Consumption only grows during a day, so it tells which of two copies is more recent. */
+    boolean isMoreRecentThan(QuotaState other) {
+      return day.isAfter(other.day) || (day.equals(other.day) && usedToday > other.usedToday);
+    }
+  }
+}
@@ -0,0 +1,231 @@
+package com.youtube.gaming.mightybot.api;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.googleapis.services.json.AbstractGoogleJsonClientRequest;
+import com.google.api.client.http.HttpResponseException;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.primitives.Longs;
+
+/**
+ * Sends requests to YouTube through a {@link BatchCoalescer}, retrying transient failures and
+ * failing fast while an endpoint is degraded.
+ *
+ * <ul>
+ * <li>Server errors, {@code 429 Too Many Requests}, rate limit errors and network errors are
+ * retried up to {@code maxAttempts} times, after a random delay between 0 and an exponentially
+ * growing bound ("full jitter"), so that modules failing at the same time don't retry at the same
+ * time. A {@code Retry-After} header is honored, unless it asks to wait longer than the maximum
+ * delay.
+ * <li>Every endpoint has a {@link CircuitBreaker} that opens after several consecutive server or
+ * network errors, so that modules don't wait for timeouts while YouTube is down.
+ * <li>Every attempt is charged to the {@link QuotaBudget}. When the daily budget is used up or
+ * YouTube says the quota is exceeded, no request is sent anymore until quotas reset.
+ * <li>Other errors, like {@code 404 Not Found}, are not retried.
+ * </ul>
+ *
+ * <p>
+ * Only idempotent requests are retried. This class is thread-safe.
+ */
+public class ResilientRequestExecutor {
+  private static final Logger logger = LoggerFactory.getLogger(ResilientRequestExecutor.class);
+
+  /** Error reasons meaning the daily quota of the project is exhausted. */
+  private static final ImmutableSet<String> QUOTA_EXCEEDED_REASONS =
+      ImmutableSet.of("quotaExceeded", "dailyLimitExceeded");
+  /** Error reasons meaning requests are sent too fast. */
+  private static final ImmutableSet<String> RATE_LIMIT_EXCEEDED_REASONS =
+      ImmutableSet.of("rateLimitExceeded", "userRateLimitExceeded");
+  private static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+  private final BatchCoalescer batchCoalescer;
+  private final QuotaBudget quotaBudget;
+  private final Clock clock;
+  private final int maxAttempts;
+  private final long baseDelayMillis;
+  private final long maxDelayMillis;
+  private final int failureThreshold;
+  private final long openMillis;
+  private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+  private volatile long quotaExceededUntilMillis;
+
+  /**
+   * Creates a new executor.
+   *
+   * @param batchCoalescer the coalescer through which requests are sent
+   * @param quotaBudget the budget charged for each attempt
+   * @param clock the clock used to time the circuit breakers
+   * @param maxAttempts maximum number of times an idempotent request is sent
+   * @param baseDelayMillis bound of the delay before the first retry, doubled at each retry
+   * @param maxDelayMillis maximum bound of the delay before a retry
+   * @param failureThreshold number of consecutive failures after which an endpoint is not called
+   *        anymore for a while
+   * @param openMillis initial time during which an endpoint is not called after failures
+   */
+  public ResilientRequestExecutor(BatchCoalescer batchCoalescer, QuotaBudget quotaBudget,
+      Clock clock, int maxAttempts, long baseDelayMillis, long maxDelayMillis,
+      int failureThreshold, long openMillis) {
+    Preconditions.checkArgument(maxAttempts > 0, "Max attempts must be positive");
+    this.batchCoalescer = Preconditions.checkNotNull(batchCoalescer);
+    this.quotaBudget = Preconditions.checkNotNull(quotaBudget);
+    this.clock = Preconditions.checkNotNull(clock);
+    this.maxAttempts = maxAttempts;
+    this.baseDelayMillis = baseDelayMillis;
+    this.maxDelayMillis = maxDelayMillis;
+    this.failureThreshold = failureThreshold;
+    this.openMillis = openMillis;
+  }
+
+  /**
+   * Sends the given request, retrying it if it fails with a transient error and is idempotent.
+   *
+   * @param endpoint the endpoint of the request, e.g. {@code "videos.list"}
+   * @param request the request to send
+   * @param idempotent whether sending the request several times has the same effect as sending it
+   *        once
+   * @return the response and its headers
+   * @throws CircuitOpenException if the endpoint is not called at the moment
+   * @throws IOException if the last attempt failed
+   */
+  <T> ApiResponse<T> execute(String endpoint, AbstractGoogleJsonClientRequest<T> request,
+      boolean idempotent) throws IOException {
+    CircuitBreaker breaker = breakers.computeIfAbsent(endpoint,
+        e -> new CircuitBreaker(e, clock, failureThreshold, openMillis));
+    for (int attempt = 1;; attempt++) {
+      checkQuotaNotExceeded(endpoint);
+      breaker.checkCallAllowed();
+      quotaBudget.charge(endpoint);
+
+      long retryAfterMillis;
+      try {
+        ApiResponse<T> response = batchCoalescer.execute(request);
+        breaker.recordSuccess();
+        return response;
+      } catch (HttpResponseException e) {
+        Failure failure = classify(e);
+        switch (failure) {
+          case QUOTA_EXCEEDED:
+            breaker.recordSuccess();
+            quotaExceededUntilMillis = quotaBudget.getNextResetMillis();
+            logger.warn("Daily quota exceeded, not calling YouTube until {}",
+                Instant.ofEpochMilli(quotaExceededUntilMillis));
+            throw e;
+          case PERMANENT:
+            // YouTube is working fine, the request is wrong
+            breaker.recordSuccess();
+            throw e;
+          case RATE_LIMITED:
+            // YouTube is working fine, we are too fast
+            breaker.recordSuccess();
+            break;
+          case TRANSIENT:
+            breaker.recordFailure(e.getStatusCode() + " " + e.getStatusMessage());
+            break;
+        }
+        retryAfterMillis = getRetryAfterMillis(e);
+        if (!idempotent || attempt >= maxAttempts || retryAfterMillis > maxDelayMillis) {
+          throw e;
+        }
+      } catch (CircuitOpenException e) {
+        throw e;
+      } catch (IOException e) {
+        if (Thread.currentThread().isInterrupted()) {
+          // The module was cancelled
+          throw e;
+        }
+        breaker.recordFailure(e.toString());
+        if (!idempotent || attempt >= maxAttempts) {
+          throw e;
+        }
+        retryAfterMillis = 0;
+      }
+
+      long delayMillis = Math.max(retryAfterMillis, getBackOffMillis(attempt));
+      logger.debug("Attempt {} of {} failed, retrying in {} ms", attempt, endpoint, delayMillis);
+      sleep(delayMillis);
+    }
+  }
+
+  /** Returns the coalescer through which requests are sent. */
+  BatchCoalescer getBatchCoalescer() {
+    return batchCoalescer;
+  }
+
+  private void checkQuotaNotExceeded(String endpoint) throws CircuitOpenException {
+    if (clock.millis() < quotaExceededUntilMillis) {
+      throw new CircuitOpenException(endpoint, Instant.ofEpochMilli(quotaExceededUntilMillis),
+          "daily quota exceeded");
+    }
+  }
+
+  /** Returns a random delay before the given retry, between 0 and an exponential bound. */
+  private long getBackOffMillis(int attempt) {
+    long boundMillis = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt - 1, 30));
+    return boundMillis <= 0 ? 0 : ThreadLocalRandom.current().nextLong(boundMillis + 1);
+  }
+
+  private static void sleep(long delayMillis) throws InterruptedIOException {
+    try {
+      Thread.sleep(delayMillis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting to retry");
+    }
+  }
+
+  /** How a failed request should be handled. */
+  private enum Failure {
+    QUOTA_EXCEEDED, RATE_LIMITED, TRANSIENT, PERMANENT
+  }
+
+  private static Failure classify(HttpResponseException e) {
+    String reason = getReason(e);
+    if (reason != null && QUOTA_EXCEEDED_REASONS.contains(reason)) {
+      return Failure.QUOTA_EXCEEDED;
+    }
+    if ((reason != null && RATE_LIMIT_EXCEEDED_REASONS.contains(reason))
+        || e.getStatusCode() == HTTP_TOO_MANY_REQUESTS) {
+      return Failure.RATE_LIMITED;
+    }
+    if (e.getStatusCode() >= HttpURLConnection.HTTP_INTERNAL_ERROR) {
+      return Failure.TRANSIENT;
+    }
+    return Failure.PERMANENT;
+  }
+
+  @Nullable
+  private static String getReason(HttpResponseException e) {
+    if (!(e instanceof GoogleJsonResponseException)) {
+      return null;
+    }
+    GoogleJsonError details = ((GoogleJsonResponseException) e).getDetails();
+    if (details == null || details.getErrors() == null || details.getErrors().isEmpty()) {
+      return null;
+    }
+    return details.getErrors().get(0).getReason();
+  }
+
+  /** Returns the delay asked by the {@code Retry-After} header in seconds, or 0 if none. */
+  private static long getRetryAfterMillis(HttpResponseException e) {
+    if (e.getHeaders() == null || e.getHeaders().getRetryAfter() == null) {
+      return 0;
+    }
+    Long seconds = Longs.tryParse(e.getHeaders().getRetryAfter().trim());
+    return seconds == null ? 0 : seconds * 1000;
+  }
+}
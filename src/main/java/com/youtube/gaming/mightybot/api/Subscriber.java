@@ -0,0 +1,64 @@
+package com.youtube.gaming.mightybot.api;
+
+import javax.annotation.Nullable;
+
+import com.google.api.client.util.DateTime;
+import com.google.api.services.youtube.model.Subscription;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+
+/**
+ * A recent subscriber of the channel read by the bot: its channel id, name and when it subscribed.
+ * Instances are immutable.
+ */
+public final class Subscriber {
+  /** Parts to request to build a {@link Subscriber}. */
+  static final String PARTS = "snippet,subscriberSnippet";
+  /** Fields of a list response to request to build a {@link SubscriberPage}. */
+  static final String FIELDS = "nextPageToken,pageInfo/totalResults,"
+      + "items(snippet/publishedAt,subscriberSnippet(channelId,title))";
+
+  @Nullable
+  private final String channelId;
+  private final String name;
+  private final long subscribedAtMillis;
+
+  public Subscriber(@Nullable String channelId, String name, long subscribedAtMillis) {
+    this.channelId = channelId;
+    this.name = Preconditions.checkNotNull(name);
+    this.subscribedAtMillis = subscribedAtMillis;
+  }
+
+  /** Creates the projection of a subscription requested with {@link #PARTS} and {@link #FIELDS}. */
+  static Subscriber of(Subscription subscription) {
+    DateTime publishedAt = subscription.getSnippet().getPublishedAt();
+    return new Subscriber(subscription.getSubscriberSnippet().getChannelId(),
+        MoreObjects.firstNonNull(subscription.getSubscriberSnippet().getTitle(), ""),
+        publishedAt == null ? 0 : publishedAt.getValue());
+  }
+
+  /** Returns the id of the channel of the subscriber, or {@code null} if unknown. */
+  @Nullable
+  public String getChannelId() {
+    return channelId;
+  }
+
+  /** Returns the name of the subscriber. */
+  public String getName() {
+    return name;
+  }
+
+  /** Returns when the subscriber subscribed in milliseconds since the epoch, or 0 if unknown. */
+  public long getSubscribedAtMillis() {
+    return subscribedAtMillis;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("channelId", channelId)
+        .add("name", name)
+        .add("subscribedAtMillis", subscribedAtMillis)
+        .toString();
+  }
+}
@@ -0,0 +1,52 @@
+package com.youtube.gaming.mightybot.api;
+
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import com.google.api.services.youtube.model.Subscription;
+import com.google.api.services.youtube.model.SubscriptionListResponse;
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+
+/** A page of recent subscribers, along with the token of the next page. Instances are immutable. */
+public final class SubscriberPage {
+  private final List<Subscriber> subscribers;
+  @Nullable
+  private final String nextPageToken;
+
+  public SubscriberPage(List<Subscriber> subscribers, @Nullable String nextPageToken) {
+    this.subscribers = ImmutableList.copyOf(subscribers);
+    this.nextPageToken = nextPageToken;
+  }
+
+  /** Creates the page of a response requested with {@link Subscriber#FIELDS}. */
+  static SubscriberPage of(SubscriptionListResponse response) {
+    ImmutableList.Builder<Subscriber> subscribers = ImmutableList.builder();
+    if (response.getItems() != null) {
+      for (Subscription subscription : response.getItems()) {
+        subscribers.add(Subscriber.of(subscription));
+      }
+    }
+    return new SubscriberPage(subscribers.build(), response.getNextPageToken());
+  }
+
+  /** Returns the subscribers of the page, most recent first. */
+  public List<Subscriber> getSubscribers() {
+    return subscribers;
+  }
+
+  /** Returns the token of the page of older subscribers, or {@code null} if there is none. */
+  @Nullable
+  public String getNextPageToken() {
+    return nextPageToken;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("subscribers", subscribers.size())
+        .add("nextPageToken", nextPageToken)
+        .toString();
+  }
+}
@@ -0,0 +1,74 @@
+package com.youtube.gaming.mightybot.api;
+
+import java.math.BigInteger;
+
+import javax.annotation.Nullable;
+
+import com.google.api.services.youtube.model.Video;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+
+/**
+ * The statistics of a video read by the bot: its id, like count and, for live broadcasts, its
+ * concurrent viewers. Instances are immutable.
+ */
+public final class VideoStatistics {
+  /** Parts to request to build a {@link VideoStatistics}. */
+  static final String PARTS = "statistics,liveStreamingDetails";
+  /** Fields of a list response to request to build {@link VideoStatistics}. */
+  static final String FIELDS =
+      "items(id,statistics/likeCount,liveStreamingDetails/concurrentViewers)";
+
+  private final String id;
+  private final long likeCount;
+  private final long concurrentViewers;
+
+  public VideoStatistics(String id, long likeCount, long concurrentViewers) {
+    this.id = Preconditions.checkNotNull(id);
+    this.likeCount = likeCount;
+    this.concurrentViewers = concurrentViewers;
+  }
+
+  /** Creates the projection of a video requested with {@link #PARTS} and {@link #FIELDS}. */
+  static VideoStatistics of(Video video) {
+    BigInteger likeCount = video.getStatistics() == null
+        ? null
+        : video.getStatistics().getLikeCount();
+    BigInteger concurrentViewers = video.getLiveStreamingDetails() == null
+        ? null
+        : video.getLiveStreamingDetails().getConcurrentViewers();
+    return new VideoStatistics(video.getId(), longValueOrZero(likeCount),
+        longValueOrZero(concurrentViewers));
+  }
+
+  private static long longValueOrZero(@Nullable BigInteger value) {
+    return value == null ? 0 : value.longValue();
+  }
+
+  /** Returns the id of the video. */
+  public String getId() {
+    return id;
+  }
+
+  /** Returns the like count of the video, or 0 if it is hidden. */
+  public long getLikeCount() {
+    return likeCount;
+  }
+
+  /**
+   * Returns the number of people watching the video, or 0 if it is not a live broadcast or the
+   * count is hidden.
+   */
+  public long getConcurrentViewers() {
+    return concurrentViewers;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("id", id)
+        .add("likeCount", likeCount)
+        .add("concurrentViewers", concurrentViewers)
+        .toString();
+  }
+}
@@ -0,0 +1,211 @@
+package com.youtube.gaming.mightybot.api;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Function;
+
+import javax.annotation.Nullable;
+
+import com.google.api.services.youtube.YouTube;
+import com.google.api.services.youtube.model.LiveChatMessage;
+import com.google.api.services.youtube.model.LiveChatMessageSnippet;
+import com.google.api.services.youtube.model.LiveChatTextMessageDetails;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.youtube.gaming.mightybot.properties.MightyProperties;
+import com.youtube.gaming.mightybot.properties.MightyProperty;
+
+/**
+ * Read access to the YouTube Data API shared by all modules. Responses are cached in an
+ * {@link ApiResponseCache}, so modules reading the same channel or video within a short time only
+ * cost one API call. Requests that do reach YouTube are executed by a
+ * {@link ConditionalRequestExecutor}, so unchanged resources are not downloaded again. Every
+ * request only asks for the fields the bot reads, and responses are converted into small immutable
+ * projections such as {@link VideoStatistics} that can be shared between modules.
+ *
+ * <p>
+ * This class is thread-safe.
+ */
+public class YouTubeApi {
+  /** Endpoint of {@link #listChannelStatistics(List)}. */
+  public static final String CHANNELS_LIST = "channels.list";
+  /** Endpoint of {@link #listVideoStatistics(List)}. */
+  public static final String VIDEOS_LIST = "videos.list";
+  /** Endpoint of {@link #listActiveBroadcasts(String)}. */
+  public static final String LIVE_BROADCASTS_LIST = "liveBroadcasts.list";
+  /** Endpoint of {@link #listRecentSubscribers(String, long)}. */
+  public static final String SUBSCRIPTIONS_LIST = "subscriptions.list";
+  /** Endpoint of {@link #listLiveChatMessages(String, String)}. */
+  public static final String LIVE_CHAT_MESSAGES_LIST = "liveChatMessages.list";
+  /** Endpoint of {@link #insertLiveChatTextMessage(String, String)}. */
+  public static final String LIVE_CHAT_MESSAGES_INSERT = "liveChatMessages.insert";
+
+  /** Maximum number of messages YouTube returns in a page of live chat messages. */
+  private static final long MAX_CHAT_MESSAGES_PER_PAGE = 2000;
+
+  private final YouTube youTube;
+  private final MightyProperties properties;
+  private final ApiResponseCache cache;
+  private final ConditionalRequestExecutor conditionalRequestExecutor;
+
+  public YouTubeApi(YouTube youTube, MightyProperties properties, ApiResponseCache cache,
+      ConditionalRequestExecutor conditionalRequestExecutor) {
+    this.youTube = Preconditions.checkNotNull(youTube);
+    this.properties = Preconditions.checkNotNull(properties);
+    this.cache = Preconditions.checkNotNull(cache);
+    this.conditionalRequestExecutor = Preconditions.checkNotNull(conditionalRequestExecutor);
+  }
+
+  /**
+   * Returns the statistics of the channels with the given ids, using the API key of the bot.
+   *
+   * @param channelIds the ids of the channels
+   * @return the statistics of the channels that were found, in the order of their ids
+   * @throws IOException if an error occurred while contacting YouTube
+   */
+  public List<ChannelStatistics> listChannelStatistics(List<String> channelIds)
+      throws IOException {
+    return cache.getAll(CHANNELS_LIST, ChannelStatistics.PARTS, channelIds,
+        ChannelStatistics::getId, missingIds -> {
+          ApiRequestKey key =
+              new ApiRequestKey(CHANNELS_LIST, ChannelStatistics.PARTS, missingIds);
+          YouTube.Channels.List request = youTube.channels().list(ChannelStatistics.PARTS);
+          request.setId(key.getJoinedIds());
+          request.setFields(ChannelStatistics.FIELDS);
+          request.setKey(properties.get(MightyProperty.API_KEY));
+          return conditionalRequestExecutor.execute(key, request,
+              response -> transformItems(response.getItems(), ChannelStatistics::of));
+        });
+  }
+
+  /**
+   * Returns the statistics of the videos with the given ids. Several ids can be requested at once,
+   * which costs as much quota as a single id. Only the ids that are not cached are requested.
+   *
+   * @param videoIds the ids of the videos
+   * @return the statistics of the videos that were found, in the order of their ids
+   * @throws IOException if an error occurred while contacting YouTube
+   */
+  public List<VideoStatistics> listVideoStatistics(List<String> videoIds) throws IOException {
+    return cache.getAll(VIDEOS_LIST, VideoStatistics.PARTS, videoIds, VideoStatistics::getId,
+        missingIds -> {
+          ApiRequestKey key = new ApiRequestKey(VIDEOS_LIST, VideoStatistics.PARTS, missingIds);
+          YouTube.Videos.List request = youTube.videos().list(VideoStatistics.PARTS);
+          request.setId(key.getJoinedIds());
+          request.setFields(VideoStatistics.FIELDS);
+          return conditionalRequestExecutor.execute(key, request,
+              response -> transformItems(response.getItems(), VideoStatistics::of));
+        });
+  }
+
+  /**
+   * Returns the active broadcasts of the authenticated user. These are not cached by this class,
+   * see {@code YouTubeHelper#getActiveBroadcasts()} instead.
+   *
+   * @param broadcastType the type of broadcasts to return, {@code "all"}, {@code "event"} or
+   *        {@code "persistent"}
+   * @return the active broadcasts
+   * @throws IOException if an error occurred while contacting YouTube
+   */
+  public List<BroadcastInfo> listActiveBroadcasts(String broadcastType) throws IOException {
+    ApiRequestKey key = new ApiRequestKey(LIVE_BROADCASTS_LIST, BroadcastInfo.PARTS,
+        ImmutableList.of("broadcastStatus=active", "broadcastType=" + broadcastType));
+    YouTube.LiveBroadcasts.List request = youTube.liveBroadcasts().list(BroadcastInfo.PARTS);
+    request.setBroadcastStatus("active");
+    request.setBroadcastType(broadcastType);
+    request.setFields(BroadcastInfo.FIELDS);
+    return conditionalRequestExecutor.execute(key, request,
+        response -> transformItems(response.getItems(), BroadcastInfo::of));
+  }
+
+  /**
+   * Returns a page of the recent subscribers of the authenticated user, most recent first. Pages
+   * are neither cached nor sent conditionally, since new subscribers shift every page.
+   *
+   * @param pageToken the next page token of the previous page, or {@code null} for the most recent
+   *        subscribers
+   * @param maxResults maximum number of subscribers in the page, at most 50
+   * @return the page of subscribers
+   * @throws IOException if an error occurred while contacting YouTube
+   */
+  public SubscriberPage listRecentSubscribers(@Nullable String pageToken, long maxResults)
+      throws IOException {
+    YouTube.Subscriptions.List request = youTube.subscriptions().list(Subscriber.PARTS);
+    request.setMyRecentSubscribers(true);
+    request.setPageToken(pageToken);
+    request.setMaxResults(maxResults);
+    request.setFields(Subscriber.FIELDS);
+    return SubscriberPage.of(conditionalRequestExecutor.getResilientRequestExecutor()
+        .execute(SUBSCRIPTIONS_LIST, request, true).getValue());
+  }
+
+  /**
+   * Returns a page of messages of the live chat with the given id. Pages are neither cached nor
+   * sent conditionally, since each page token is only read once.
+   *
+   * @param liveChatId id of the live chat to read
+   * @param pageToken the next page token of the previous page, or {@code null} to read the most
+   *        recent messages
+   * @return the page of messages
+   * @throws IOException if an error occurred while contacting YouTube
+   */
+  public ChatMessagePage listLiveChatMessages(String liveChatId, @Nullable String pageToken)
+      throws IOException {
+    YouTube.LiveChatMessages.List request =
+        youTube.liveChatMessages().list(liveChatId, ChatMessage.PARTS);
+    request.setPageToken(pageToken);
+    request.setMaxResults(MAX_CHAT_MESSAGES_PER_PAGE);
+    request.setFields(ChatMessage.FIELDS);
+    return ChatMessagePage.of(liveChatId, conditionalRequestExecutor.getResilientRequestExecutor()
+        .execute(LIVE_CHAT_MESSAGES_LIST, request, true).getValue());
+  }
+
+  /**
+   * Posts the given text message to the live chat with the given id. The message is not sent
+   * again if the request fails, since it could then be posted twice.
+   *
+   * @param liveChatId id of the live chat where to post the message
+   * @param message the message to post
+   * @throws IOException if an error occurred while contacting YouTube
+   */
+  public void insertLiveChatTextMessage(String liveChatId, String message) throws IOException {
+    LiveChatMessage content = new LiveChatMessage()
+        .setSnippet(new LiveChatMessageSnippet()
+            .setLiveChatId(liveChatId)
+            .setType("textMessageEvent")
+            .setTextMessageDetails(new LiveChatTextMessageDetails()
+                .setMessageText(message)));
+    YouTube.LiveChatMessages.Insert request =
+        youTube.liveChatMessages().insert("snippet", content);
+    request.setFields("id");
+    conditionalRequestExecutor.getResilientRequestExecutor()
+        .execute(LIVE_CHAT_MESSAGES_INSERT, request, false);
+  }
+
+  private static <F, T> List<T> transformItems(@Nullable List<F> items,
+      Function<? super F, ? extends T> projection) {
+    if (items == null) {
+      return ImmutableList.of();
+    }
+    ImmutableList.Builder<T> projected = ImmutableList.builder();
+    for (F item : items) {
+      projected.add(projection.apply(item));
+    }
+    return projected.build();
+  }
+
+  /** Returns the cache of this API. */
+  public ApiResponseCache getCache() {
+    return cache;
+  }
+
+  /** Returns the executor of conditional requests of this API. */
+  public ConditionalRequestExecutor getConditionalRequestExecutor() {
+    return conditionalRequestExecutor;
+  }
+
+  /** Returns the coalescer through which the requests of this API are sent. */
+  public BatchCoalescer getBatchCoalescer() {
+    return conditionalRequestExecutor.getResilientRequestExecutor().getBatchCoalescer();
+  }
+}
@@ -0,0 +1,16 @@
+package com.youtube.gaming.mightybot.chat;
+
+import java.util.List;
+
+/**
+ * Turns items queued in the {@link ChatOutbox} while a chat could not be posted to, such as the
+ * names of new subscribers, into a single message.
+ */
+public interface ChatCoalescingPolicy {
+  /**
+   * Returns the message announcing the given items.
+   *
+   * @param items the items in the order they were queued, never empty and without duplicates
+   */
+  String coalesce(List<String> items);
+}
@@ -0,0 +1,55 @@
+package com.youtube.gaming.mightybot.chat;
+
+import java.util.List;
+
+import com.youtube.gaming.mightybot.api.ChatMessage;
+
+/**
+ * The reading position of a consumer in a {@link ChatMessageBuffer}. Each module reading chat
+ * should use its own cursor, so that it sees every message regardless of what other modules read.
+ *
+ * <p>
+ * This class is thread-safe.
+ */
+public final class ChatCursor {
+  private final ChatMessageBuffer buffer;
+  // Guarded by the lock of the buffer
+  private long position;
+  private long droppedCount;
+
+  ChatCursor(ChatMessageBuffer buffer, long position) {
+    this.buffer = buffer;
+    this.position = position;
+  }
+
+  /**
+   * Returns the messages received since the last call, oldest first. Messages that were overwritten
+   * in the buffer before being read are skipped, see {@link #getDroppedCount()}.
+   */
+  public List<ChatMessage> poll() {
+    return buffer.read(this);
+  }
+
+  /**
+   * Returns the number of messages this cursor skipped because they were overwritten in the buffer
+   * before being read. If it grows, the consumer should read more often or the buffer should be
+   * larger.
+   */
+  public long getDroppedCount() {
+    synchronized (buffer) {
+      return droppedCount;
+    }
+  }
+
+  long getPosition() {
+    return position;
+  }
+
+  void setPosition(long position) {
+    this.position = position;
+  }
+
+  void addDropped(long count) {
+    droppedCount += count;
+  }
+}
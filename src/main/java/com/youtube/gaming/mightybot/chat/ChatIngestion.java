@@ -0,0 +1,154 @@
+package com.youtube.gaming.mightybot.chat;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.youtube.gaming.mightybot.YouTubeHelper;
+import com.youtube.gaming.mightybot.api.QuotaBudget;
+import com.youtube.gaming.mightybot.api.YouTubeApi;
+
+/**
+ * Reads the live chats of all active broadcasts and publishes their messages to a
+ * {@link ChatMessageBuffer} that modules read through their own {@link ChatCursor}.
+ *
+ * <p>
+ * There is a single {@link LiveChatPoller} per live chat, whatever the number of modules reading
+ * chat, so the quota used to read chat does not depend on how many chat features are enabled.
+ * Nothing is polled until a module subscribes. From then on, the live chats to poll are
+ * reconciled with the active broadcasts every {@link #RECONCILE_INTERVAL_MILLIS} milliseconds:
+ * pollers are started for new chats and stopped for chats whose broadcast is no longer active.
+ * The quota used to read chat is charged to {@value LiveChatPoller#QUOTA_CONSUMER}, which is slowed
+ * down like a module of the given priority when the quota runs short.
+ *
+ * <p>
+ * This class is thread-safe.
+ */
+public class ChatIngestion {
+  private static final Logger logger = LoggerFactory.getLogger(ChatIngestion.class);
+
+  /** How often the polled live chats are reconciled with the active broadcasts. */
+  private static final long RECONCILE_INTERVAL_MILLIS = 15000;
+  private static final int POLLER_THREADS = 2;
+
+  private final YouTubeHelper youTubeHelper;
+  private final YouTubeApi youTubeApi;
+  private final QuotaBudget quotaBudget;
+  private final Clock clock;
+  private final long minPollingIntervalMillis;
+  private final ChatMessageBuffer buffer;
+  private final ScheduledExecutorService executor;
+
+  private final Map<String, LiveChatPoller> pollers = new ConcurrentHashMap<>();
+  /** Chats that ended on YouTube, which are not polled again even if still listed as active. */
+  private final Set<String> endedLiveChatIds = Sets.newConcurrentHashSet();
+  private boolean started;
+
+  /**
+   * @param bufferCapacity maximum number of messages kept for modules that did not read them yet
+   * @param minPollingIntervalMillis minimum delay between two reads of the same live chat, even if
+   *        YouTube asks for less
+   * @param quotaPriority the priority of chat reading when the bot runs short of quota, see
+   *        {@link QuotaBudget#registerModule(String, int)}
+   */
+  public ChatIngestion(YouTubeHelper youTubeHelper, YouTubeApi youTubeApi,
+      QuotaBudget quotaBudget, Clock clock, int bufferCapacity, long minPollingIntervalMillis,
+      int quotaPriority) {
+    this.youTubeHelper = Preconditions.checkNotNull(youTubeHelper);
+    this.youTubeApi = Preconditions.checkNotNull(youTubeApi);
+    this.quotaBudget = Preconditions.checkNotNull(quotaBudget);
+    this.clock = Preconditions.checkNotNull(clock);
+    this.minPollingIntervalMillis = minPollingIntervalMillis;
+    this.buffer = new ChatMessageBuffer(bufferCapacity);
+    quotaBudget.registerModule(LiveChatPoller.QUOTA_CONSUMER, quotaPriority);
+    this.executor = Executors.newScheduledThreadPool(POLLER_THREADS,
+        new ThreadFactoryBuilder().setNameFormat("chat-ingestion-%d").setDaemon(true).build());
+  }
+
+  /**
+   * Returns a new cursor reading the chat messages received from now on, and starts reading the
+   * live chats of the active broadcasts if no module did before.
+   * <p>
+   * Reading chat will only work if a module requested the
+   * {@code https://www.googleapis.com/auth/youtube} OAuth scope.
+   */
+  public synchronized ChatCursor subscribe() {
+    if (!started) {
+      started = true;
+      logger.info("Starting chat ingestion");
+      executor.scheduleWithFixedDelay(this::reconcile, 0, RECONCILE_INTERVAL_MILLIS,
+          TimeUnit.MILLISECONDS);
+    }
+    return buffer.newCursor();
+  }
+
+  /** Returns the ids of the live chats currently being read. */
+  public Set<String> getPolledLiveChatIds() {
+    return ImmutableSet.copyOf(pollers.keySet());
+  }
+
+  /** Returns the buffer to which chat messages are published. */
+  public ChatMessageBuffer getBuffer() {
+    return buffer;
+  }
+
+  private void reconcile() {
+    try {
+      reconcileActiveLiveChats();
+    } catch (RuntimeException e) {
+      // An exception escaping the task would cancel all future reconciliations
+      logger.error("Unexpected error while reconciling the live chats", e);
+    }
+  }
+
+  private void reconcileActiveLiveChats() {
+    List<String> activeLiveChatIds;
+    try {
+      activeLiveChatIds = youTubeHelper.getActiveLiveChatIds();
+    } catch (IOException e) {
+      logger.warn("Could not list the active live chats, keeping the current ones: {}",
+          e.toString());
+      return;
+    }
+
+    Set<String> active = new HashSet<>(activeLiveChatIds);
+    for (String liveChatId : active) {
+      if (!endedLiveChatIds.contains(liveChatId) && !pollers.containsKey(liveChatId)) {
+        LiveChatPoller poller = new LiveChatPoller(liveChatId, youTubeApi, buffer, quotaBudget,
+            clock, executor, minPollingIntervalMillis, buffer.getCapacity(), this::onChatEnded);
+        pollers.put(liveChatId, poller);
+        poller.start();
+      }
+    }
+    for (String liveChatId : ImmutableSet.copyOf(pollers.keySet())) {
+      if (!active.contains(liveChatId)) {
+        // The poller may have removed itself since, if its chat just ended
+        LiveChatPoller poller = pollers.remove(liveChatId);
+        if (poller != null) {
+          poller.stop();
+        }
+      }
+    }
+    // Forget ended chats once their broadcast is gone, in case their id is ever reused
+    endedLiveChatIds.retainAll(active);
+  }
+
+  private void onChatEnded(String liveChatId) {
+    endedLiveChatIds.add(liveChatId);
+    pollers.remove(liveChatId);
+  }
+}
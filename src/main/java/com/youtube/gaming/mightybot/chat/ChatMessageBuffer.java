@@ -0,0 +1,68 @@
+package com.youtube.gaming.mightybot.chat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.common.base.Preconditions;
+import com.youtube.gaming.mightybot.api.ChatMessage;
+
+/**
+ * A bounded ring buffer of live chat messages, read independently by any number of
+ * {@link ChatCursor}s. Every published message gets a sequence number, and each cursor remembers
+ * the sequence number of the next message it will read. Publishing never waits for slow cursors:
+ * once the buffer is full, the oldest messages are overwritten, and cursors that did not read them
+ * in time skip them and count them as dropped.
+ *
+ * <p>
+ * This class is thread-safe.
+ */
+public class ChatMessageBuffer {
+  private final ChatMessage[] messages;
+  /** Sequence number of the next published message, which is also the number of messages. */
+  private long nextSequence;
+
+  public ChatMessageBuffer(int capacity) {
+    Preconditions.checkArgument(capacity > 0, "capacity must be positive: %s", capacity);
+    this.messages = new ChatMessage[capacity];
+  }
+
+  /** Publishes the given message to all cursors. */
+  synchronized void publish(ChatMessage message) {
+    messages[(int) (nextSequence % messages.length)] = Preconditions.checkNotNull(message);
+    nextSequence++;
+  }
+
+  /** Returns a new cursor that reads the messages published from now on. */
+  public synchronized ChatCursor newCursor() {
+    return new ChatCursor(this, nextSequence);
+  }
+
+  /** Returns the number of messages published since the buffer was created. */
+  public synchronized long getPublishedCount() {
+    return nextSequence;
+  }
+
+  /** Returns the maximum number of messages kept in the buffer. */
+  public int getCapacity() {
+    return messages.length;
+  }
+
+  /**
+   * Returns the messages published since the position of the given cursor, oldest first, and moves
+   * the cursor after them.
+   */
+  synchronized List<ChatMessage> read(ChatCursor cursor) {
+    long oldestSequence = Math.max(0, nextSequence - messages.length);
+    long position = cursor.getPosition();
+    if (position < oldestSequence) {
+      cursor.addDropped(oldestSequence - position);
+      position = oldestSequence;
+    }
+    List<ChatMessage> read = new ArrayList<>((int) (nextSequence - position));
+    for (long sequence = position; sequence < nextSequence; sequence++) {
+      read.add(messages[(int) (sequence % messages.length)]);
+    }
+    cursor.setPosition(nextSequence);
+    return read;
+  }
+}
@@ -0,0 +1,249 @@
+package com.youtube.gaming.mightybot.chat;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.RateLimiter;
+import com.youtube.gaming.mightybot.api.QuotaBudget;
+import com.youtube.gaming.mightybot.api.YouTubeApi;
+
+/**
+ * Queues the messages modules post to live chats, and posts them from its own threads so that
+ * modules never wait for YouTube.
+ *
+ * <p>
+ * Each live chat has its own queue, drained by its own task, so posting to one chat never delays
+ * posting to another. Messages of a chat are posted by order of {@link ChatPriority}, then in the
+ * order they were queued, and no faster than the configured rate, to stay clear of the chat rate
+ * limits of YouTube. Queuing a text already waiting for the same chat does not post it twice.
+ * Messages with a coalescing key gather items while they wait, e.g. the names of new subscribers
+ * during a raid, and are turned into a single message by a {@link ChatCoalescingPolicy} when they
+ * are posted.
+ *
+ * <p>
+ * The outbox holds a bounded number of messages over all chats. When it is full, a new message
+ * replaces the most recent message of the lowest priority, provided that priority is lower than its
+ * own. Otherwise, the new message is rejected. Rejected and replaced messages complete with a
+ * {@link RejectedExecutionException}.
+ *
+ * <p>
+ * This class is thread-safe.
+ */
+public class ChatOutbox {
+  private static final Logger logger = LoggerFactory.getLogger(ChatOutbox.class);
+
+  /** Higher priority first, then oldest first. */
+  private static final Comparator<OutboundChatMessage> POSTING_ORDER =
+      Comparator.comparing(OutboundChatMessage::getPriority).reversed()
+          .thenComparingLong(OutboundChatMessage::getSequence);
+
+  private final YouTubeApi youTubeApi;
+  private final QuotaBudget quotaBudget;
+  private final Executor executor;
+  private final int capacity;
+  private final double messagesPerSecond;
+
+  // Guarded by this
+  private final Map<String, ChatLane> lanes = new HashMap<>();
+  private int queuedCount;
+  private long nextSequence;
+  private long sentCount;
+  private long droppedCount;
+  private long coalescedCount;
+
+  /**
+   * @param executor the executor running the tasks posting to each chat, which should not limit
+   *        how many run at the same time
+   * @param capacity maximum number of messages waiting over all chats
+   * @param minIntervalMillis minimum delay between two messages posted to the same chat
+   */
+  public ChatOutbox(YouTubeApi youTubeApi, QuotaBudget quotaBudget, Executor executor,
+      int capacity, long minIntervalMillis) {
+    Preconditions.checkArgument(capacity > 0, "capacity must be positive: %s", capacity);
+    Preconditions.checkArgument(minIntervalMillis > 0, "minIntervalMillis must be positive: %s",
+        minIntervalMillis);
+    this.youTubeApi = Preconditions.checkNotNull(youTubeApi);
+    this.quotaBudget = Preconditions.checkNotNull(quotaBudget);
+    this.executor = Preconditions.checkNotNull(executor);
+    this.capacity = capacity;
+    this.messagesPerSecond = 1000.0 / minIntervalMillis;
+  }
+
+  /**
+   * Queues the given text message for the live chat with the given id.
+   *
+   * @return a future completing once the message is posted, or exceptionally if it could not be
+   */
+  public synchronized CompletableFuture<Void> queue(String liveChatId, String text,
+      ChatPriority priority) {
+    ChatLane lane = getLane(liveChatId);
+    for (OutboundChatMessage queued : lane.queue) {
+      if (text.equals(queued.getText())) {
+        logger.debug("Not queuing duplicate message for live chat {}: {}", liveChatId, text);
+        return queued.getResult();
+      }
+    }
+    return add(lane, OutboundChatMessage.ofText(liveChatId, priority, nextSequence++,
+        quotaBudget.getCurrentConsumer(), text));
+  }
+
+  /**
+   * Queues an item to announce in the live chat with the given id. Items queued with the same
+   * coalescing key are announced in a single message, as long as the message was not posted yet.
+   * An item already waiting to be announced is not added twice.
+   *
+   * @param coalescingKey what the items announce, e.g. {@code "newSubscribers"}
+   * @param policy the policy building the message when it is posted. The policy of the first item
+   *        queued in a message is used.
+   * @return a future completing once the message announcing the item is posted, or exceptionally
+   *         if it could not be
+   */
+  public synchronized CompletableFuture<Void> queueCoalescing(String liveChatId,
+      String coalescingKey, String item, ChatPriority priority, ChatCoalescingPolicy policy) {
+    ChatLane lane = getLane(liveChatId);
+    for (OutboundChatMessage queued : lane.queue) {
+      if (coalescingKey.equals(queued.getCoalescingKey())) {
+        if (queued.addItem(item)) {
+          coalescedCount++;
+        }
+        return queued.getResult();
+      }
+    }
+    return add(lane, OutboundChatMessage.ofItem(liveChatId, priority, nextSequence++,
+        quotaBudget.getCurrentConsumer(), coalescingKey, policy, item));
+  }
+
+  /** Returns the number of messages waiting to be posted. */
+  public synchronized int getQueuedCount() {
+    return queuedCount;
+  }
+
+  /** Returns the number of messages posted since the bot started. */
+  public synchronized long getSentCount() {
+    return sentCount;
+  }
+
+  /** Returns the number of messages rejected or replaced because the outbox was full. */
+  public synchronized long getDroppedCount() {
+    return droppedCount;
+  }
+
+  /** Returns the number of items announced in a message queued for an earlier item. */
+  public synchronized long getCoalescedCount() {
+    return coalescedCount;
+  }
+
+  private ChatLane getLane(String liveChatId) {
+    return lanes.computeIfAbsent(liveChatId, id -> new ChatLane(id, messagesPerSecond));
+  }
+
+  private CompletableFuture<Void> add(ChatLane lane, OutboundChatMessage message) {
+    if (queuedCount >= capacity) {
+      OutboundChatMessage victim = findLeastImportant();
+      if (victim.getPriority().compareTo(message.getPriority()) >= 0) {
+        droppedCount++;
+        logger.warn("Chat outbox full, dropping message for live chat {}",
+            message.getLiveChatId());
+        message.getResult().completeExceptionally(
+            new RejectedExecutionException("Chat outbox full"));
+        return message.getResult();
+      }
+      lanes.get(victim.getLiveChatId()).queue.remove(victim);
+      queuedCount--;
+      droppedCount++;
+      logger.warn("Chat outbox full, dropping a {} priority message for live chat {}",
+          victim.getPriority(), victim.getLiveChatId());
+      victim.getResult().completeExceptionally(
+          new RejectedExecutionException("Replaced by a message of higher priority"));
+    }
+
+    lane.queue.add(message);
+    queuedCount++;
+    if (!lane.draining) {
+      lane.draining = true;
+      executor.execute(() -> drain(lane));
+    }
+    return message.getResult();
+  }
+
+  /** Returns the most recent message of the lowest priority. The outbox must not be empty. */
+  private OutboundChatMessage findLeastImportant() {
+    OutboundChatMessage leastImportant = null;
+    for (ChatLane lane : lanes.values()) {
+      for (OutboundChatMessage queued : lane.queue) {
+        if (leastImportant == null || POSTING_ORDER.compare(queued, leastImportant) > 0) {
+          leastImportant = queued;
+        }
+      }
+    }
+    return leastImportant;
+  }
+
+  /**
+   * Posts the messages of the given chat until its queue is empty, then forgets the chat. The
+   * queue is only found empty once the delay since the last message has passed, so that a message
+   * queued later for the same chat, in a new lane, can't be posted too soon after it.
+   */
+  private void drain(ChatLane lane) {
+    while (true) {
+      // Items keep coalescing into the next message while waiting
+      lane.rateLimiter.acquire();
+      OutboundChatMessage message;
+      String text;
+      synchronized (this) {
+        message = lane.queue.poll();
+        if (message == null) {
+          // Otherwise a lane would stay in memory for every live chat ever posted to
+          lane.draining = false;
+          lanes.remove(lane.liveChatId);
+          return;
+        }
+        queuedCount--;
+        text = message.render();
+      }
+      post(message, text);
+    }
+  }
+
+  private void post(OutboundChatMessage message, String text) {
+    quotaBudget.setCurrentConsumer(message.getConsumer());
+    try {
+      youTubeApi.insertLiveChatTextMessage(message.getLiveChatId(), text);
+      synchronized (this) {
+        sentCount++;
+      }
+      message.getResult().complete(null);
+    } catch (IOException | RuntimeException e) {
+      logger.warn("Could not post message to live chat {}: {}", message.getLiveChatId(),
+          e.toString());
+      message.getResult().completeExceptionally(e);
+    } finally {
+      quotaBudget.setCurrentConsumer(null);
+    }
+  }
+
+  /** The queue of a single live chat. */
+  private static class ChatLane {
+    private final String liveChatId;
+    private final PriorityQueue<OutboundChatMessage> queue =
+        new PriorityQueue<>(POSTING_ORDER);
+    private final RateLimiter rateLimiter;
+    // Guarded by the outbox
+    private boolean draining;
+
+    ChatLane(String liveChatId, double messagesPerSecond) {
+      this.liveChatId = liveChatId;
+      this.rateLimiter = RateLimiter.create(messagesPerSecond);
+    }
+  }
+}
@@ -0,0 +1,9 @@
+package com.youtube.gaming.mightybot.chat;
+
+/**
+ * Priority of a message queued in the {@link ChatOutbox}. Higher priority messages are posted
+ * first, and are the last to be dropped when the outbox is full.
+ */
+public enum ChatPriority {
+  LOW, NORMAL, HIGH
+}
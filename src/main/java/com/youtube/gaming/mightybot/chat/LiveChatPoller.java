@@ -0,0 +1,193 @@
+package com.youtube.gaming.mightybot.chat;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.time.Clock;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.common.collect.ImmutableSet;
+import com.youtube.gaming.mightybot.api.ChatMessage;
+import com.youtube.gaming.mightybot.api.ChatMessagePage;
+import com.youtube.gaming.mightybot.api.CircuitOpenException;
+import com.youtube.gaming.mightybot.api.QuotaBudget;
+import com.youtube.gaming.mightybot.api.YouTubeApi;
+
+/**
+ * Polls the messages of a single live chat and publishes the new ones to a
+ * {@link ChatMessageBuffer}. The poller follows the page tokens returned by YouTube and waits the
+ * polling interval YouTube asks for between two pages. Messages already seen are not published
+ * again. The first page holds the messages posted before the poller started, which are only
+ * remembered as seen.
+ *
+ * <p>
+ * Each poll runs as a task of the given executor and schedules the next one, so a poller never
+ * has more than one request in flight.
+ */
+class LiveChatPoller {
+  private static final Logger logger = LoggerFactory.getLogger(LiveChatPoller.class);
+
+  /** Name to which the quota of chat polling is charged. */
+  static final String QUOTA_CONSUMER = "chatIngestion";
+  /** Maximum delay between two polls after consecutive failures. */
+  private static final long MAX_BACKOFF_MILLIS = 60000;
+  /** Reasons of errors meaning the chat has no more messages to read. */
+  private static final Set<String> CHAT_ENDED_REASONS =
+      ImmutableSet.of("liveChatEnded", "liveChatNotFound", "liveChatDisabled");
+
+  private final String liveChatId;
+  private final YouTubeApi youTubeApi;
+  private final ChatMessageBuffer buffer;
+  private final QuotaBudget quotaBudget;
+  private final Clock clock;
+  private final ScheduledExecutorService executor;
+  private final long minPollingIntervalMillis;
+  private final Consumer<String> onEnded;
+  private final Set<String> seenIds;
+
+  // Only accessed by the task of the poller, which never runs concurrently with itself
+  @Nullable
+  private String pageToken;
+  private boolean firstPage = true;
+  private int consecutiveFailures;
+
+  private volatile boolean stopped;
+  private volatile ScheduledFuture<?> nextPoll;
+
+  /**
+   * @param seenIdsCapacity number of message ids remembered to detect duplicates
+   * @param onEnded called with the live chat id when the chat ends on YouTube
+   */
+  LiveChatPoller(String liveChatId, YouTubeApi youTubeApi, ChatMessageBuffer buffer,
+      QuotaBudget quotaBudget, Clock clock, ScheduledExecutorService executor,
+      long minPollingIntervalMillis, int seenIdsCapacity, Consumer<String> onEnded) {
+    this.liveChatId = liveChatId;
+    this.youTubeApi = youTubeApi;
+    this.buffer = buffer;
+    this.quotaBudget = quotaBudget;
+    this.clock = clock;
+    this.executor = executor;
+    this.minPollingIntervalMillis = minPollingIntervalMillis;
+    this.onEnded = onEnded;
+    this.seenIds = Collections.newSetFromMap(new LinkedHashMap<String, Boolean>() {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+        return size() > seenIdsCapacity;
+      }
+    });
+  }
+
+  /** Starts polling right away. */
+  void start() {
+    logger.info("Reading live chat {}", liveChatId);
+    nextPoll = executor.schedule(this::poll, 0, TimeUnit.MILLISECONDS);
+  }
+
+  /** Stops polling. A poll in progress completes but does not schedule another one. */
+  void stop() {
+    stopped = true;
+    ScheduledFuture<?> poll = nextPoll;
+    if (poll != null) {
+      poll.cancel(false);
+    }
+    logger.info("Stopped reading live chat {}", liveChatId);
+  }
+
+  private void poll() {
+    if (stopped) {
+      return;
+    }
+    long delayMillis;
+    quotaBudget.setCurrentConsumer(QUOTA_CONSUMER);
+    try {
+      ChatMessagePage page = youTubeApi.listLiveChatMessages(liveChatId, pageToken);
+      consecutiveFailures = 0;
+      publish(page);
+      if (page.isOffline()) {
+        logger.info("Live chat {} went offline", liveChatId);
+        end();
+        return;
+      }
+      delayMillis = Math.max(minPollingIntervalMillis, page.getPollingIntervalMillis());
+      // Read chat less often when the quota runs short, like modules
+      delayMillis = (long) (delayMillis * quotaBudget.getStretchFactor(QUOTA_CONSUMER));
+    } catch (CircuitOpenException e) {
+      delayMillis =
+          Math.max(minPollingIntervalMillis, e.getRetryAt().toEpochMilli() - clock.millis());
+      logger.debug("Not reading live chat {} until {}", liveChatId, e.getRetryAt());
+    } catch (IOException e) {
+      if (isChatEnded(e)) {
+        logger.info("Live chat {} ended: {}", liveChatId, e.getMessage());
+        end();
+        return;
+      }
+      consecutiveFailures++;
+      delayMillis = Math.min(MAX_BACKOFF_MILLIS,
+          minPollingIntervalMillis << Math.min(consecutiveFailures, 10));
+      logger.warn("Could not read live chat {}, retrying in {} ms: {}", liveChatId, delayMillis,
+          e.toString());
+    } catch (RuntimeException e) {
+      // Keep polling, an exception escaping the task would silently stop the poller
+      delayMillis = MAX_BACKOFF_MILLIS;
+      logger.error("Unexpected error while reading live chat " + liveChatId, e);
+    } finally {
+      quotaBudget.setCurrentConsumer(null);
+    }
+    if (!stopped) {
+      nextPoll = executor.schedule(this::poll, delayMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private void publish(ChatMessagePage page) {
+    int published = 0;
+    for (ChatMessage message : page.getMessages()) {
+      if (seenIds.add(message.getId()) && !firstPage) {
+        buffer.publish(message);
+        published++;
+      }
+    }
+    if (firstPage) {
+      logger.debug("Skipped {} message(s) posted in live chat {} before reading it",
+          page.getMessages().size(), liveChatId);
+    } else if (published > 0) {
+      logger.debug("Read {} new message(s) in live chat {}", published, liveChatId);
+    }
+    firstPage = false;
+    if (page.getNextPageToken() != null) {
+      pageToken = page.getNextPageToken();
+    }
+  }
+
+  private void end() {
+    stopped = true;
+    onEnded.accept(liveChatId);
+  }
+
+  private static boolean isChatEnded(IOException e) {
+    if (!(e instanceof GoogleJsonResponseException)) {
+      return false;
+    }
+    GoogleJsonResponseException responseException = (GoogleJsonResponseException) e;
+    if (responseException.getStatusCode() == HttpURLConnection.HTTP_NOT_FOUND) {
+      return true;
+    }
+    GoogleJsonError details = responseException.getDetails();
+    return details != null && details.getErrors() != null && !details.getErrors().isEmpty()
+        && CHAT_ENDED_REASONS.contains(details.getErrors().get(0).getReason());
+  }
+}
@@ -0,0 +1,59 @@
+package com.youtube.gaming.mightybot.chat;
+
+import java.util.List;
+import java.util.function.Function;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.youtube.gaming.mightybot.template.Template;
+
+/**
+ * Announces a single name with its own message, and several names with a message listing the
+ * first few names and how many others there are, e.g. "A, B and 18 others just subscribed!".
+ */
+public class NameListCoalescingPolicy implements ChatCoalescingPolicy {
+  /** Placeholder replaced by the list of names in the message announcing several names. */
+  public static final String NAMES_PLACEHOLDER = "names";
+
+  private final Function<String, String> singleNameMessage;
+  private final Template severalNamesMessage;
+  private final int maxListedNames;
+
+  /**
+   * @param singleNameMessage builds the message announcing a single name
+   * @param severalNamesMessage the message announcing several names, compiled with the single
+   *        placeholder {@value #NAMES_PLACEHOLDER} which is replaced by the list of names
+   * @param maxListedNames maximum number of names listed before counting the others
+   */
+  public NameListCoalescingPolicy(Function<String, String> singleNameMessage,
+      Template severalNamesMessage, int maxListedNames) {
+    Preconditions.checkArgument(maxListedNames > 0, "maxListedNames must be positive: %s",
+        maxListedNames);
+    Preconditions.checkArgument(
+        severalNamesMessage.getPlaceholderNames().equals(ImmutableList.of(NAMES_PLACEHOLDER)),
+        "severalNamesMessage must be compiled with the %s placeholder only", NAMES_PLACEHOLDER);
+    this.singleNameMessage = Preconditions.checkNotNull(singleNameMessage);
+    this.severalNamesMessage = Preconditions.checkNotNull(severalNamesMessage);
+    this.maxListedNames = maxListedNames;
+  }
+
+  @Override
+  public String coalesce(List<String> names) {
+    if (names.size() == 1) {
+      return singleNameMessage.apply(names.get(0));
+    }
+    return severalNamesMessage.render(listNames(names));
+  }
+
+  /** Returns e.g. "A and B", "A, B and C" or "A, B and 2 others". */
+  private String listNames(List<String> names) {
+    if (names.size() <= maxListedNames) {
+      return Joiner.on(", ").join(names.subList(0, names.size() - 1))
+          + " and " + names.get(names.size() - 1);
+    }
+    int others = names.size() - maxListedNames;
+    return Joiner.on(", ").join(names.subList(0, maxListedNames))
+        + " and " + others + (others == 1 ? " other" : " others");
+  }
+}
@@ -0,0 +1,100 @@
+package com.youtube.gaming.mightybot.chat;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * A message waiting in the {@link ChatOutbox}. It either has a fixed text, or a coalescing key and
+ * items that are turned into text by a {@link ChatCoalescingPolicy} when the message is posted, so
+ * that items queued until then are announced together.
+ */
+class OutboundChatMessage {
+  private final String liveChatId;
+  private final ChatPriority priority;
+  private final long sequence;
+  @Nullable
+  private final String consumer;
+  @Nullable
+  private final String text;
+  @Nullable
+  private final String coalescingKey;
+  @Nullable
+  private final ChatCoalescingPolicy coalescingPolicy;
+  private final Set<String> items = new LinkedHashSet<>();
+  private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+  private OutboundChatMessage(String liveChatId, ChatPriority priority, long sequence,
+      @Nullable String consumer, @Nullable String text, @Nullable String coalescingKey,
+      @Nullable ChatCoalescingPolicy coalescingPolicy) {
+    this.liveChatId = liveChatId;
+    this.priority = priority;
+    this.sequence = sequence;
+    this.consumer = consumer;
+    this.text = text;
+    this.coalescingKey = coalescingKey;
+    this.coalescingPolicy = coalescingPolicy;
+  }
+
+  static OutboundChatMessage ofText(String liveChatId, ChatPriority priority, long sequence,
+      @Nullable String consumer, String text) {
+    return new OutboundChatMessage(liveChatId, priority, sequence, consumer, text, null, null);
+  }
+
+  static OutboundChatMessage ofItem(String liveChatId, ChatPriority priority, long sequence,
+      @Nullable String consumer, String coalescingKey, ChatCoalescingPolicy coalescingPolicy,
+      String item) {
+    OutboundChatMessage message = new OutboundChatMessage(liveChatId, priority, sequence,
+        consumer, null, coalescingKey, coalescingPolicy);
+    message.items.add(item);
+    return message;
+  }
+
+  String getLiveChatId() {
+    return liveChatId;
+  }
+
+  ChatPriority getPriority() {
+    return priority;
+  }
+
+  long getSequence() {
+    return sequence;
+  }
+
+  /** Returns the module that queued the message, to which its quota is charged. */
+  @Nullable
+  String getConsumer() {
+    return consumer;
+  }
+
+  /** Returns the fixed text of the message, or {@code null} if it coalesces items. */
+  @Nullable
+  String getText() {
+    return text;
+  }
+
+  /** Returns the coalescing key of the message, or {@code null} if it has a fixed text. */
+  @Nullable
+  String getCoalescingKey() {
+    return coalescingKey;
+  }
+
+  /** Adds an item to announce. Returns {@code false} if it was already queued. */
+  boolean addItem(String item) {
+    return items.add(item);
+  }
+
+  /** Returns the text to post. Must be called while the message can't receive new items. */
+  String render() {
+    return text != null ? text : coalescingPolicy.coalesce(ImmutableList.copyOf(items));
+  }
+
+  CompletableFuture<Void> getResult() {
+    return result;
+  }
+}
@@ -0,0 +1,314 @@
+package com.youtube.gaming.mightybot.fake;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+
+import com.google.api.client.util.DateTime;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.primitives.Longs;
+
+/**
+ * The data served by a {@link FakeYouTubeServer}: a channel, its broadcasts, subscribers and chat
+ * messages. The data evolves with time to look like a live channel: subscribers arrive, viewers
+ * come and go and chatters post messages, at the rates set in the scenario properties.
+ *
+ * <p>
+ * Scenario properties (all optional):
+ * <ul>
+ * <li>{@code channel.id}, {@code channel.subscribers}: the channel and its initial subscriber
+ * count
+ * <li>{@code subscribers.perMinute}: rate at which new subscribers arrive
+ * <li>{@code broadcast<n>.id}, {@code .title}, {@code .lifeCycleStatus}, {@code .type}
+ * ({@code event} or {@code persistent}), {@code .viewers}, {@code .likes}: the active broadcasts,
+ * numbered from 1
+ * <li>{@code chat.messagesPerMinute}: rate at which viewers post messages in each live chat
+ * <li>{@code chat.pollingIntervalMillis}: polling interval returned when listing chat messages
+ * </ul>
+ *
+ * <p>
+ * This class is thread-safe.
+ */
+class FakeScenario {
+  private final Random random;
+  private final String channelId;
+  private final double subscribersPerMinute;
+  private final double chatMessagesPerMinute;
+  private final long chatPollingIntervalMillis;
+  private final List<Broadcast> broadcasts = new ArrayList<>();
+  private final List<Subscriber> subscribers = new ArrayList<>();
+  private final Map<String, List<ChatMessage>> chatMessages = new LinkedHashMap<>();
+
+  private long subscriberCount;
+  private long lastUpdateMillis;
+  private long nextId;
+
+  FakeScenario(Properties properties, Random random, long nowMillis) {
+    this.random = Preconditions.checkNotNull(random);
+    this.channelId = properties.getProperty("channel.id", "UCfakeChannel");
+    this.subscriberCount = getLong(properties, "channel.subscribers", 1000);
+    this.subscribersPerMinute = getDouble(properties, "subscribers.perMinute", 2);
+    this.chatMessagesPerMinute = getDouble(properties, "chat.messagesPerMinute", 20);
+    this.chatPollingIntervalMillis = getLong(properties, "chat.pollingIntervalMillis", 2000);
+    for (int i = 1; properties.containsKey("broadcast" + i + ".id"); i++) {
+      String prefix = "broadcast" + i + ".";
+      Broadcast broadcast = new Broadcast(
+          properties.getProperty(prefix + "id"),
+          properties.getProperty(prefix + "title", "Fake broadcast " + i),
+          properties.getProperty(prefix + "lifeCycleStatus", "live"),
+          properties.getProperty(prefix + "type", "event"),
+          getLong(properties, prefix + "viewers", 100),
+          getLong(properties, prefix + "likes", 10),
+          nowMillis);
+      broadcasts.add(broadcast);
+      chatMessages.put(broadcast.liveChatId, new ArrayList<>());
+    }
+    this.lastUpdateMillis = nowMillis;
+  }
+
+  private static long getLong(Properties properties, String name, long defaultValue) {
+    Long value = Longs.tryParse(properties.getProperty(name, "").trim());
+    return value == null ? defaultValue : value;
+  }
+
+  private static double getDouble(Properties properties, String name, double defaultValue) {
+    String value = properties.getProperty(name, "").trim();
+    return value.isEmpty() ? defaultValue : Double.parseDouble(value);
+  }
+
+  /** Makes the data evolve up to the given time. */
+  synchronized void update(long nowMillis) {
+    double elapsedMinutes = (nowMillis - lastUpdateMillis) / 60000.0;
+    if (elapsedMinutes <= 0) {
+      return;
+    }
+    lastUpdateMillis = nowMillis;
+
+    for (int i = 0; i < samplePoisson(subscribersPerMinute * elapsedMinutes); i++) {
+      subscriberCount++;
+      subscribers.add(new Subscriber("UCfake" + subscriberCount,
+          "Fake subscriber " + subscriberCount, nowMillis));
+    }
+    for (Broadcast broadcast : broadcasts) {
+      if (!broadcast.lifeCycleStatus.equals("live")) {
+        continue;
+      }
+      // Random walk of the viewers, likes only go up
+      broadcast.viewers = Math.max(0,
+          broadcast.viewers + Math.round(random.nextGaussian() * Math.sqrt(broadcast.viewers)));
+      broadcast.likes += samplePoisson(elapsedMinutes * broadcast.viewers / 100.0);
+      int messages = samplePoisson(chatMessagesPerMinute * elapsedMinutes);
+      for (int i = 0; i < messages; i++) {
+        addChatMessage(broadcast.liveChatId, "Fake viewer " + random.nextInt(1000),
+            "Fake message " + nextId, nowMillis);
+      }
+    }
+  }
+
+  private int samplePoisson(double mean) {
+    // Knuth's algorithm, fine for the small means of a scenario
+    double limit = Math.exp(-Math.min(mean, 500));
+    double product = random.nextDouble();
+    int count = 0;
+    while (product > limit) {
+      product *= random.nextDouble();
+      count++;
+    }
+    return count;
+  }
+
+  synchronized Map<String, Object> listChannels(List<String> ids) {
+    List<Object> items = new ArrayList<>();
+    if (ids.contains(channelId)) {
+      items.add(ImmutableMap.of(
+          "kind", "youtube#channel",
+          "id", channelId,
+          "statistics", ImmutableMap.of("subscriberCount", Long.toString(subscriberCount))));
+    }
+    return listResponse("youtube#channelListResponse", items, null);
+  }
+
+  synchronized Map<String, Object> listVideos(List<String> ids) {
+    List<Object> items = new ArrayList<>();
+    for (Broadcast broadcast : broadcasts) {
+      if (ids.contains(broadcast.id)) {
+        Map<String, Object> liveStreamingDetails = new LinkedHashMap<>();
+        liveStreamingDetails.put("actualStartTime", rfc3339(broadcast.actualStartTimeMillis));
+        if (broadcast.lifeCycleStatus.equals("live")) {
+          liveStreamingDetails.put("concurrentViewers", Long.toString(broadcast.viewers));
+          liveStreamingDetails.put("activeLiveChatId", broadcast.liveChatId);
+        }
+        items.add(ImmutableMap.of(
+            "kind", "youtube#video",
+            "id", broadcast.id,
+            "statistics", ImmutableMap.of("likeCount", Long.toString(broadcast.likes)),
+            "liveStreamingDetails", liveStreamingDetails));
+      }
+    }
+    return listResponse("youtube#videoListResponse", items, null);
+  }
+
+  synchronized Map<String, Object> listActiveBroadcasts(String broadcastType) {
+    List<Object> items = new ArrayList<>();
+    for (Broadcast broadcast : broadcasts) {
+      if (!broadcastType.equals("all") && !broadcastType.equals(broadcast.type)) {
+        continue;
+      }
+      Map<String, Object> snippet = new LinkedHashMap<>();
+      snippet.put("title", broadcast.title);
+      snippet.put("liveChatId", broadcast.liveChatId);
+      if (broadcast.lifeCycleStatus.equals("live")) {
+        snippet.put("actualStartTime", rfc3339(broadcast.actualStartTimeMillis));
+      }
+      items.add(ImmutableMap.of(
+          "kind", "youtube#liveBroadcast",
+          "id", broadcast.id,
+          "snippet", snippet,
+          "status", ImmutableMap.of("lifeCycleStatus", broadcast.lifeCycleStatus)));
+    }
+    return listResponse("youtube#liveBroadcastListResponse", items, null);
+  }
+
+  /** Lists the subscribers of the channel, most recent first. */
+  synchronized Map<String, Object> listRecentSubscribers(int maxResults, int offset) {
+    List<Object> items = new ArrayList<>();
+    int end = Math.min(subscribers.size() - offset, subscribers.size());
+    for (int i = end - 1; i >= 0 && items.size() < maxResults; i--) {
+      Subscriber subscriber = subscribers.get(i);
+      items.add(ImmutableMap.of(
+          "kind", "youtube#subscription",
+          "snippet", ImmutableMap.of("publishedAt", rfc3339(subscriber.publishedAtMillis)),
+          "subscriberSnippet", ImmutableMap.of(
+              "channelId", subscriber.channelId, "title", subscriber.name)));
+    }
+    int nextOffset = offset + items.size();
+    Map<String, Object> response = listResponse("youtube#subscriptionListResponse", items,
+        nextOffset < subscribers.size() ? Integer.toString(nextOffset) : null);
+    response.put("pageInfo", ImmutableMap.of(
+        "totalResults", subscribers.size(), "resultsPerPage", maxResults));
+    return response;
+  }
+
+  /**
+   * Lists the messages of a live chat from the given position, or returns {@code null} if the chat
+   * does not exist.
+   */
+  synchronized Map<String, Object> listChatMessages(String liveChatId, int offset,
+      int maxResults) {
+    List<ChatMessage> messages = chatMessages.get(liveChatId);
+    if (messages == null) {
+      return null;
+    }
+    List<Object> items = new ArrayList<>();
+    int end = Math.min(messages.size(), offset + maxResults);
+    for (int i = Math.max(0, offset); i < end; i++) {
+      ChatMessage message = messages.get(i);
+      items.add(ImmutableMap.of(
+          "kind", "youtube#liveChatMessage",
+          "id", message.id,
+          "snippet", ImmutableMap.builder()
+              .put("type", "textMessageEvent")
+              .put("liveChatId", liveChatId)
+              .put("publishedAt", rfc3339(message.publishedAtMillis))
+              .put("displayMessage", message.text)
+              .put("textMessageDetails", ImmutableMap.of("messageText", message.text))
+              .build(),
+          "authorDetails", ImmutableMap.of("displayName", message.author)));
+    }
+    Map<String, Object> response = listResponse("youtube#liveChatMessageListResponse", items,
+        Integer.toString(Math.max(offset, end)));
+    response.put("pollingIntervalMillis", chatPollingIntervalMillis);
+    return response;
+  }
+
+  /**
+   * Posts a message to a live chat as the channel owner, or returns {@code null} if the chat does
+   * not exist.
+   */
+  synchronized Map<String, Object> insertChatMessage(String liveChatId, String text,
+      long nowMillis) {
+    if (!chatMessages.containsKey(liveChatId)) {
+      return null;
+    }
+    ChatMessage message = addChatMessage(liveChatId, "Fake channel owner", text, nowMillis);
+    return ImmutableMap.of("kind", "youtube#liveChatMessage", "id", message.id);
+  }
+
+  private ChatMessage addChatMessage(String liveChatId, String author, String text,
+      long nowMillis) {
+    ChatMessage message = new ChatMessage("msg" + nextId++, author, text, nowMillis);
+    chatMessages.get(liveChatId).add(message);
+    return message;
+  }
+
+  private static Map<String, Object> listResponse(String kind, List<Object> items,
+      String nextPageToken) {
+    Map<String, Object> response = new LinkedHashMap<>();
+    response.put("kind", kind);
+    if (nextPageToken != null) {
+      response.put("nextPageToken", nextPageToken);
+    }
+    response.put("pageInfo",
+        ImmutableMap.of("totalResults", items.size(), "resultsPerPage", items.size()));
+    response.put("items", ImmutableList.copyOf(items));
+    return response;
+  }
+
+  private static String rfc3339(long millis) {
+    return new DateTime(millis).toStringRfc3339();
+  }
+
+  private static class Broadcast {
+    private final String id;
+    private final String title;
+    private final String lifeCycleStatus;
+    private final String type;
+    private final String liveChatId;
+    private final long actualStartTimeMillis;
+    private long viewers;
+    private long likes;
+
+    Broadcast(String id, String title, String lifeCycleStatus, String type, long viewers,
+        long likes, long actualStartTimeMillis) {
+      this.id = id;
+      this.title = title;
+      this.lifeCycleStatus = lifeCycleStatus;
+      this.type = type;
+      this.liveChatId = "chat-" + id;
+      this.viewers = viewers;
+      this.likes = likes;
+      this.actualStartTimeMillis = actualStartTimeMillis;
+    }
+  }
+
+  private static class Subscriber {
+    private final String channelId;
+    private final String name;
+    private final long publishedAtMillis;
+
+    Subscriber(String channelId, String name, long publishedAtMillis) {
+      this.channelId = channelId;
+      this.name = name;
+      this.publishedAtMillis = publishedAtMillis;
+    }
+  }
+
+  private static class ChatMessage {
+    private final String id;
+    private final String author;
+    private final String text;
+    private final long publishedAtMillis;
+
+    ChatMessage(String id, String author, String text, long publishedAtMillis) {
+      this.id = id;
+      this.author = author;
+      this.text = text;
+      this.publishedAtMillis = publishedAtMillis;
+    }
+  }
+}
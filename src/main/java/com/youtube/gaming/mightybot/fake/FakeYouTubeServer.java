@@ -0,0 +1,427 @@
+package com.youtube.gaming.mightybot.fake;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.youtube.gaming.mightybot.api.QuotaBudget;
+
+/**
+ * A local stand-in for the endpoints of the YouTube Data API used by the bot, to run the bot
+ * offline or load test it without spending quota. Point the bot to it with the
+ * {@code api.rootUrl} property.
+ *
+ * <p>
+ * The server implements {@code liveBroadcasts.list}, {@code videos.list}, {@code channels.list},
+ * {@code subscriptions.list}, {@code liveChatMessages.list}, {@code liveChatMessages.insert} and
+ * batch requests, serving the data of a {@link FakeScenario}. It honors {@code If-None-Match}
+ * headers. Each request is delayed according to a {@link LatencyDistribution}, and errors can be
+ * injected at random. Quota is charged like YouTube does, and requests fail with
+ * {@code quotaExceeded} once the daily limit is reached.
+ *
+ * <p>
+ * Server properties, read along with the {@link FakeScenario} properties:
+ * <ul>
+ * <li>{@code port}: the port to listen on, {@code 0} for any free port
+ * <li>{@code latency.distribution}, {@code latency.medianMillis}, {@code latency.spread}: the
+ * latency added to each request
+ * <li>{@code errors.serverErrorRate}, {@code errors.rateLimitRate},
+ * {@code errors.quotaExceededRate}: probabilities that a request fails with a
+ * {@code 503 backendError}, a {@code 403 rateLimitExceeded} or a {@code 403 quotaExceeded}
+ * <li>{@code quota.dailyLimit}: quota units after which every request fails with
+ * {@code quotaExceeded}
+ * </ul>
+ */
+public class FakeYouTubeServer {
+  private static final Logger logger = LoggerFactory.getLogger(FakeYouTubeServer.class);
+
+  private static final String SERVICE_PATH = "/youtube/v3/";
+  private static final String BATCH_PATH = "/batch/youtube/v3";
+  private static final JsonFactory JSON_FACTORY = JacksonFactory.getDefaultInstance();
+
+  private final FakeScenario scenario;
+  private final Clock clock;
+  private final Random random;
+  private final LatencyDistribution latencyDistribution;
+  private final long latencyMedianMillis;
+  private final double latencySpread;
+  private final double serverErrorRate;
+  private final double rateLimitRate;
+  private final double quotaExceededRate;
+  private final long quotaDailyLimit;
+  private final AtomicLong quotaUsed = new AtomicLong();
+  private final AtomicLong requestCount = new AtomicLong();
+  private final HttpServer server;
+
+  /**
+   * Creates a server serving the given scenario. The server does not listen until
+   * {@link #start()} is called.
+   *
+   * @param properties the server and scenario properties
+   * @param clock the clock making the scenario evolve
+   * @param random the source of randomness, seeded for reproducible runs
+   */
+  public FakeYouTubeServer(Properties properties, Clock clock, Random random) throws IOException {
+    this.clock = clock;
+    this.random = random;
+    this.scenario = new FakeScenario(properties, random, clock.millis());
+    this.latencyDistribution = LatencyDistribution
+        .valueOf(properties.getProperty("latency.distribution", "LOGNORMAL").trim());
+    this.latencyMedianMillis =
+        Long.parseLong(properties.getProperty("latency.medianMillis", "80").trim());
+    this.latencySpread = Double.parseDouble(properties.getProperty("latency.spread", "0.5").trim());
+    this.serverErrorRate = getRate(properties, "errors.serverErrorRate");
+    this.rateLimitRate = getRate(properties, "errors.rateLimitRate");
+    this.quotaExceededRate = getRate(properties, "errors.quotaExceededRate");
+    this.quotaDailyLimit =
+        Long.parseLong(properties.getProperty("quota.dailyLimit", "10000").trim());
+
+    int port = Integer.parseInt(properties.getProperty("port", "8089").trim());
+    this.server = HttpServer.create(
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    server.createContext(SERVICE_PATH, this::handleExchange);
+    server.createContext(BATCH_PATH, this::handleBatchExchange);
+    server.setExecutor(Executors.newCachedThreadPool(
+        new ThreadFactoryBuilder().setNameFormat("fake-youtube-%d").setDaemon(true).build()));
+  }
+
+  private static double getRate(Properties properties, String name) {
+    return Double.parseDouble(properties.getProperty(name, "0").trim());
+  }
+
+  /** Starts listening. */
+  public void start() {
+    server.start();
+    logger.info("Fake YouTube Data API listening on {}", getRootUrl());
+  }
+
+  /** Stops listening, waiting up to the given number of seconds for requests to complete. */
+  public void stop(int delaySeconds) {
+    server.stop(delaySeconds);
+    logger.info("Fake YouTube Data API served {} requests using {} quota units",
+        requestCount.get(), quotaUsed.get());
+  }
+
+  /** Returns the root URL to give to the bot, e.g. {@code http://127.0.0.1:8089/}. */
+  public String getRootUrl() {
+    InetSocketAddress address = server.getAddress();
+    return String.format("http://%s:%d/", address.getHostString(), address.getPort());
+  }
+
+  /** Returns the number of quota units used so far. */
+  public long getQuotaUsed() {
+    return quotaUsed.get();
+  }
+
+  private void handleExchange(HttpExchange exchange) throws IOException {
+    try {
+      sleepLatency();
+      InputStream requestBody = exchange.getRequestBody();
+      // The client library compresses the content of requests by default
+      if ("gzip".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+        requestBody = new GZIPInputStream(requestBody);
+      }
+      byte[] body = ByteStreams.toByteArray(requestBody);
+      FakeResponse response = handle(exchange.getRequestMethod(),
+          exchange.getRequestURI().getRawPath(), exchange.getRequestURI().getRawQuery(),
+          exchange.getRequestHeaders().getFirst("If-None-Match"), body);
+      send(exchange, response);
+    } finally {
+      exchange.close();
+    }
+  }
+
+  /**
+   * Handles a batch request: a {@code multipart/mixed} body in which each part is an HTTP request,
+   * answered by a {@code multipart/mixed} body in which each part is the HTTP response.
+   */
+  private void handleBatchExchange(HttpExchange exchange) throws IOException {
+    try {
+      sleepLatency();
+      String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+      String boundary = contentType.substring(contentType.indexOf("boundary=") + 9);
+      String body = new String(ByteStreams.toByteArray(exchange.getRequestBody()),
+          StandardCharsets.UTF_8);
+
+      StringBuilder responseBody = new StringBuilder();
+      String responseBoundary = "batch_" + Long.toHexString(random.nextLong());
+      for (String part : body.split("--" + boundary)) {
+        int requestStart = part.indexOf("\r\n\r\n");
+        if (requestStart < 0) {
+          // Preamble or closing boundary
+          continue;
+        }
+        String[] request = part.substring(requestStart + 4).split("\r\n\r\n", 2);
+        List<String> requestLines = Splitter.on("\r\n").splitToList(request[0]);
+        List<String> requestLine = Splitter.on(' ').splitToList(requestLines.get(0));
+        String ifNoneMatch = null;
+        for (String header : requestLines.subList(1, requestLines.size())) {
+          if (header.toLowerCase().startsWith("if-none-match:")) {
+            ifNoneMatch = header.substring(header.indexOf(':') + 1).trim();
+          }
+        }
+        String target = requestLine.get(1);
+        int queryStart = target.indexOf('?');
+        String path = queryStart < 0 ? target : target.substring(0, queryStart);
+        String query = queryStart < 0 ? null : target.substring(queryStart + 1);
+        // Paths in batches may be absolute URLs
+        path = path.substring(path.indexOf(SERVICE_PATH));
+        byte[] partBody = request.length > 1
+            ? request[1].trim().getBytes(StandardCharsets.UTF_8)
+            : new byte[0];
+
+        FakeResponse response =
+            handle(requestLine.get(0), path, query, ifNoneMatch, partBody);
+        responseBody.append("--").append(responseBoundary).append("\r\n")
+            .append("Content-Type: application/http\r\n\r\n")
+            .append("HTTP/1.1 ").append(response.status).append(' ')
+            .append(getReasonPhrase(response.status)).append("\r\n");
+        if (response.etag != null) {
+          responseBody.append("ETag: ").append(response.etag).append("\r\n");
+        }
+        if (response.body.length > 0) {
+          responseBody.append("Content-Type: application/json; charset=UTF-8\r\n")
+              .append("Content-Length: ").append(response.body.length).append("\r\n\r\n")
+              .append(new String(response.body, StandardCharsets.UTF_8)).append("\r\n");
+        } else {
+          responseBody.append("Content-Length: 0\r\n\r\n");
+        }
+      }
+      responseBody.append("--").append(responseBoundary).append("--\r\n");
+
+      byte[] bytes = responseBody.toString().getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type",
+          "multipart/mixed; boundary=" + responseBoundary);
+      exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, bytes.length);
+      try (OutputStream output = exchange.getResponseBody()) {
+        output.write(bytes);
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+
+  /** Handles a single API request. */
+  private FakeResponse handle(String method, String path, @Nullable String rawQuery,
+      @Nullable String ifNoneMatch, byte[] body) throws IOException {
+    requestCount.incrementAndGet();
+    Map<String, String> query = parseQuery(rawQuery);
+    String resource = path.substring(path.indexOf(SERVICE_PATH) + SERVICE_PATH.length());
+    String endpoint = (resource.equals("liveChat/messages") ? "liveChatMessages" : resource)
+        + (method.equals("POST") ? ".insert" : ".list");
+
+    // Errors are decided before charging, like YouTube does for backend errors
+    double dice = random.nextDouble();
+    if (dice < serverErrorRate) {
+      return error(HttpURLConnection.HTTP_UNAVAILABLE, "backendError", "Injected backend error");
+    }
+    dice -= serverErrorRate;
+    if (dice < rateLimitRate) {
+      return error(HttpURLConnection.HTTP_FORBIDDEN, "rateLimitExceeded", "Injected rate limit");
+    }
+    dice -= rateLimitRate;
+    if (dice < quotaExceededRate
+        || quotaUsed.get() + QuotaBudget.getCost(endpoint) > quotaDailyLimit) {
+      return error(HttpURLConnection.HTTP_FORBIDDEN, "quotaExceeded", "Quota exceeded");
+    }
+    quotaUsed.addAndGet(QuotaBudget.getCost(endpoint));
+
+    scenario.update(clock.millis());
+    Map<String, Object> response;
+    switch (endpoint) {
+      case "channels.list":
+        response = scenario.listChannels(splitIds(query.get("id")));
+        break;
+      case "videos.list":
+        response = scenario.listVideos(splitIds(query.get("id")));
+        break;
+      case "liveBroadcasts.list":
+        response = scenario.listActiveBroadcasts(query.getOrDefault("broadcastType", "event"));
+        break;
+      case "subscriptions.list":
+        response = scenario.listRecentSubscribers(getInt(query, "maxResults", 5),
+            getInt(query, "pageToken", 0));
+        break;
+      case "liveChatMessages.list":
+        response = scenario.listChatMessages(query.get("liveChatId"),
+            getInt(query, "pageToken", 0), getInt(query, "maxResults", 500));
+        break;
+      case "liveChatMessages.insert":
+        response = insertChatMessage(body);
+        break;
+      default:
+        return error(HttpURLConnection.HTTP_NOT_FOUND, "notFound", "Unknown endpoint " + endpoint);
+    }
+    if (response == null) {
+      return error(HttpURLConnection.HTTP_NOT_FOUND, "liveChatNotFound", "Unknown live chat");
+    }
+
+    byte[] json = JSON_FACTORY.toByteArray(response);
+    String etag = '"' + Hashing.murmur3_128().hashBytes(json).toString() + '"';
+    if (etag.equals(ifNoneMatch)) {
+      return new FakeResponse(HttpURLConnection.HTTP_NOT_MODIFIED, etag, new byte[0]);
+    }
+    return new FakeResponse(HttpURLConnection.HTTP_OK, etag, json);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Nullable
+  private Map<String, Object> insertChatMessage(byte[] body) throws IOException {
+    Map<String, Object> message;
+    try (Reader reader = new InputStreamReader(new ByteArrayInputStream(body),
+        StandardCharsets.UTF_8)) {
+      message = JSON_FACTORY.fromReader(reader, HashMap.class);
+    }
+    Map<String, Object> snippet = (Map<String, Object>) message.get("snippet");
+    Map<String, Object> details = (Map<String, Object>) snippet.get("textMessageDetails");
+    return scenario.insertChatMessage((String) snippet.get("liveChatId"),
+        (String) details.get("messageText"), clock.millis());
+  }
+
+  private static FakeResponse error(int status, String reason, String message) throws IOException {
+    Map<String, Object> error = ImmutableMap.of("error", ImmutableMap.of(
+        "code", status,
+        "message", message,
+        "errors", ImmutableList.of(ImmutableMap.of(
+            "domain", "youtube.fake", "reason", reason, "message", message))));
+    return new FakeResponse(status, null, JSON_FACTORY.toByteArray(error));
+  }
+
+  private static void send(HttpExchange exchange, FakeResponse response) throws IOException {
+    if (response.etag != null) {
+      exchange.getResponseHeaders().set("ETag", response.etag);
+    }
+    if (response.body.length == 0) {
+      exchange.sendResponseHeaders(response.status, -1);
+      return;
+    }
+    exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+    exchange.sendResponseHeaders(response.status, response.body.length);
+    try (OutputStream output = exchange.getResponseBody()) {
+      output.write(response.body);
+    }
+  }
+
+  private static String getReasonPhrase(int status) {
+    switch (status) {
+      case HttpURLConnection.HTTP_OK:
+        return "OK";
+      case HttpURLConnection.HTTP_NOT_MODIFIED:
+        return "Not Modified";
+      case HttpURLConnection.HTTP_FORBIDDEN:
+        return "Forbidden";
+      case HttpURLConnection.HTTP_NOT_FOUND:
+        return "Not Found";
+      default:
+        return "Service Unavailable";
+    }
+  }
+
+  private void sleepLatency() {
+    long latencyMillis =
+        latencyDistribution.sampleMillis(random, latencyMedianMillis, latencySpread);
+    if (latencyMillis > 0) {
+      try {
+        Thread.sleep(latencyMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private static Map<String, String> parseQuery(@Nullable String rawQuery)
+      throws UnsupportedEncodingException {
+    Map<String, String> query = new HashMap<>();
+    if (rawQuery == null) {
+      return query;
+    }
+    for (String parameter : Splitter.on('&').omitEmptyStrings().split(rawQuery)) {
+      int equals = parameter.indexOf('=');
+      if (equals > 0) {
+        query.put(URLDecoder.decode(parameter.substring(0, equals), "UTF-8"),
+            URLDecoder.decode(parameter.substring(equals + 1), "UTF-8"));
+      }
+    }
+    return query;
+  }
+
+  private static List<String> splitIds(@Nullable String ids) {
+    return ids == null ? ImmutableList.<String>of() : Arrays.asList(ids.split(","));
+  }
+
+  private static int getInt(Map<String, String> query, String name, int defaultValue) {
+    String value = query.get(name);
+    return value == null ? defaultValue : Integer.parseInt(value);
+  }
+
+  /** A response to a single API request. */
+  private static class FakeResponse {
+    private final int status;
+    @Nullable
+    private final String etag;
+    private final byte[] body;
+
+    FakeResponse(int status, @Nullable String etag, byte[] body) {
+      this.status = status;
+      this.etag = etag;
+      this.body = body;
+    }
+  }
+
+  /**
+   * Runs the server until the process is stopped.
+   *
+   * @param args optionally, the path of a properties file with the server and scenario properties
+   */
+  public static void main(String[] args) throws IOException {
+    Properties properties = new Properties();
+    if (args.length > 0) {
+      try (InputStream input = Files.newInputStream(Paths.get(args[0]))) {
+        properties.load(input);
+      }
+    } else {
+      // A live broadcast, so that every module has something to show
+      properties.setProperty("broadcast1.id", "fakeBroadcast");
+    }
+    FakeYouTubeServer server =
+        new FakeYouTubeServer(properties, Clock.systemDefaultZone(), new Random());
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(0)));
+    server.start();
+  }
+}
@@ -0,0 +1,41 @@
+package com.youtube.gaming.mightybot.fake;
+
+import java.util.Random;
+
+/**
+ * Distributions of the latency the {@link FakeYouTubeServer} adds to its responses. Each
+ * distribution is parameterized by a median and a spread.
+ */
+public enum LatencyDistribution {
+  /** Always the median. */
+  FIXED {
+    @Override
+    long sampleMillis(Random random, long medianMillis, double spread) {
+      return medianMillis;
+    }
+  },
+  /**
+   * Uniformly distributed between {@code median * (1 - spread)} and
+   * {@code median * (1 + spread)}.
+   */
+  UNIFORM {
+    @Override
+    long sampleMillis(Random random, long medianMillis, double spread) {
+      double factor = 1 + spread * (2 * random.nextDouble() - 1);
+      return Math.round(medianMillis * Math.max(0, factor));
+    }
+  },
+  /**
+   * Log-normally distributed with the given median, {@code spread} being the standard deviation of
+   * the logarithm. Gives the long tail of real network latencies.
+   */
+  LOGNORMAL {
+    @Override
+    long sampleMillis(Random random, long medianMillis, double spread) {
+      return Math.round(medianMillis * Math.exp(spread * random.nextGaussian()));
+    }
+  };
+
+  /** Returns a random latency in milliseconds. */
+  abstract long sampleMillis(Random random, long medianMillis, double spread);
+}
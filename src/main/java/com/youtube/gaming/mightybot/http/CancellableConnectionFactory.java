@@ -0,0 +1,68 @@
+package com.youtube.gaming.mightybot.http;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+import javax.annotation.Nullable;
+
+import com.google.api.client.http.javanet.ConnectionFactory;
+import com.google.api.client.http.javanet.DefaultConnectionFactory;
+
+/**
+ * A {@link ConnectionFactory} that tracks the connections opened in a {@link CancellationScope},
+ * so that all HTTP requests made for a module run can be aborted from another thread. Interrupting
+ * a thread is not enough for that, since blocking socket reads ignore interrupts.
+ *
+ * <p>
+ * Only the connections opened while the calling thread is in a scope are tracked. The connections
+ * of threads that outlive module runs, such as the chat pollers, are left alone.
+ */
+public class CancellableConnectionFactory implements ConnectionFactory {
+  private final ConnectionFactory delegate = new DefaultConnectionFactory();
+  private final ThreadLocal<CancellationScope> currentScope = new ThreadLocal<>();
+
+  @Override
+  public HttpURLConnection openConnection(URL url) throws IOException {
+    HttpURLConnection connection = delegate.openConnection(url);
+    CancellationScope scope = currentScope.get();
+    if (scope != null && !scope.register(connection)) {
+      throw new InterruptedIOException("The request was cancelled");
+    }
+    return connection;
+  }
+
+  /**
+   * Makes the connections opened by the current thread belong to the given scope, until
+   * {@link #exit(CancellationScope)} is called.
+   *
+   * @param scope the scope to enter, or {@code null} to stop tracking connections
+   * @return the scope the thread was in before, to be given to {@link #exit(CancellationScope)}
+   */
+  @Nullable
+  public CancellationScope enter(@Nullable CancellationScope scope) {
+    CancellationScope previous = currentScope.get();
+    setCurrentScope(scope);
+    return previous;
+  }
+
+  /** Puts the current thread back in the scope it was in before the last call to {@link #enter}. */
+  public void exit(@Nullable CancellationScope previous) {
+    setCurrentScope(previous);
+  }
+
+  /** Returns the scope of the current thread, or {@code null} if it isn't in any. */
+  @Nullable
+  public CancellationScope getCurrentScope() {
+    return currentScope.get();
+  }
+
+  private void setCurrentScope(@Nullable CancellationScope scope) {
+    if (scope == null) {
+      currentScope.remove();
+    } else {
+      currentScope.set(scope);
+    }
+  }
+}
@@ -0,0 +1,61 @@
+package com.youtube.gaming.mightybot.http;
+
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The HTTP connections opened on behalf of a single module run, so that they can all be aborted
+ * when the run takes too long. Threads {@linkplain CancellableConnectionFactory#enter enter} the
+ * scope of the run they work for, and the connections they open are tracked until the scope is
+ * {@linkplain #close() closed}.
+ *
+ * <p>
+ * This class is thread-safe.
+ */
+public final class CancellationScope {
+  private final List<HttpURLConnection> connections = new ArrayList<>();
+  private boolean cancelled;
+  private boolean closed;
+
+  /** Returns {@code false} if the scope was cancelled and the connection must not be used. */
+  synchronized boolean register(HttpURLConnection connection) {
+    if (cancelled) {
+      return false;
+    }
+    if (!closed) {
+      connections.add(connection);
+    }
+    return true;
+  }
+
+  /**
+   * Aborts the connections opened in this scope. Requests blocked on them fail with an
+   * {@link java.io.IOException IOException}, and so do the requests sent in this scope afterwards.
+   */
+  public void cancel() {
+    List<HttpURLConnection> aborted;
+    synchronized (this) {
+      cancelled = true;
+      aborted = new ArrayList<>(connections);
+      connections.clear();
+    }
+    for (HttpURLConnection connection : aborted) {
+      connection.disconnect();
+    }
+  }
+
+  /** Returns whether this scope was {@linkplain #cancel() cancelled}. */
+  public synchronized boolean isCancelled() {
+    return cancelled;
+  }
+
+  /**
+   * Forgets about the connections opened in this scope, without aborting them. Connections opened
+   * in it afterwards are no longer tracked.
+   */
+  public synchronized void close() {
+    closed = true;
+    connections.clear();
+  }
+}
@@ -0,0 +1,41 @@
+package com.youtube.gaming.mightybot.http;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+
+import com.google.api.client.googleapis.GoogleUtils;
+import com.google.api.client.http.javanet.ConnectionFactory;
+import com.google.api.client.http.javanet.NetHttpTransport;
+
+/**
+ * Utility methods to create HTTP transports.
+ */
+public final class HttpTransports {
+
+  /**
+   * Configures the pool of persistent connections shared by all transports of the JVM. Idle
+   * connections to YouTube are kept open and reused by the next requests, which saves a TCP and TLS
+   * handshake per request. Must be called before the first connection is opened.
+   *
+   * @param maxConnections maximum number of idle connections kept open per host
+   * @param keepAlive whether connections are kept open at all
+   */
+  public static void configureConnectionPool(int maxConnections, boolean keepAlive) {
+    System.setProperty("http.keepAlive", Boolean.toString(keepAlive));
+    System.setProperty("http.maxConnections", Integer.toString(maxConnections));
+  }
+
+  /**
+   * Creates a transport trusting the Google certificates, like
+   * {@code GoogleNetHttpTransport.newTrustedTransport()}, but opening its connections with the
+   * given connection factory. Share a single transport across the bot so that connections are
+   * reused.
+   */
+  public static NetHttpTransport newTrustedTransport(ConnectionFactory connectionFactory)
+      throws GeneralSecurityException, IOException {
+    return new NetHttpTransport.Builder()
+        .trustCertificates(GoogleUtils.getCertificateTrustStore())
+        .setConnectionFactory(connectionFactory)
+        .build();
+  }
+}
@@ -0,0 +1,49 @@
+package com.youtube.gaming.mightybot.http;
+
+import java.io.IOException;
+
+import javax.annotation.Nullable;
+
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpRequestInitializer;
+
+/**
+ * Applies the transport settings of the bot (timeouts and compression) to every request, after the
+ * given delegate (typically the OAuth credential) initialized it.
+ */
+public class TransportRequestInitializer implements HttpRequestInitializer {
+  @Nullable
+  private final HttpRequestInitializer delegate;
+  private final int connectTimeoutMillis;
+  private final int readTimeoutMillis;
+  private final boolean gzip;
+
+  /**
+   * Creates a new initializer.
+   *
+   * @param delegate the initializer to run first, or {@code null} for none
+   * @param connectTimeoutMillis timeout to establish a connection, {@code 0} for none
+   * @param readTimeoutMillis timeout to read data from an established connection, {@code 0} for
+   *        none
+   * @param gzip whether to accept gzip-compressed responses
+   */
+  public TransportRequestInitializer(@Nullable HttpRequestInitializer delegate,
+      int connectTimeoutMillis, int readTimeoutMillis, boolean gzip) {
+    this.delegate = delegate;
+    this.connectTimeoutMillis = connectTimeoutMillis;
+    this.readTimeoutMillis = readTimeoutMillis;
+    this.gzip = gzip;
+  }
+
+  @Override
+  public void initialize(HttpRequest request) throws IOException {
+    if (delegate != null) {
+      delegate.initialize(request);
+    }
+    request.setConnectTimeout(connectTimeoutMillis);
+    request.setReadTimeout(readTimeoutMillis);
+    if (!gzip) {
+      request.getHeaders().setAcceptEncoding("identity");
+    }
+  }
+}
@@ -0,0 +1,182 @@
+package com.youtube.gaming.mightybot.modules;
+
+import java.io.IOException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.youtube.gaming.mightybot.AsyncYouTube;
+import com.youtube.gaming.mightybot.MightyContext;
+import com.youtube.gaming.mightybot.Module;
+import com.youtube.gaming.mightybot.api.BroadcastInfo;
+import com.youtube.gaming.mightybot.api.VideoStatistics;
+import com.youtube.gaming.mightybot.exceptions.InvalidConfigurationException;
+import com.youtube.gaming.mightybot.properties.MightyProperty;
+import com.youtube.gaming.mightybot.template.Template;
+import com.youtube.gaming.mightybot.util.ModuleUtils;
+
+/**
+ * Outputs the concurrent viewers and likes of all active broadcasts in specified files on the
+ * computer: the totals over all broadcasts, and one line per broadcast. The statistics of all
+ * broadcasts are requested at once, so this module costs as much quota with one broadcast as with
+ * several.
+ */
+public class ActiveBroadcastsConcurrentViewersAndLikes extends Module {
+  private static final Logger logger =
+      LoggerFactory.getLogger(ActiveBroadcastsConcurrentViewersAndLikes.class);
+
+  private static final String CONCURRENT_VIEWERS_OUTPUT_FILE = "concurrentViewers.outputFile";
+  private static final String LIKES_OUTPUT_FILE = "likes.outputFile";
+  private static final String PER_BROADCAST_OUTPUT_FILE = "perBroadcast.outputFile";
+  private static final String PER_BROADCAST_FORMAT = "perBroadcast.format";
+  private static final String DEFAULT_PER_BROADCAST_FORMAT =
+      "{title}: {viewers} viewers, {likes} likes";
+  private static final String INTERVAL = "interval";
+  private static final int MINIMUM_INTERVAL = 5;
+  /** Maximum number of ids YouTube accepts in a single videos.list request. */
+  private static final int MAX_IDS_PER_REQUEST = 50;
+
+  private Path concurrentViewersOutputPath;
+  private Path likesOutputPath;
+  private Path perBroadcastOutputPath;
+  private Template perBroadcastFormat;
+  /** Reused by each run to render the per broadcast lines. */
+  private final StringBuilder perBroadcastBuffer = new StringBuilder();
+
+  @Override
+  public void checkProperties() throws InvalidConfigurationException {
+    ModuleUtils.assertModuleFileExistsAndWriteable(getProperties(), CONCURRENT_VIEWERS_OUTPUT_FILE,
+        Optional.of("total concurrent viewers for active broadcasts"));
+    ModuleUtils.assertModuleFileExistsAndWriteable(getProperties(), LIKES_OUTPUT_FILE,
+        Optional.of("total likes for active broadcasts"));
+    ModuleUtils.assertModuleFileExistsAndWriteable(getProperties(), PER_BROADCAST_OUTPUT_FILE,
+        Optional.of("per broadcast concurrent viewers and likes"));
+    compilePerBroadcastFormat();
+
+    getProperties().throwIfNullOrEmpty(INTERVAL, "Interval can't be empty");
+    if (getProperties().getInt(INTERVAL) < MINIMUM_INTERVAL) {
+      throw new InvalidConfigurationException(getProperties().addPrefix(INTERVAL),
+          "Interval can't be less than 5s");
+    }
+  }
+
+  private Template compilePerBroadcastFormat() {
+    return ModuleUtils.compileModuleTemplate(getProperties(), PER_BROADCAST_FORMAT,
+        DEFAULT_PER_BROADCAST_FORMAT, "title", "viewers", "likes");
+  }
+
+  @Override
+  public void init() {
+    perBroadcastFormat = compilePerBroadcastFormat();
+    logger.info("Watching concurrent viewers and likes of all active broadcasts on channel {}",
+        getProperties().get(MightyProperty.CHANNEL_ID));
+
+    concurrentViewersOutputPath = Paths.get(getProperties().get(CONCURRENT_VIEWERS_OUTPUT_FILE));
+    likesOutputPath = Paths.get(getProperties().get(LIKES_OUTPUT_FILE));
+    perBroadcastOutputPath = Paths.get(getProperties().get(PER_BROADCAST_OUTPUT_FILE));
+    logger.info("Writing total concurrent viewers count for active broadcasts to file: {}",
+        concurrentViewersOutputPath.toAbsolutePath().toString());
+    logger.info("Writing total likes count for active broadcasts to file: {}",
+        likesOutputPath.toAbsolutePath().toString());
+    logger.info("Writing concurrent viewers and likes of each active broadcast to file: {}",
+        perBroadcastOutputPath.toAbsolutePath().toString());
+  }
+
+  @Override
+  @Nullable
+  public Set<String> getRequiredOauthScopes() {
+    return ImmutableSet.of("https://www.googleapis.com/auth/youtube");
+  }
+
+  @Override
+  public Duration getInterval() {
+    return Duration.ofSeconds(getProperties().getInt(INTERVAL));
+  }
+
+  @Override
+  public boolean requiresLiveBroadcast() {
+    return true;
+  }
+
+  @Override
+  public void run(MightyContext context) throws Exception {
+    List<BroadcastInfo> activeBroadcasts = context.youTubeHelper().getActiveBroadcasts();
+    List<String> videoIds = new ArrayList<>(activeBroadcasts.size());
+    for (BroadcastInfo activeBroadcast : activeBroadcasts) {
+      videoIds.add(activeBroadcast.getId());
+    }
+
+    // Usually a single request, sent from the module thread so that it can be batched with the
+    // requests of other modules. The requests for more than MAX_IDS_PER_REQUEST active broadcasts
+    // are sent at once.
+    List<List<String>> videoIdsOfRequests = Lists.partition(videoIds, MAX_IDS_PER_REQUEST);
+    List<List<VideoStatistics>> responses = new ArrayList<>();
+    if (videoIdsOfRequests.size() == 1) {
+      responses.add(context.youTubeApi().listVideoStatistics(videoIdsOfRequests.get(0)));
+    } else {
+      List<CompletableFuture<List<VideoStatistics>>> requests = new ArrayList<>();
+      for (List<String> videoIdsOfRequest : videoIdsOfRequests) {
+        requests.add(context.asyncYouTube().listVideoStatistics(videoIdsOfRequest));
+      }
+      for (CompletableFuture<List<VideoStatistics>> request : requests) {
+        responses.add(AsyncYouTube.await(request));
+      }
+    }
+    Map<String, VideoStatistics> statisticsById = new HashMap<>();
+    for (List<VideoStatistics> response : responses) {
+      for (VideoStatistics statistics : response) {
+        statisticsById.put(statistics.getId(), statistics);
+      }
+    }
+
+    long totalConcurrentViewers = 0;
+    long totalLikes = 0;
+    perBroadcastBuffer.setLength(0);
+    for (BroadcastInfo activeBroadcast : activeBroadcasts) {
+      VideoStatistics statistics = statisticsById.get(activeBroadcast.getId());
+      long concurrentViewers = statistics == null ? 0 : statistics.getConcurrentViewers();
+      long likes = statistics == null ? 0 : statistics.getLikeCount();
+      totalConcurrentViewers += concurrentViewers;
+      totalLikes += likes;
+      if (perBroadcastBuffer.length() > 0) {
+        perBroadcastBuffer.append(System.lineSeparator());
+      }
+      perBroadcastFormat.renderTo(perBroadcastBuffer, activeBroadcast.getTitle(),
+          concurrentViewers, likes);
+    }
+    String perBroadcast = perBroadcastBuffer.toString();
+    reportValue(perBroadcast);
+
+    writeOutput(context, concurrentViewersOutputPath, "activeBroadcasts.viewers",
+        Long.toString(totalConcurrentViewers), "total concurrent viewers");
+    writeOutput(context, likesOutputPath, "activeBroadcasts.likes", Long.toString(totalLikes),
+        "total likes");
+    writeOutput(context, perBroadcastOutputPath, "activeBroadcasts.perBroadcast", perBroadcast,
+        "per broadcast concurrent viewers and likes");
+  }
+
+  private void writeOutput(MightyContext context, Path path, String overlayName, String content,
+      String friendlyName) throws IOException {
+    context.overlayHub().publish(overlayName, content);
+    try {
+      context.outputSink().write(path, content);
+    } catch (FileSystemException e) {
+      logger.warn("Output writing of {} failed. Skipping...", friendlyName, e);
+    }
+  }
+}
@@ -1,12 +1,11 @@
 package com.youtube.gaming.mightybot.modules;
 
-import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.file.FileSystemException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
+import java.time.Duration;
 import java.util.Date;
 import java.util.Set;
 
@@ -18,6 +17,7 @@ import org.slf4j.LoggerFactory;
 import com.google.common.base.Optional;
 import com.youtube.gaming.mightybot.MightyContext;
 import com.youtube.gaming.mightybot.Module;
+import com.youtube.gaming.mightybot.Trigger;
 import com.youtube.gaming.mightybot.util.ModuleUtils;
 
 /** Outputs the current time in a specified file on the computer. */
@@ -46,8 +46,14 @@ public class CurrentTime extends Module {
   }
 
   @Override
-  public long getIntervalSecond() {
-    return 1;
+  public Duration getInterval() {
+    return Duration.ofMinutes(1);
+  }
+
+  /** Runs at every minute boundary, which is when the displayed time changes. */
+  @Override
+  public Trigger getTrigger() {
+    return Trigger.alignedTo(getInterval());
   }
 
   @Override
@@ -59,8 +65,10 @@ public class CurrentTime extends Module {
   @Override
   public void run(MightyContext context) throws IOException {
     // Writing output
-    try (BufferedWriter writer = Files.newBufferedWriter(outputPath)) {
-      writer.write(simpleDateFormat.format(Date.from(context.clock().instant())));
+    String time = simpleDateFormat.format(Date.from(context.clock().instant()));
+    context.overlayHub().publish("time", time);
+    try {
+      context.outputSink().write(outputPath, time);
     } catch (FileSystemException e) {
       logger.warn("Output writing failed. Skipping...");
     }
@@ -1,12 +1,12 @@
 package com.youtube.gaming.mightybot.modules;
 
-import java.io.BufferedWriter;
 import java.io.IOException;
-import java.math.BigInteger;
 import java.nio.file.FileSystemException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
 
 import javax.annotation.Nullable;
@@ -14,16 +14,17 @@ import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.api.services.youtube.YouTube;
-import com.google.api.services.youtube.model.LiveBroadcast;
-import com.google.api.services.youtube.model.Video;
-import com.google.api.services.youtube.model.VideoListResponse;
 import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.youtube.gaming.mightybot.MightyContext;
 import com.youtube.gaming.mightybot.Module;
+import com.youtube.gaming.mightybot.api.BroadcastInfo;
+import com.youtube.gaming.mightybot.api.VideoStatistics;
 import com.youtube.gaming.mightybot.exceptions.InvalidConfigurationException;
+import com.youtube.gaming.mightybot.output.OutputSink;
 import com.youtube.gaming.mightybot.properties.MightyProperty;
+import com.youtube.gaming.mightybot.template.Template;
 import com.youtube.gaming.mightybot.util.ModuleUtils;
 
 /**
@@ -35,11 +36,15 @@ public class MostRecentLiveBroadcastConcurrentViewersAndLikes extends Module {
 
   private static final String CONCURRENT_VIEWERS_OUTPUT_FILE = "concurrentViewers.outputFile";
   private static final String LIKES_OUTPUT_FILE = "likes.outputFile";
+  private static final String CONCURRENT_VIEWERS_FORMAT = "concurrentViewers.format";
+  private static final String LIKES_FORMAT = "likes.format";
   private static final String INTERVAL = "interval";
   private static final int MINIMUM_INTERVAL = 5;
 
   private Path concurrentViewersOutputPath;
   private Path likesOutputPath;
+  private Template concurrentViewersFormat;
+  private Template likesFormat;
 
   @Override
   public void checkProperties() throws InvalidConfigurationException {
@@ -47,6 +52,8 @@ public class MostRecentLiveBroadcastConcurrentViewersAndLikes extends Module {
         Optional.of("concurrent viewers for most recent live broadcast"));
     ModuleUtils.assertModuleFileExistsAndWriteable(getProperties(), LIKES_OUTPUT_FILE,
         Optional.of("likes for most recent live broadcast"));
+    compileConcurrentViewersFormat();
+    compileLikesFormat();
 
     getProperties().throwIfNullOrEmpty(INTERVAL, "Interval can't be empty");
     if (getProperties().getInt(INTERVAL) < MINIMUM_INTERVAL) {
@@ -55,8 +62,19 @@ public class MostRecentLiveBroadcastConcurrentViewersAndLikes extends Module {
     }
   }
 
+  private Template compileConcurrentViewersFormat() {
+    return ModuleUtils.compileModuleTemplate(getProperties(), CONCURRENT_VIEWERS_FORMAT,
+        "{viewers}", "viewers");
+  }
+
+  private Template compileLikesFormat() {
+    return ModuleUtils.compileModuleTemplate(getProperties(), LIKES_FORMAT, "{likes}", "likes");
+  }
+
   @Override
   public void init() {
+    concurrentViewersFormat = compileConcurrentViewersFormat();
+    likesFormat = compileLikesFormat();
     logger.info("Watching concurrent viewers and likes of most recent live broadcast on channel {}",
         getProperties().get(MightyProperty.CHANNEL_ID));
 
@@ -75,62 +93,63 @@ public class MostRecentLiveBroadcastConcurrentViewersAndLikes extends Module {
   }
 
   @Override
-  public long getIntervalSecond() {
-    return getProperties().getInt(INTERVAL);
+  public Duration getInterval() {
+    return Duration.ofSeconds(getProperties().getInt(INTERVAL));
+  }
+
+  @Override
+  public boolean requiresLiveBroadcast() {
+    return true;
   }
 
   @Override
   public void run(MightyContext context) throws Exception {
-    Optional<LiveBroadcast> mostRecentLiveBroadcast =
+    Optional<BroadcastInfo> mostRecentLiveBroadcast =
         context.youTubeHelper().getMostRecentLiveBroadcast();
     if (mostRecentLiveBroadcast.isPresent()) {
-      retrieveAndWriteConcurrentViewersAndLikes(context.youTube(),
+      retrieveAndWriteConcurrentViewersAndLikes(context,
           mostRecentLiveBroadcast.get().getId(), likesOutputPath, concurrentViewersOutputPath);
     } else {
       // No broadcast, so we just write 0 everywhere
-      writeConcurrentViewersAndLikes(BigInteger.ZERO, likesOutputPath, BigInteger.ZERO,
-          concurrentViewersOutputPath);
+      writeConcurrentViewersAndLikes(context, 0, likesOutputPath, 0, concurrentViewersOutputPath);
     }
   }
 
-  private void retrieveAndWriteConcurrentViewersAndLikes(YouTube youTube, String videoId,
+  private void retrieveAndWriteConcurrentViewersAndLikes(MightyContext context, String videoId,
       Path likesPath, Path concurrentViewersPath) throws IOException {
-    YouTube.Videos.List request = youTube.videos().list("statistics,liveStreamingDetails");
-    request.setId(videoId);
-
-    VideoListResponse response = request.execute();
-    if (response.getItems().size() != 1) {
+    List<VideoStatistics> videos =
+        context.youTubeApi().listVideoStatistics(ImmutableList.of(videoId));
+    if (videos.size() != 1) {
       // Should never happen since we specified a specific video id
       throw new RuntimeException(String.format(
-          "YouTube API returned more than one video for id %s: %s", videoId, response.getItems()));
-    }
-    Video video = response.getItems().get(0);
-    BigInteger likes = video.getStatistics().getLikeCount();
-    if (likes == null) {
-      likes = BigInteger.ZERO;
-    }
-    BigInteger concurrentViewers = video.getLiveStreamingDetails().getConcurrentViewers();
-    if (concurrentViewers == null) {
-      concurrentViewers = BigInteger.ZERO;
+          "YouTube API returned more than one video for id %s: %s", videoId, videos));
     }
+    VideoStatistics video = videos.get(0);
+    long likes = video.getLikeCount();
+    long concurrentViewers = video.getConcurrentViewers();
+
+    reportValue(Arrays.asList(likes, concurrentViewers));
 
     // Writing to files
-    writeConcurrentViewersAndLikes(likes, likesPath, concurrentViewers, concurrentViewersPath);
+    writeConcurrentViewersAndLikes(context, likes, likesPath, concurrentViewers,
+        concurrentViewersPath);
   }
 
-  private void writeConcurrentViewersAndLikes(BigInteger likes, Path likesPath,
-      BigInteger concurrentViewers, Path concurrentViewersPath) throws IOException {
-    try (BufferedWriter writer = Files.newBufferedWriter(likesPath)) {
-      writer.write(likes.toString());
+  private void writeConcurrentViewersAndLikes(MightyContext context, long likes, Path likesPath,
+      long concurrentViewers, Path concurrentViewersPath) throws IOException {
+    context.overlayHub().publish("likes", Long.toString(likes));
+    context.overlayHub().publish("viewers", Long.toString(concurrentViewers));
+
+    OutputSink outputSink = context.outputSink();
+    try {
+      outputSink.write(likesPath, likesFormat.render(likes));
     } catch (FileSystemException e) {
       logger.warn("Output writing of likes failed. Skipping...", e);
     }
-    if (concurrentViewers != null) {
-      try (BufferedWriter writer = Files.newBufferedWriter(concurrentViewersPath)) {
-        writer.write(concurrentViewers.toString());
-      } catch (FileSystemException e) {
-        logger.warn("Output writing of concurrent viewers failed. Skipping...", e);
-      }
+    try {
+      outputSink.write(concurrentViewersPath, concurrentViewersFormat.render(concurrentViewers));
+    } catch (FileSystemException e) {
+      logger.warn("Output writing of concurrent viewers failed. Skipping...", e);
     }
   }
 
@@ -1,10 +1,9 @@
 package com.youtube.gaming.mightybot.modules;
 
-import java.io.BufferedWriter;
 import java.nio.file.FileSystemException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.Set;
 
 import javax.annotation.Nullable;
@@ -12,12 +11,13 @@ import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.api.services.youtube.model.LiveBroadcast;
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableSet;
 import com.youtube.gaming.mightybot.MightyContext;
 import com.youtube.gaming.mightybot.Module;
+import com.youtube.gaming.mightybot.api.BroadcastInfo;
 import com.youtube.gaming.mightybot.exceptions.InvalidConfigurationException;
+import com.youtube.gaming.mightybot.template.Template;
 import com.youtube.gaming.mightybot.util.ModuleUtils;
 
 /**
@@ -28,15 +28,19 @@ public class MostRecentLiveBroadcastTitle extends Module {
 
   private static final String CURRENT_LIVE_BROADCAST_TITLE_OUTPUT_FILE =
       "currentLiveBroadcastTitle.outputFile";
+  private static final String CURRENT_LIVE_BROADCAST_TITLE_FORMAT =
+      "currentLiveBroadcastTitle.format";
   private static final String INTERVAL = "interval";
   private static final int MINIMUM_INTERVAL = 15;
 
   private Path currentVideoTitleOutputPath;
+  private Template currentVideoTitleFormat;
 
   @Override
   public void checkProperties() throws InvalidConfigurationException {
     ModuleUtils.assertModuleFileExistsAndWriteable(getProperties(),
         CURRENT_LIVE_BROADCAST_TITLE_OUTPUT_FILE, Optional.of("title for current live broadcast"));
+    compileFormat();
 
     getProperties().throwIfNullOrEmpty(INTERVAL, "Interval can't be empty");
     if (getProperties().getInt(INTERVAL) < MINIMUM_INTERVAL) {
@@ -45,8 +49,14 @@ public class MostRecentLiveBroadcastTitle extends Module {
     }
   }
 
+  private Template compileFormat() {
+    return ModuleUtils.compileModuleTemplate(getProperties(), CURRENT_LIVE_BROADCAST_TITLE_FORMAT,
+        "{title}", "title");
+  }
+
   @Override
   public void init() {
+    currentVideoTitleFormat = compileFormat();
     currentVideoTitleOutputPath =
         Paths.get(getProperties().get(CURRENT_LIVE_BROADCAST_TITLE_OUTPUT_FILE));
     logger.info("Writing title of current live broadcast to file: {}",
@@ -60,23 +70,31 @@ public class MostRecentLiveBroadcastTitle extends Module {
   }
 
   @Override
-  public long getIntervalSecond() {
-    return getProperties().getInt(INTERVAL);
+  public Duration getInterval() {
+    return Duration.ofSeconds(getProperties().getInt(INTERVAL));
+  }
+
+  @Override
+  public boolean requiresLiveBroadcast() {
+    return true;
   }
 
   @Override
   public void run(MightyContext context) throws Exception {
-    Optional<LiveBroadcast> mostRecentLiveBroadcast =
+    Optional<BroadcastInfo> mostRecentLiveBroadcast =
         context.youTubeHelper().getMostRecentLiveBroadcast();
     String title = "";
     if (mostRecentLiveBroadcast.isPresent()) {
-      title = mostRecentLiveBroadcast.get().getSnippet().getTitle();
+      title = mostRecentLiveBroadcast.get().getTitle();
     } else {
       logger.info("No live broadcast found (an active broadcast isn't necessarily live).");
     }
+    reportValue(title);
+    context.overlayHub().publish("title", title);
 
-    try (BufferedWriter writer = Files.newBufferedWriter(currentVideoTitleOutputPath)) {
-      writer.write(title);
+    try {
+      context.outputSink().write(currentVideoTitleOutputPath,
+          currentVideoTitleFormat.render(title));
     } catch (FileSystemException e) {
       logger.warn("Output writing of current live broadcast title failed. Skipping...", e);
     }
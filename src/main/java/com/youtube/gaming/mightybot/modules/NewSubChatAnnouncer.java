@@ -1,10 +1,14 @@
 package com.youtube.gaming.mightybot.modules;
 
 import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.Random;
 import java.util.Set;
 
@@ -13,20 +17,36 @@ import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.api.client.util.DateTime;
-import com.google.api.services.youtube.YouTube;
-import com.google.api.services.youtube.model.Subscription;
-import com.google.api.services.youtube.model.SubscriptionListResponse;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
 import com.youtube.gaming.mightybot.MightyContext;
 import com.youtube.gaming.mightybot.Module;
+import com.youtube.gaming.mightybot.api.Subscriber;
+import com.youtube.gaming.mightybot.api.SubscriberPage;
+import com.youtube.gaming.mightybot.api.YouTubeApi;
+import com.youtube.gaming.mightybot.chat.ChatCoalescingPolicy;
+import com.youtube.gaming.mightybot.chat.ChatPriority;
+import com.youtube.gaming.mightybot.chat.NameListCoalescingPolicy;
 import com.youtube.gaming.mightybot.exceptions.InvalidConfigurationException;
-import com.youtube.gaming.mightybot.properties.MightyProperty;
+import com.youtube.gaming.mightybot.template.Template;
+import com.youtube.gaming.mightybot.util.DynamicPath;
+import com.youtube.gaming.mightybot.util.ModuleUtils;
+import com.youtube.gaming.mightybot.util.ObjectStreamUtils;
 
 /**
  * Posts a message in chat on all currently active broadcasts on behalf of the user when someone
  * subscribes to the channel. Saves the names of the new subscribers while the bot is running to
  * avoid announcing the same name several times. This list is reset when the bot is stopped.
+ * <p>
+ * The module remembers the most recent subscriber it announced, in a state file so that a restart
+ * resumes from there. Each run reads pages of recent subscribers until reaching that subscriber, so
+ * no subscriber is missed even when hundreds subscribe between two runs.
+ * <p>
+ * Messages are queued in the chat outbox rather than posted by the module. When a coalesced message
+ * is configured, subscribers arriving while a chat can't be posted to yet, e.g. during a raid, are
+ * announced together.
  */
 public class NewSubChatAnnouncer extends Module {
   private static final Logger logger = LoggerFactory.getLogger(NewSubChatAnnouncer.class);
@@ -35,10 +55,27 @@ public class NewSubChatAnnouncer extends Module {
   private static final String INTERVAL = "interval";
   private static final int MINIMUM_INTERVAL = 5;
   private static final String MESSAGES_PREFIX = "message";
+  private static final String NAME_PLACEHOLDER = "name";
+  private static final String COALESCED_MESSAGE = "coalescedMessage";
+  private static final String COALESCING_KEY = "newSubscribers";
+  /** Number of names listed in a coalesced message before counting the others. */
+  private static final int MAX_LISTED_NAMES = 2;
+  private static final String STATE_FILE = "stateFile";
+  /** Maximum number of subscribers YouTube returns in a page. */
+  private static final long PAGE_SIZE = 50;
+  /** Maximum number of pages read to catch up with new subscribers in a single run. */
+  private static final int MAX_CATCH_UP_PAGES = 20;
 
   private Set<String> alreadySubscribedCache = new HashSet<String>();
-  private List<String> messages;
-  private DateTime lastPublishedAt;
+  private List<Template> messages;
+  @Nullable
+  private Template coalescedMessage;
+  @Nullable
+  private ChatCoalescingPolicy coalescingPolicy;
+  @Nullable
+  private Path statePath;
+  @Nullable
+  private SubscriberHighWaterMark highWaterMark;
 
   @Override
   public void checkProperties() throws InvalidConfigurationException {
@@ -49,25 +86,53 @@ public class NewSubChatAnnouncer extends Module {
     }
 
     getProperties().throwIfNoneByPrefix(MESSAGES_PREFIX);
-    List<String> messages = getProperties().getByPrefix(MESSAGES_PREFIX);
-    for (String message : messages) {
-      int firstMatch = message.indexOf("{name}");
-      if (firstMatch == -1 || firstMatch != message.lastIndexOf("{name}")) {
-        throw new InvalidConfigurationException(String.format(
-            "There must be one and only one occurrence of '{name}' in your message: '%s'",
-            message));
-      }
-    }
+    compileMessages();
+    compileCoalescedMessage();
   }
 
   @Override
   public void init() {
-    messages = getProperties().getByPrefix(MESSAGES_PREFIX);
+    messages = compileMessages();
+    coalescedMessage = compileCoalescedMessage();
+    coalescingPolicy = coalescedMessage == null
+        ? null
+        : new NameListCoalescingPolicy(this::formatMessage, coalescedMessage, MAX_LISTED_NAMES);
+
+    String stateFile = getProperties().get(STATE_FILE);
+    statePath = Strings.isNullOrEmpty(stateFile) ? null : DynamicPath.locate(stateFile);
+    highWaterMark = restoreHighWaterMark();
+  }
+
+  private List<Template> compileMessages() {
+    List<Template> compiled = new ArrayList<>();
+    for (String message : getProperties().getByPrefix(MESSAGES_PREFIX)) {
+      try {
+        compiled.add(Template.compile(message, NAME_PLACEHOLDER).requireOnce(NAME_PLACEHOLDER));
+      } catch (IllegalArgumentException e) {
+        throw new InvalidConfigurationException(e.getMessage());
+      }
+    }
+    return compiled;
+  }
+
+  @Nullable
+  private Template compileCoalescedMessage() {
+    if (Strings.isNullOrEmpty(getProperties().get(COALESCED_MESSAGE))) {
+      return null;
+    }
+    Template compiled = ModuleUtils.compileModuleTemplate(getProperties(), COALESCED_MESSAGE, null,
+        NameListCoalescingPolicy.NAMES_PLACEHOLDER);
+    try {
+      return compiled.requireOnce(NameListCoalescingPolicy.NAMES_PLACEHOLDER);
+    } catch (IllegalArgumentException e) {
+      throw new InvalidConfigurationException(getProperties().addPrefix(COALESCED_MESSAGE),
+          e.getMessage());
+    }
   }
 
   @Override
-  public long getIntervalSecond() {
-    return getProperties().getInt(INTERVAL);
+  public Duration getInterval() {
+    return Duration.ofSeconds(getProperties().getInt(INTERVAL));
   }
 
   @Override
@@ -78,66 +143,200 @@ public class NewSubChatAnnouncer extends Module {
 
   @Override
   public void run(MightyContext context) throws Exception {
-    List<String> newSubscribers = getNewSubscribers(context);
+    if (highWaterMark == null) {
+      highWaterMark = primeHighWaterMark(context.youTubeApi());
+      saveHighWaterMark();
+      return;
+    }
 
-    if (!newSubscribers.isEmpty()) {
-      List<String> activeLiveChatIds = context.youTubeHelper().getActiveLiveChatIds();
-      if (activeLiveChatIds.isEmpty()) {
-        logger.info("No active chat where to announce new subs");
-        return;
+    NewSubscribers newSubscribers =
+        readNewSubscribers(context.youTubeApi()::listRecentSubscribers, highWaterMark);
+
+    // Announce the subscribers of all pages together
+    if (!newSubscribers.names.isEmpty()) {
+      announce(newSubscribers.names, context.youTubeHelper().getActiveLiveChatIds(), context);
+    }
+
+    if (newSubscribers.truncated) {
+      logger.warn("More than {} new subscribers since the last check, skipping the older ones",
+          MAX_CATCH_UP_PAGES * PAGE_SIZE);
+    }
+    if (newSubscribers.highWaterMark != null) {
+      highWaterMark = newSubscribers.highWaterMark;
+      saveHighWaterMark();
+    }
+  }
+
+  /**
+   * Reads the subscribers more recent than the given high-water mark. Subscribers come most recent
+   * first, so pages are read until reaching the mark, or until {@value #MAX_CATCH_UP_PAGES} pages
+   * were read.
+   */
+  static NewSubscribers readNewSubscribers(SubscriberPages pages,
+      SubscriberHighWaterMark highWaterMark) throws IOException {
+    SubscriberHighWaterMark newHighWaterMark = null;
+    List<String> newSubscribers = new ArrayList<>();
+    String pageToken = null;
+    int pageCount = 0;
+    boolean reachedHighWaterMark = false;
+    do {
+      SubscriberPage page = pages.list(pageToken, PAGE_SIZE);
+      pageCount++;
+      for (Subscriber subscriber : page.getSubscribers()) {
+        if (subscriber.getSubscribedAtMillis() < highWaterMark.subscribedAtMillis) {
+          reachedHighWaterMark = true;
+          break;
+        }
+        if (highWaterMark.covers(subscriber)) {
+          continue;
+        }
+        if (newHighWaterMark == null) {
+          newHighWaterMark = highWaterMark.advanceTo(subscriber.getSubscribedAtMillis());
+        }
+        newHighWaterMark.add(subscriber);
+        newSubscribers.add(subscriber.getName());
       }
+      pageToken = page.getNextPageToken();
+    } while (!reachedHighWaterMark && pageToken != null && pageCount < MAX_CATCH_UP_PAGES);
+
+    return new NewSubscribers(Lists.reverse(newSubscribers), newHighWaterMark,
+        !reachedHighWaterMark && pageToken != null);
+  }
+
+  private void announce(List<String> newSubscribers, List<String> activeLiveChatIds,
+      MightyContext context) {
+    if (activeLiveChatIds.isEmpty()) {
+      logger.info("No active chat where to announce {} new sub(s)", newSubscribers.size());
+      return;
+    }
 
-      // For each new subscriber, post to all chats
-      for (String newSubscriber : newSubscribers) {
-        if (!alreadySubscribedCache.contains(newSubscriber)) {
-          for (String liveChatId : activeLiveChatIds) {
-            postNewSubscriberMessage(liveChatId, newSubscriber, context);
-          }
-          alreadySubscribedCache.add(newSubscriber);
+    // For each new subscriber, queue an announcement in all chats
+    for (String newSubscriber : newSubscribers) {
+      if (alreadySubscribedCache.add(newSubscriber)) {
+        for (String liveChatId : activeLiveChatIds) {
+          queueNewSubscriberMessage(liveChatId, newSubscriber, context);
         }
       }
     }
   }
 
-  private List<String> getNewSubscribers(MightyContext context) throws IOException {
-    YouTube.Subscriptions.List request =
-        context.youTube().subscriptions().list("snippet,subscriberSnippet");
-    request.setKey(getProperties().get(MightyProperty.API_KEY));
-    request.setMyRecentSubscribers(true);
-    if (lastPublishedAt == null) {
-      request.setMaxResults(2L);
-    } else {
-      request.setMaxResults(20L);
+  /** Returns a high-water mark at the most recent subscriber, so that only later ones are new. */
+  private SubscriberHighWaterMark primeHighWaterMark(YouTubeApi youTubeApi) throws IOException {
+    SubscriberPage page = youTubeApi.listRecentSubscribers(null, 1);
+    if (page.getSubscribers().isEmpty()) {
+      return new SubscriberHighWaterMark(0);
     }
+    Subscriber mostRecent = page.getSubscribers().get(0);
+    SubscriberHighWaterMark primed =
+        new SubscriberHighWaterMark(mostRecent.getSubscribedAtMillis());
+    primed.add(mostRecent);
+    logger.info("Announcing subscribers after {}", mostRecent.getName());
+    return primed;
+  }
 
-    SubscriptionListResponse response = request.execute();
+  @Nullable
+  private SubscriberHighWaterMark restoreHighWaterMark() {
+    if (statePath == null || !Files.exists(statePath)) {
+      return null;
+    }
+    try {
+      SubscriberHighWaterMark restored = ObjectStreamUtils.readObjectStreamFromFile(statePath);
+      logger.info("Announcing subscribers since {}",
+          Instant.ofEpochMilli(restored.subscribedAtMillis));
+      return restored;
+    } catch (RuntimeException e) {
+      logger.warn("Could not restore the last announced subscriber from {}", statePath, e);
+      return null;
+    }
+  }
 
-    List<String> newSubscribers = new ArrayList<>();
+  private void saveHighWaterMark() {
+    if (statePath == null) {
+      return;
+    }
+    try {
+      ObjectStreamUtils.writeObjectStreamToFile(statePath, highWaterMark);
+    } catch (RuntimeException e) {
+      logger.warn("Could not save the last announced subscriber to {}", statePath, e);
+    }
+  }
 
-    if (lastPublishedAt == null) {
-      if (response.getPageInfo().getTotalResults() > 1) {
-        lastPublishedAt = response.getItems().get(0).getSnippet().getPublishedAt();
-      }
-    } else if (response.getItems().size() > 0) {
-      ListIterator<Subscription> iterator =
-          response.getItems().listIterator(response.getItems().size());
-      while (iterator.hasPrevious()) {
-        Subscription subscription = iterator.previous();
-        if (subscription.getSnippet().getPublishedAt().getValue() > lastPublishedAt.getValue()) {
-          newSubscribers.add(subscription.getSubscriberSnippet().getTitle());
-          lastPublishedAt = subscription.getSnippet().getPublishedAt();
-        }
-      }
+  private void queueNewSubscriberMessage(String liveChatId, String subscriberName,
+      MightyContext context) {
+    if (coalescingPolicy == null) {
+      context.youTubeHelper().queueTextMessageToLiveChat(liveChatId,
+          formatMessage(subscriberName), ChatPriority.NORMAL);
+    } else {
+      context.youTubeHelper().queueCoalescingTextMessageToLiveChat(liveChatId, COALESCING_KEY,
+          subscriberName, ChatPriority.NORMAL, coalescingPolicy);
     }
+  }
+
+  private String formatMessage(String subscriberName) {
+    return messages.get(r.nextInt(messages.size())).render(subscriberName);
+  }
 
-    return newSubscribers;
+  /** Reads a page of recent subscribers, like {@link YouTubeApi#listRecentSubscribers}. */
+  interface SubscriberPages {
+    SubscriberPage list(@Nullable String pageToken, long maxResults) throws IOException;
   }
 
-  private void postNewSubscriberMessage(String liveChatId, String subscriberName,
-      MightyContext context) throws IOException {
-    String messageFormat = messages.get(r.nextInt(messages.size()));
-    String message = messageFormat.replace("{name}", subscriberName);
+  /** The subscribers found after the high-water mark by a run. */
+  static final class NewSubscribers {
+    /** Names of the new subscribers, oldest first. */
+    final List<String> names;
+    /** The mark at the most recent new subscriber, or {@code null} if there is none. */
+    @Nullable
+    final SubscriberHighWaterMark highWaterMark;
+    /** Whether older new subscribers were left unread because there were too many. */
+    final boolean truncated;
 
-    context.youTubeHelper().postTextMessageToLiveChat(liveChatId, message);
+    NewSubscribers(List<String> names, @Nullable SubscriberHighWaterMark highWaterMark,
+        boolean truncated) {
+      this.names = names;
+      this.highWaterMark = highWaterMark;
+      this.truncated = truncated;
+    }
+  }
+
+  /**
+   * The most recent subscription already announced, saved across restarts. Subscribers at the
+   * same millisecond are told apart by their channel id, or their name if the id is unknown.
+   */
+  static final class SubscriberHighWaterMark implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final long subscribedAtMillis;
+    private final HashSet<String> keysAtMark = new HashSet<>();
+
+    SubscriberHighWaterMark(long subscribedAtMillis) {
+      this.subscribedAtMillis = subscribedAtMillis;
+    }
+
+    /** Returns whether the given subscriber, not older than the mark, was already announced. */
+    boolean covers(Subscriber subscriber) {
+      return subscriber.getSubscribedAtMillis() == subscribedAtMillis
+          && keysAtMark.contains(getKey(subscriber));
+    }
+
+    /** Returns a mark at the given time, which must not be older than this mark. */
+    SubscriberHighWaterMark advanceTo(long newSubscribedAtMillis) {
+      SubscriberHighWaterMark advanced = new SubscriberHighWaterMark(newSubscribedAtMillis);
+      if (newSubscribedAtMillis == subscribedAtMillis) {
+        advanced.keysAtMark.addAll(keysAtMark);
+      }
+      return advanced;
+    }
+
+    /** Marks the given subscriber as announced, if it subscribed at the time of the mark. */
+    void add(Subscriber subscriber) {
+      if (subscriber.getSubscribedAtMillis() == subscribedAtMillis) {
+        keysAtMark.add(getKey(subscriber));
+      }
+    }
+
+    private static String getKey(Subscriber subscriber) {
+      return MoreObjects.firstNonNull(subscriber.getChannelId(), subscriber.getName());
+    }
   }
 }
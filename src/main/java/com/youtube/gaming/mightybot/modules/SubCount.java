@@ -1,12 +1,13 @@
 package com.youtube.gaming.mightybot.modules;
 
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.file.FileSystemException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
 import java.util.Set;
 
 import javax.annotation.Nullable;
@@ -14,28 +15,40 @@ import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.api.services.youtube.YouTube;
-import com.google.api.services.youtube.model.Channel;
-import com.google.api.services.youtube.model.ChannelListResponse;
 import com.google.common.base.Optional;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
 import com.youtube.gaming.mightybot.MightyContext;
 import com.youtube.gaming.mightybot.Module;
+import com.youtube.gaming.mightybot.api.ChannelStatistics;
 import com.youtube.gaming.mightybot.exceptions.InvalidConfigurationException;
 import com.youtube.gaming.mightybot.properties.MightyProperty;
+import com.youtube.gaming.mightybot.template.Template;
 import com.youtube.gaming.mightybot.util.ModuleUtils;
+import com.youtube.gaming.mightybot.watch.WatchedFile;
 
-/** Outputs the user's channel number of subscribers to a specified file on the computer. */
+/**
+ * Outputs the user's channel number of subscribers to a specified file on the computer, using a
+ * format read from another file. The format may also show a sub goal. The format file is watched,
+ * so it can be edited while streaming.
+ */
 public class SubCount extends Module {
   private static final Logger logger = LoggerFactory.getLogger(SubCount.class);
 
   private static final String FORMAT_INPUT_FILE = "formatInputFile";
   private static final String OUTPUT_FILE = "outputFile";
+  private static final String GOAL = "goal";
   private static final String INTERVAL = "interval";
   private static final int MINIMUM_INTERVAL = 5;
+  private static final String SUBS_PLACEHOLDER = "subs";
+  private static final String GOAL_PLACEHOLDER = "goal";
 
   private Path formatInputPath;
   private Path outputPath;
-  private String format;
+  @Nullable
+  private Long goal;
+  @Nullable
+  private WatchedFile<Template> format;
 
   @Override
   public void checkProperties() {
@@ -51,6 +64,32 @@ public class SubCount extends Module {
       throw new RuntimeException(
           String.format("Format input file is not readable: %s", formatInputPath));
     }
+    Template format;
+    try {
+      format = compileFormat(readFormat(formatInputPath));
+    } catch (IOException e) {
+      throw new RuntimeException(
+          String.format("Could not read format input file: %s", formatInputPath), e);
+    } catch (IllegalArgumentException e) {
+      throw new InvalidConfigurationException(getProperties().addPrefix(FORMAT_INPUT_FILE),
+          e.getMessage());
+    }
+
+    String goal = getProperties().get(GOAL);
+    if (Strings.isNullOrEmpty(goal)) {
+      if (format.getOccurrences(GOAL_PLACEHOLDER) > 0) {
+        throw new InvalidConfigurationException(getProperties().addPrefix(GOAL),
+            "Goal can't be empty when the format uses '{goal}'.");
+      }
+    } else {
+      try {
+        Long.parseLong(goal.trim());
+      } catch (NumberFormatException e) {
+        throw new InvalidConfigurationException(getProperties().addPrefix(GOAL),
+            String.format("Goal must be a number: %s", goal));
+      }
+    }
+
     getProperties().throwIfNullOrEmpty(INTERVAL, "Interval can't be empty");
     if (getProperties().getInt(INTERVAL) < MINIMUM_INTERVAL) {
       throw new InvalidConfigurationException(getProperties().addPrefix(INTERVAL),
@@ -62,31 +101,58 @@ public class SubCount extends Module {
   public void init() {
     logger.info("Watching sub count of channel {}", getProperties().get(MightyProperty.CHANNEL_ID));
 
+    if (format != null) {
+      format.cancel();
+      format = null;
+    }
     formatInputPath = Paths.get(getProperties().get(FORMAT_INPUT_FILE));
     outputPath = Paths.get(getProperties().get(OUTPUT_FILE));
-
-    updateFormat();
-    if (format == null) {
+    String goalProperty = getProperties().get(GOAL);
+    Long goal = Strings.isNullOrEmpty(goalProperty) ? null : Long.parseLong(goalProperty.trim());
+    this.goal = goal;
+
+    Template initialFormat;
+    try {
+      initialFormat = loadFormat(formatInputPath, goal);
+    } catch (IOException | IllegalArgumentException e) {
       // We have no format available, so quit immediately
       logger.error("Can't read format file and no format was already loaded. Quitting.");
-      throw new RuntimeException();
+      throw new RuntimeException(e);
     }
+    // Reading the format file only when it changes
+    format = getFileWatcher().watch(formatInputPath, path -> loadFormat(path, goal),
+        initialFormat);
 
     // Displaying startup information
     logger.info("Writing sub count to file: {}", outputPath.toAbsolutePath().toString());
   }
 
-  private void updateFormat() {
+  /**
+   * Reads the format from the given file. The format is rejected if it shows the goal but no goal
+   * is set, so that an edit of the format file can't make the output show an empty goal.
+   */
+  private static Template loadFormat(Path formatInputPath, @Nullable Long goal)
+      throws IOException {
+    Template format = compileFormat(readFormat(formatInputPath));
+    if (goal == null && format.getOccurrences(GOAL_PLACEHOLDER) > 0) {
+      throw new IllegalArgumentException("Goal can't be empty when the format uses '{goal}'.");
+    }
+    return format;
+  }
+
+  private static String readFormat(Path formatInputPath) throws IOException {
     try (BufferedReader reader = Files.newBufferedReader(formatInputPath)) {
-      format = reader.readLine();
-    } catch (IOException e) {
-      logger.warn("Could not read format file. Continuing with previous format.", e);
+      return Strings.nullToEmpty(reader.readLine());
     }
   }
 
+  private static Template compileFormat(String formatText) {
+    return Template.compile(formatText, SUBS_PLACEHOLDER, GOAL_PLACEHOLDER);
+  }
+
   @Override
-  public long getIntervalSecond() {
-    return getProperties().getInt(INTERVAL);
+  public Duration getInterval() {
+    return Duration.ofSeconds(getProperties().getInt(INTERVAL));
   }
 
   @Override
@@ -98,23 +164,19 @@ public class SubCount extends Module {
   @Override
   public void run(MightyContext context) throws IOException {
     // Retrieving channel statistics
-    YouTube.Channels.List request = context.youTube().channels().list("statistics");
-    request.setId(getProperties().get(MightyProperty.CHANNEL_ID));
-    request.setKey(getProperties().get(MightyProperty.API_KEY));
-    ChannelListResponse response = request.execute();
-    if (response.getItems().size() != 1) {
+    List<ChannelStatistics> channels = context.youTubeApi().listChannelStatistics(
+        ImmutableList.of(getProperties().get(MightyProperty.CHANNEL_ID)));
+    if (channels.size() != 1) {
       throw new RuntimeException(
-          String.format("YouTube API didn't return one channel: %s", response.getItems()));
+          String.format("YouTube API didn't return one channel: %s", channels));
     }
-    Channel channel = response.getItems().get(0);
-    String subscriberCount = String.valueOf(channel.getStatistics().getSubscriberCount());
-
-    // Update format
-    updateFormat();
+    long subscriberCount = channels.get(0).getSubscriberCount();
+    reportValue(subscriberCount);
+    context.overlayHub().publish("subs", Long.toString(subscriberCount));
 
     // Writing output
-    try (BufferedWriter writer = Files.newBufferedWriter(outputPath)) {
-      writer.write(format.replace("{subs}", subscriberCount));
+    try {
+      context.outputSink().write(outputPath, format.get().render(subscriberCount, goal));
     } catch (FileSystemException e) {
       logger.warn("Output writing failed. Skipping...");
     }
@@ -1,6 +1,7 @@
 package com.youtube.gaming.mightybot.modules;
 
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
@@ -11,11 +12,16 @@ import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableSet;
 import com.youtube.gaming.mightybot.MightyContext;
 import com.youtube.gaming.mightybot.Module;
+import com.youtube.gaming.mightybot.api.ChatMessage;
+import com.youtube.gaming.mightybot.chat.ChatCursor;
+import com.youtube.gaming.mightybot.chat.ChatPriority;
 import com.youtube.gaming.mightybot.exceptions.InvalidConfigurationException;
 import com.youtube.gaming.mightybot.modules.trivia.TriviaQuestion;
+import com.youtube.gaming.mightybot.template.Template;
 import com.youtube.gaming.mightybot.util.DynamicPath;
 import com.youtube.gaming.mightybot.util.ObjectStreamUtils;
 
@@ -28,12 +34,16 @@ public class Trivia extends Module {
   private static final Logger logger = LoggerFactory.getLogger(Trivia.class);
 
   private static final String DB_FILE_NAME = "trivia.db";
+  private static final Template ANSWER_FOUND_MESSAGE =
+      Template.compile("{name} found the answer: {answer}", "name", "answer");
 
   private Path dbPath;
   private List<TriviaQuestion> triviaQuestions;
 
   private boolean isActive;
   private int currentQuestionIndex;
+  private String liveChatId;
+  private ChatCursor chatCursor;
 
   @Override
   public void checkProperties() throws InvalidConfigurationException {
@@ -64,17 +74,58 @@ public class Trivia extends Module {
   }
 
   @Override
-  public long getIntervalSecond() {
-    return 2;
+  public Duration getInterval() {
+    return Duration.ofSeconds(2);
+  }
+
+  @Override
+  public boolean requiresLiveBroadcast() {
+    return true;
   }
 
   @Override
   public void run(MightyContext context) throws Exception {
+    if (chatCursor == null) {
+      chatCursor = context.chatIngestion().subscribe();
+    }
+
+    Optional<String> mostRecentLiveChatId =
+        context.youTubeHelper().getMostRecentLiveBroadcastLiveChatId();
+    if (isActive && !mostRecentLiveChatId.equals(Optional.of(liveChatId))) {
+      // Nobody can answer in the chat of the question anymore, ask again in the new one
+      logger.info("Live chat {} ended, dropping the current question", liveChatId);
+      isActive = false;
+    }
+
     if (!isActive) {
+      if (!mostRecentLiveChatId.isPresent()) {
+        return;
+      }
+      liveChatId = mostRecentLiveChatId.get();
       currentQuestionIndex = new Random().nextInt(triviaQuestions.size());
-      logger.info(triviaQuestions.get(currentQuestionIndex).getQuestion());
-      logger.info(triviaQuestions.get(currentQuestionIndex).getAnswer());
+      TriviaQuestion question = triviaQuestions.get(currentQuestionIndex);
+      logger.info(question.getQuestion());
+      logger.info(question.getAnswer());
+      context.youTubeHelper().queueTextMessageToLiveChat(liveChatId, question.getQuestion(),
+          ChatPriority.NORMAL);
+      // Answers posted before the question don't count
+      chatCursor.poll();
       isActive = true;
+      return;
+    }
+
+    TriviaQuestion question = triviaQuestions.get(currentQuestionIndex);
+    for (ChatMessage message : chatCursor.poll()) {
+      if (message.getLiveChatId().equals(liveChatId)
+          && question.isCorrect(message.getText().trim())) {
+        logger.info("{} found the answer: {}", message.getAuthorName(), question.getAnswer());
+        // Players are waiting for it, post it before less urgent messages
+        context.youTubeHelper().queueTextMessageToLiveChat(liveChatId,
+            ANSWER_FOUND_MESSAGE.render(message.getAuthorName(), question.getAnswer()),
+            ChatPriority.HIGH);
+        isActive = false;
+        break;
+      }
     }
   }
 
@@ -83,18 +134,4 @@ public class Trivia extends Module {
     return ObjectStreamUtils.readObjectStreamFromFile(dbPath);
   }
 
-//  public void postQuestion() {
-//    LiveChatMessage content = new LiveChatMessage()
-//        .setSnippet(new LiveChatMessageSnippet()
-//            .setLiveChatId(liveChatId)
-//            .setType("textMessageEvent")
-//            .setTextMessageDetails(new LiveChatTextMessageDetails()
-//                .setMessageText(message.replace("{name}", subscriberName))));
-//
-//    YouTube.LiveChatMessages.Insert request =
-//        context.youTube().liveChatMessages().insert("snippet", content);
-//
-//    request.execute();
-//  }
-
 }
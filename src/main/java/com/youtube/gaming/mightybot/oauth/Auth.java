@@ -19,7 +19,6 @@ import com.google.api.client.extensions.jetty.auth.oauth2.LocalServerReceiver;
 import com.google.api.client.googleapis.auth.oauth2.GoogleAuthorizationCodeFlow;
 import com.google.api.client.googleapis.auth.oauth2.GoogleClientSecrets;
 import com.google.api.client.http.HttpTransport;
-import com.google.api.client.http.javanet.NetHttpTransport;
 import com.google.api.client.json.JsonFactory;
 import com.google.api.client.json.jackson2.JacksonFactory;
 import com.google.api.client.util.store.DataStore;
@@ -33,9 +32,6 @@ import com.youtube.gaming.mightybot.util.DynamicPath;
 public class Auth {
   private static final Logger logger = LoggerFactory.getLogger(MightyProperties.class);
 
-  /** Define a global instance of the HTTP transport. */
-  private static final HttpTransport httpTransport = new NetHttpTransport();
-
   /** Define a global instance of the JSON factory. */
   private static final JsonFactory jsonFactory = new JacksonFactory();
 
@@ -50,11 +46,12 @@ public class Auth {
   /**
    * Authorizes the installed application to access user's protected data.
    *
+   * @param httpTransport the HTTP transport used to exchange and refresh tokens
    * @param scopes list of scopes needed to access personal YouTube data
    * @param credentialDatastore name of the credential datastore to cache OAuth tokens
    */
-  public static Credential authorize(List<String> scopes, String credentialDatastore)
-      throws IOException {
+  public static Credential authorize(HttpTransport httpTransport, List<String> scopes,
+      String credentialDatastore) throws IOException {
     // Load client secrets.
     Path clientSecretsPath = DynamicPath.locate(CLIENT_SECRETS);
     if (!clientSecretsPath.toFile().exists()) {
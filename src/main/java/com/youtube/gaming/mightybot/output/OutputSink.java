@@ -0,0 +1,189 @@
+package com.youtube.gaming.mightybot.output;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * Writes the text files read by the streaming software, such as OBS, on behalf of all modules.
+ *
+ * <p>
+ * The sink remembers the last content written to each file and skips writes that would not change
+ * it, so a file updated every second but changing every minute is only written once a minute. The
+ * first write to a file compares with its content on disk, so restarting the bot does not rewrite
+ * unchanged files either.
+ *
+ * <p>
+ * Files are replaced atomically: the new content is written to a temporary file in the same
+ * directory, which is then moved over the file. The streaming software therefore reads either the
+ * old or the new content, never an empty or half-written file. If the file system can't move files
+ * atomically, or if the file is locked by another program as happens on Windows, the file is
+ * written in place instead.
+ *
+ * <p>
+ * This class is thread-safe. Writes to different files run concurrently.
+ */
+public class OutputSink {
+  private static final Logger logger = LoggerFactory.getLogger(OutputSink.class);
+
+  private static final int LOG_STATISTICS_EVERY = 1000;
+  private static final String TEMPORARY_FILE_SUFFIX = ".tmp";
+
+  private final ConcurrentMap<Path, OutputFile> files = new ConcurrentHashMap<>();
+  private final AtomicLong callCount = new AtomicLong();
+  private final AtomicLong writeCount = new AtomicLong();
+  private final AtomicLong skippedCount = new AtomicLong();
+  private final AtomicLong inPlaceCount = new AtomicLong();
+  private final AtomicLong totalWriteNanos = new AtomicLong();
+  private final AtomicLong maxWriteNanos = new AtomicLong();
+
+  /**
+   * Writes the given text to the file at the given path, in UTF-8, unless the file already has this
+   * content.
+   *
+   * @return whether the file was written
+   * @throws IOException if the file could not be written
+   */
+  public boolean write(Path path, String content) throws IOException {
+    byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+    OutputFile file = files.computeIfAbsent(path.toAbsolutePath().normalize(), OutputFile::new);
+    boolean written;
+    synchronized (file) {
+      written = file.write(bytes);
+    }
+    if (!written) {
+      skippedCount.incrementAndGet();
+    }
+    logStatisticsPeriodically();
+    return written;
+  }
+
+  /** Returns the number of files written since the bot started. */
+  public long getWriteCount() {
+    return writeCount.get();
+  }
+
+  /** Returns the number of writes skipped because the content did not change. */
+  public long getSkippedCount() {
+    return skippedCount.get();
+  }
+
+  /** Returns the number of writes that could not be atomic and were made in place. */
+  public long getInPlaceCount() {
+    return inPlaceCount.get();
+  }
+
+  /** Returns the average time taken by a write in microseconds, or 0 if nothing was written. */
+  public long getAverageWriteMicros() {
+    long writes = writeCount.get();
+    return writes == 0 ? 0 : totalWriteNanos.get() / writes / 1000;
+  }
+
+  /** Returns the longest time taken by a write in microseconds. */
+  public long getMaxWriteMicros() {
+    return maxWriteNanos.get() / 1000;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("written", getWriteCount())
+        .add("skipped", getSkippedCount())
+        .add("inPlace", getInPlaceCount())
+        .add("averageWriteMicros", getAverageWriteMicros())
+        .add("maxWriteMicros", getMaxWriteMicros())
+        .toString();
+  }
+
+  private void logStatisticsPeriodically() {
+    if (callCount.incrementAndGet() % LOG_STATISTICS_EVERY == 0) {
+      logger.info("Output files: {}", this);
+    }
+  }
+
+  private void recordWrite(long nanos) {
+    writeCount.incrementAndGet();
+    totalWriteNanos.addAndGet(nanos);
+    maxWriteNanos.accumulateAndGet(nanos, Math::max);
+  }
+
+  /** A file written by the sink, and the content last written to it. */
+  private class OutputFile {
+    private final Path path;
+    private final Path temporaryPath;
+    @Nullable
+    private byte[] lastContent;
+    private boolean atomicMoveFailed;
+
+    OutputFile(Path path) {
+      this.path = path;
+      this.temporaryPath =
+          path.resolveSibling("." + path.getFileName() + TEMPORARY_FILE_SUFFIX);
+    }
+
+    /** Writes the given content unless the file has it already. Returns whether it was written. */
+    boolean write(byte[] content) throws IOException {
+      if (lastContent == null) {
+        lastContent = readCurrentContent();
+      }
+      if (Arrays.equals(lastContent, content)) {
+        return false;
+      }
+
+      long startNanos = System.nanoTime();
+      if (atomicMoveFailed || !replaceAtomically(content)) {
+        Files.write(path, content);
+        inPlaceCount.incrementAndGet();
+      }
+      recordWrite(System.nanoTime() - startNanos);
+      lastContent = content;
+      return true;
+    }
+
+    /**
+     * Replaces the file by a temporary file with the given content. Returns {@code false} if the
+     * file can't be replaced, in which case it should be written in place.
+     */
+    private boolean replaceAtomically(byte[] content) throws IOException {
+      Files.write(temporaryPath, content);
+      try {
+        Files.move(temporaryPath, path, StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+        return true;
+      } catch (AtomicMoveNotSupportedException e) {
+        // Not going to change for this file, so don't try again
+        atomicMoveFailed = true;
+        logger.info("Can't replace {} atomically, writing it in place from now on", path);
+      } catch (AccessDeniedException e) {
+        // Another program has the file open, usually on Windows, try again next time
+        logger.debug("Can't replace {} atomically, writing it in place", path);
+      }
+      Files.deleteIfExists(temporaryPath);
+      return false;
+    }
+
+    @Nullable
+    private byte[] readCurrentContent() {
+      try {
+        return Files.exists(path) ? Files.readAllBytes(path) : null;
+      } catch (IOException e) {
+        return null;
+      }
+    }
+  }
+}
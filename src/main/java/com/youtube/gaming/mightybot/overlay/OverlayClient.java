@@ -0,0 +1,61 @@
+package com.youtube.gaming.mightybot.overlay;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An overlay connected to the {@link OverlayServer}. Events handed by the {@link OverlayHub} wait
+ * in a bounded queue, which the thread serving the connection writes to the overlay. A client
+ * whose queue overflows is disconnected rather than slowing down the hub.
+ */
+class OverlayClient {
+  private static final int QUEUE_CAPACITY = 256;
+  /** Comment sent when nothing happens, so that dead connections are detected. */
+  private static final byte[] KEEP_ALIVE = ": keep-alive\n\n".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] DISCONNECT = new byte[0];
+
+  private final BlockingQueue<byte[]> events = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+  private final long keepAliveMillis;
+  private volatile boolean overflowed;
+
+  OverlayClient(long keepAliveMillis) {
+    this.keepAliveMillis = keepAliveMillis;
+  }
+
+  /** Queues the given event without waiting, disconnecting the client if its queue is full. */
+  void offer(byte[] event) {
+    if (!overflowed && !events.offer(event)) {
+      overflowed = true;
+      events.clear();
+      events.offer(DISCONNECT);
+    }
+  }
+
+  /** Returns whether the client was disconnected because it could not keep up. */
+  boolean isOverflowed() {
+    return overflowed;
+  }
+
+  /**
+   * Writes queued events to the given stream until the client is disconnected, the connection is
+   * closed or the thread is interrupted.
+   */
+  void stream(OutputStream output) throws IOException {
+    try {
+      while (true) {
+        byte[] event = events.poll(keepAliveMillis, TimeUnit.MILLISECONDS);
+        if (event == DISCONNECT) {
+          return;
+        }
+        output.write(event == null ? KEEP_ALIVE : event);
+        output.flush();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,89 @@
+package com.youtube.gaming.mightybot.overlay;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * The named values modules publish for browser overlays, such as {@code "subs"} or
+ * {@code "viewers"}, and the overlays subscribed to them through the {@link OverlayServer}.
+ *
+ * <p>
+ * Each published value that changed is encoded once as a Server-Sent Event, named after the value,
+ * and the same bytes are handed to every subscribed client. A new client first receives the
+ * current value of every name, then the changes as they are published. Publishing never waits for
+ * clients: a client too slow to keep up is disconnected, and browsers reconnect by themselves.
+ *
+ * <p>
+ * Values are kept even while no overlay is connected, so modules can publish unconditionally.
+ *
+ * <p>
+ * This class is thread-safe.
+ */
+public class OverlayHub {
+  // Guarded by this
+  private final Map<String, String> values = new LinkedHashMap<>();
+  private long nextEventId;
+
+  private final Set<OverlayClient> clients = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Publishes the given value to all overlays, unless it did not change since it was last
+   * published.
+   *
+   * @param name the name of the value, which overlays listen to, e.g. {@code "subs"}
+   * @param value the new value
+   */
+  public synchronized void publish(String name, String value) {
+    Preconditions.checkArgument(!name.isEmpty() && name.indexOf('\n') < 0
+        && name.indexOf('\r') < 0, "Invalid value name: %s", name);
+    if (value.equals(values.put(name, value))) {
+      return;
+    }
+    // Fanning out while holding the lock keeps events in order, and offering never blocks
+    byte[] event = encodeEvent(++nextEventId, name, value);
+    for (OverlayClient client : clients) {
+      client.offer(event);
+    }
+  }
+
+  /** Returns the last published value of every name. */
+  public synchronized Map<String, String> getValues() {
+    return ImmutableMap.copyOf(values);
+  }
+
+  /** Returns the number of overlays currently connected. */
+  public int getClientCount() {
+    return clients.size();
+  }
+
+  /** Subscribes the given client, after handing it the current values. */
+  synchronized void connect(OverlayClient client) {
+    for (Map.Entry<String, String> value : values.entrySet()) {
+      client.offer(encodeEvent(nextEventId, value.getKey(), value.getValue()));
+    }
+    clients.add(client);
+  }
+
+  void disconnect(OverlayClient client) {
+    clients.remove(client);
+  }
+
+  /** Encodes a Server-Sent Event, with one data line per line of the value. */
+  private static byte[] encodeEvent(long id, String name, String value) {
+    StringBuilder event = new StringBuilder();
+    event.append("id: ").append(id).append('\n');
+    event.append("event: ").append(name).append('\n');
+    for (String line : Splitter.onPattern("\r\n|\r|\n").split(value)) {
+      event.append("data: ").append(line).append('\n');
+    }
+    event.append('\n');
+    return event.toString().getBytes(StandardCharsets.UTF_8);
+  }
+}
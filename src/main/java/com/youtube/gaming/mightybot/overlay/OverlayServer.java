@@ -0,0 +1,107 @@
+package com.youtube.gaming.mightybot.overlay;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A local HTTP server pushing the values of the {@link OverlayHub} to browser overlays, such as OBS
+ * browser sources, as soon as modules publish them. It only listens on the loopback address.
+ *
+ * <p>
+ * Endpoints:
+ * <ul>
+ * <li>{@code /events}: a Server-Sent Events stream, with one event per value named after it. An
+ * overlay listens to it with
+ * {@code new EventSource("http://127.0.0.1:8090/events").addEventListener("subs", ...)}.
+ * <li>{@code /values}: the current values as a JSON object.
+ * </ul>
+ */
+public class OverlayServer {
+  private static final Logger logger = LoggerFactory.getLogger(OverlayServer.class);
+
+  private static final long KEEP_ALIVE_MILLIS = 15000;
+  /** How long browsers wait before reconnecting, in milliseconds. */
+  private static final int RECONNECT_MILLIS = 2000;
+
+  private final OverlayHub hub;
+  private final HttpServer server;
+
+  /** Creates a server for the given hub. The server does not listen until {@link #start()}. */
+  public OverlayServer(OverlayHub hub, int port) throws IOException {
+    this.hub = hub;
+    this.server = HttpServer.create(
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    server.createContext("/events", this::handleEvents);
+    server.createContext("/values", this::handleValues);
+    // Each overlay keeps a thread writing its events
+    server.setExecutor(Executors.newCachedThreadPool(
+        new ThreadFactoryBuilder().setNameFormat("overlay-%d").setDaemon(true).build()));
+  }
+
+  /** Starts listening. */
+  public void start() {
+    server.start();
+    InetSocketAddress address = server.getAddress();
+    logger.info("Overlay events available at http://{}:{}/events", address.getHostString(),
+        address.getPort());
+  }
+
+  /** Stops listening and disconnects all overlays. */
+  public void stop() {
+    server.stop(0);
+  }
+
+  private void handleEvents(HttpExchange exchange) throws IOException {
+    OverlayClient client = new OverlayClient(KEEP_ALIVE_MILLIS);
+    try {
+      exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+      exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+      // Browser sources are usually local files, which have no origin
+      exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+      exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, 0);
+      OutputStream output = exchange.getResponseBody();
+      output.write(("retry: " + RECONNECT_MILLIS + "\n\n").getBytes(StandardCharsets.UTF_8));
+      output.flush();
+
+      hub.connect(client);
+      logger.debug("Overlay connected, {} connected", hub.getClientCount());
+      client.stream(output);
+    } catch (IOException e) {
+      // The overlay went away
+    } finally {
+      hub.disconnect(client);
+      if (client.isOverflowed()) {
+        logger.warn("Disconnected an overlay that could not keep up");
+      }
+      logger.debug("Overlay disconnected, {} connected", hub.getClientCount());
+      exchange.close();
+    }
+  }
+
+  private void handleValues(HttpExchange exchange) throws IOException {
+    try {
+      byte[] body = JacksonFactory.getDefaultInstance().toByteArray(hub.getValues());
+      exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+      exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+      exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, body.length);
+      try (OutputStream output = exchange.getResponseBody()) {
+        output.write(body);
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+}
@@ -6,31 +6,59 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Properties;
+import java.util.Set;
 import java.util.regex.Pattern;
 
+import javax.annotation.Nullable;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Longs;
 import com.youtube.gaming.mightybot.exceptions.InvalidConfigurationException;
 import com.youtube.gaming.mightybot.util.DynamicPath;
 
-/** Base class to access the bot's properties. */
+/**
+ * Base class to access the bot's properties. The properties can be {@linkplain #readAgain() read
+ * again} and {@linkplain #replaceWith(MightyProperties) replaced} while the bot runs, in which case
+ * everything reading them sees the new values at once.
+ */
 public final class MightyProperties {
   private static final Logger logger = LoggerFactory.getLogger(MightyProperties.class);
 
   /** Name of the bot's properties file. */
   private static final String FILE_NAME = "mighty.properties";
 
+  /** Replaced as a whole, never modified once loaded. */
   private Properties properties = new Properties();
+  private boolean loaded;
+
+  /** Creates properties read from the bot's properties file when first accessed. */
+  public MightyProperties() {}
+
+  /** Creates properties with the given values, which are not read from the file. */
+  MightyProperties(Properties properties) {
+    setProperties(properties);
+  }
 
-  /** Retrieves a predefined bot property. */
+  /**
+   * Retrieves a predefined bot property. Returns the default value of the property if it is absent
+   * or empty.
+   */
   public String get(MightyProperty property) {
-    return get(property.getName());
+    String value = get(property.getName());
+    if (Strings.isNullOrEmpty(value) || value.trim().isEmpty()) {
+      return property.getDefaultValue();
+    }
+    return value;
   }
 
   /** Retrieves a bot property using its canonical name. */
@@ -58,7 +86,7 @@ public final class MightyProperties {
   public List<String> getByPrefix(String prefix) {
     Pattern pattern = Pattern.compile(prefix + "[1-9][0-9]*");
     ImmutableList.Builder<String> propertiesWithPrefix = ImmutableList.builder();
-    for (Entry<Object, Object> property : properties.entrySet()) {
+    for (Entry<Object, Object> property : getProperties().entrySet()) {
       if (pattern.matcher(property.getKey().toString()).matches()) {
         String value = property.getValue().toString().trim();
         if (value.length() > 0) {
@@ -69,9 +97,61 @@ public final class MightyProperties {
     return propertiesWithPrefix.build();
   }
 
-  /** Retrieves a property using its canonical name and converts it to an {@code int}. */
+  /**
+   * Retrieves a property using its canonical name and converts it to an {@code int}.
+   *
+   * @throws InvalidConfigurationException if the value is not a number
+   */
   public int getInt(String property) {
-    return Integer.parseInt(get(property).trim());
+    return (int) parse(property, get(property), Integer.MIN_VALUE, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Retrieves a predefined property and converts it to an {@code int}.
+   *
+   * @throws InvalidConfigurationException if the value is not a number
+   */
+  public int getInt(MightyProperty property) {
+    return (int) parse(property.getName(), get(property), Integer.MIN_VALUE, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Retrieves a predefined property and converts it to a {@code long}.
+   *
+   * @throws InvalidConfigurationException if the value is not a number
+   */
+  public long getLong(MightyProperty property) {
+    return parse(property.getName(), get(property), Long.MIN_VALUE, Long.MAX_VALUE);
+  }
+
+  private static long parse(String property, @Nullable String value, long min, long max) {
+    String trimmed = Strings.nullToEmpty(value).trim();
+    Long number = Longs.tryParse(trimmed);
+    if (number == null || number < min || number > max) {
+      throw new InvalidConfigurationException(property,
+          String.format("'%s' is not a number between %d and %d", trimmed, min, max));
+    }
+    return number;
+  }
+
+  /**
+   * Retrieves a predefined property and converts it to a constant of the given enum. The value is
+   * case insensitive.
+   *
+   * @param property the predefined property to retrieve
+   * @param enumClass the enum to which the value belongs
+   *
+   * @throws InvalidConfigurationException if the value is not one of the enum constants
+   */
+  public <E extends Enum<E>> E getEnum(MightyProperty property, Class<E> enumClass) {
+    String value = Strings.nullToEmpty(get(property)).trim();
+    for (E constant : enumClass.getEnumConstants()) {
+      if (constant.name().equalsIgnoreCase(value)) {
+        return constant;
+      }
+    }
+    throw new InvalidConfigurationException(property.getName(), String.format(
+        "'%s' is not one of %s", value, Arrays.toString(enumClass.getEnumConstants())));
   }
 
   /**
@@ -84,7 +164,9 @@ public final class MightyProperties {
    * @throws InvalidConfigurationException if the property is {@code null} or empty
    */
   public void throwIfNullOrEmpty(MightyProperty property, String userVisibleMessage) {
-    throwIfNullOrEmpty(property.getName(), userVisibleMessage);
+    if (Strings.isNullOrEmpty(get(property))) {
+      throw new InvalidConfigurationException(property.getName(), userVisibleMessage);
+    }
   }
 
   /**
@@ -118,9 +200,65 @@ public final class MightyProperties {
     }
   }
 
+  /** Returns the path of the bot's properties file. */
+  public Path getPath() {
+    return DynamicPath.locate(FILE_NAME);
+  }
+
+  /**
+   * Reads the bot's properties file again. These properties are left unchanged.
+   *
+   * @throws IOException if the file can't be read
+   */
+  public MightyProperties readAgain() throws IOException {
+    MightyProperties reread = new MightyProperties();
+    reread.setProperties(readProperties(getPath()));
+    return reread;
+  }
+
+  /** Returns a copy of these properties, which is not affected when they are replaced. */
+  public MightyProperties copy() {
+    MightyProperties copy = new MightyProperties();
+    copy.setProperties(getProperties());
+    return copy;
+  }
+
+  /**
+   * Returns the names of the properties whose value differs between these properties and the given
+   * ones. Values are trimmed, and an empty property is the same as an absent one.
+   */
+  public Set<String> diff(MightyProperties other) {
+    Properties ours = getProperties();
+    Properties theirs = other.getProperties();
+    Set<String> names = new HashSet<>(ours.stringPropertyNames());
+    names.addAll(theirs.stringPropertyNames());
+    Set<String> changed = new HashSet<>();
+    for (String name : names) {
+      if (!Objects.equals(normalize(ours.getProperty(name)),
+          normalize(theirs.getProperty(name)))) {
+        changed.add(name);
+      }
+    }
+    return changed;
+  }
+
+  private static String normalize(String value) {
+    return Strings.nullToEmpty(value).trim();
+  }
+
+  /** Replaces these properties with the given ones, for example after reading them again. */
+  public void replaceWith(MightyProperties other) {
+    setProperties(other.getProperties());
+  }
+
+  private synchronized void setProperties(Properties properties) {
+    this.properties = properties;
+    loaded = true;
+  }
+
   /** Returns the properties from the bot's property file, initializing them if needed. */
-  private Properties getProperties() {
-    if (properties.isEmpty()) {
+  private synchronized Properties getProperties() {
+    if (!loaded) {
       loadProperties();
     }
     return properties;
@@ -128,14 +266,23 @@ public final class MightyProperties {
 
   /** Loads the properties from the bot's properties file. */
   private void loadProperties() {
-    Path propertiesPath = DynamicPath.locate(FILE_NAME);
+    Path propertiesPath = getPath();
 
     logger.info("Reading properties from: {}", propertiesPath.toAbsolutePath());
+    try {
+      properties = readProperties(propertiesPath);
+      loaded = true;
+    } catch (IOException e) {
+      logger.error("Could not load properties", e);
+    }
+  }
+
+  private static Properties readProperties(Path propertiesPath) throws IOException {
+    Properties properties = new Properties();
     try (InputStream input = new FileInputStream(propertiesPath.toAbsolutePath().toFile());
         Reader reader = new InputStreamReader(input, "UTF-8")) {
       properties.load(reader);
-    } catch (IOException e) {
-      logger.error("Could not load properties", e);
     }
+    return properties;
   }
 }
@@ -1,8 +1,10 @@
 package com.youtube.gaming.mightybot.properties;
 
+import javax.annotation.Nullable;
+
 /**
- * Properties that are enforced to be present by the bot and can be accessed directly by all
- * modules.
+ * Properties that can be accessed directly by all modules. Properties without a default value are
+ * enforced to be present by the bot.
  */
 public enum MightyProperty {
   /**
@@ -18,16 +20,107 @@ public enum MightyProperty {
    */
   API_KEY("apiKey"),
   /** Whether persistent broadcasts ({@code www.youtube.com/live_dashboard}) should be ignored. */
-  IGNORE_PERSISTENT_BROADCASTS("ignorePersistentBroadcasts");
+  IGNORE_PERSISTENT_BROADCASTS("ignorePersistentBroadcasts"),
+  /**
+   * What the scheduler does when a module missed one or more of its runs. See
+   * {@code MissedRunPolicy} for the possible values.
+   */
+  SCHEDULER_MISSED_RUN_POLICY("scheduler.missedRunPolicy", "RUN_ONCE"),
+  /** How modules are run. See {@code ExecutionMode} for the possible values. */
+  SCHEDULER_EXECUTION_MODE("scheduler.executionMode", "SEQUENTIAL"),
+  /** Number of worker threads running modules when the execution mode is {@code POOL}. */
+  SCHEDULER_POOL_SIZE("scheduler.poolSize", "4"),
+  /**
+   * Maximum number of milliseconds a module run may take before it is cancelled, for modules that
+   * don't set their own {@code "moduleName.timeoutMillis"}. {@code 0} disables the timeout.
+   */
+  SCHEDULER_DEFAULT_TIMEOUT_MILLIS("scheduler.defaultTimeoutMillis", "30000"),
+  /**
+   * Number of seconds between each run of the modules that require a live broadcast while no
+   * broadcast is live, for modules that don't set their own {@code "moduleName.idleInterval"}.
+   */
+  SCHEDULER_IDLE_INTERVAL("scheduler.idleInterval", "300"),
+  /**
+   * Root URL of the YouTube Data API. Point it to a {@code FakeYouTubeServer} to run the bot
+   * offline, in which case no OAuth authorization is requested.
+   */
+  API_ROOT_URL("api.rootUrl", "https://www.googleapis.com/"),
+  /** How long {@code channels.list} responses are shared between modules, in milliseconds. */
+  API_CACHE_CHANNELS_TTL_MILLIS("api.cache.channels.ttlMillis", "4000"),
+  /** How long {@code videos.list} responses are shared between modules, in milliseconds. */
+  API_CACHE_VIDEOS_TTL_MILLIS("api.cache.videos.ttlMillis", "4000"),
+  /** Maximum number of responses kept in the cache for each API endpoint. */
+  API_CACHE_MAX_SIZE("api.cache.maxSize", "100"),
+  /**
+   * Maximum number of milliseconds API requests of modules running at the same time are held to be
+   * sent in a single batch, 0 to disable batching.
+   */
+  API_BATCH_WINDOW_MILLIS("api.batch.windowMillis", "100"),
+  /** Maximum number of times a failed API read is sent. */
+  API_RETRY_MAX_ATTEMPTS("api.retry.maxAttempts", "3"),
+  /** Bound of the random delay before the first retry in milliseconds, doubled at each retry. */
+  API_RETRY_BASE_DELAY_MILLIS("api.retry.baseDelayMillis", "250"),
+  /** Maximum bound of the random delay before a retry in milliseconds. */
+  API_RETRY_MAX_DELAY_MILLIS("api.retry.maxDelayMillis", "4000"),
+  /** Number of consecutive failures after which an API endpoint is not called for a while. */
+  API_CIRCUIT_BREAKER_FAILURE_THRESHOLD("api.circuitBreaker.failureThreshold", "5"),
+  /** Time during which a failing API endpoint is not called in milliseconds. */
+  API_CIRCUIT_BREAKER_OPEN_MILLIS("api.circuitBreaker.openMillis", "30000"),
+  /** Maximum number of idle HTTP connections to YouTube kept open for reuse. */
+  HTTP_MAX_CONNECTIONS("http.maxConnections", "10"),
+  /** Whether HTTP connections to YouTube are kept open and reused. */
+  HTTP_KEEP_ALIVE("http.keepAlive", "true"),
+  /** Whether YouTube is asked for gzip-compressed responses. */
+  HTTP_GZIP("http.gzip", "true"),
+  /** Timeout to connect to YouTube in milliseconds, 0 for none. */
+  HTTP_CONNECT_TIMEOUT_MILLIS("http.connectTimeoutMillis", "10000"),
+  /** Timeout to read a response from YouTube in milliseconds, 0 for none. */
+  HTTP_READ_TIMEOUT_MILLIS("http.readTimeoutMillis", "20000"),
+  /** Maximum number of live chat messages kept for modules that did not read them yet. */
+  CHAT_BUFFER_CAPACITY("chat.bufferCapacity", "1000"),
+  /** Minimum delay between two reads of the same live chat in milliseconds. */
+  CHAT_MIN_POLLING_INTERVAL_MILLIS("chat.minPollingIntervalMillis", "1000"),
+  /** Priority of chat reading when the bot runs short of YouTube API quota. */
+  CHAT_QUOTA_PRIORITY("chat.quotaPriority", "0"),
+  /** Maximum number of messages waiting to be posted to live chats. */
+  CHAT_OUTBOX_CAPACITY("chat.outbox.capacity", "100"),
+  /** Minimum delay between two messages posted to the same live chat in milliseconds. */
+  CHAT_OUTBOX_MIN_INTERVAL_MILLIS("chat.outbox.minIntervalMillis", "2000"),
+  /** Whether module values are pushed to browser overlays by a local HTTP server. */
+  OVERLAY_ENABLED("overlay.enabled", "false"),
+  /** Port on which the overlay server listens, on the loopback address only. */
+  OVERLAY_PORT("overlay.port", "8090"),
+  /** Whether changes to the properties file are applied while the bot runs. */
+  RELOAD_ENABLED("reload.enabled", "true"),
+  /** Number of YouTube API quota units the bot may consume per day. */
+  API_QUOTA_DAILY_BUDGET("api.quota.dailyBudget", "10000"),
+  /** File in which the quota consumed today is saved across restarts. */
+  API_QUOTA_STATE_FILE("api.quota.stateFile", "quota.state");
 
   private String name;
+  @Nullable private String defaultValue;
 
   MightyProperty(String name) {
+    this(name, null);
+  }
+
+  MightyProperty(String name, @Nullable String defaultValue) {
     this.name = name;
+    this.defaultValue = defaultValue;
   }
 
   /** Returns the name of the property as it appears in the properties file. */
-  String getName() {
+  public String getName() {
     return name;
   }
+
+  /** Returns the value used when the property is absent or empty, or {@code null} if none. */
+  @Nullable String getDefaultValue() {
+    return defaultValue;
+  }
+
+  /** Returns {@code true} if the property must be present in the properties file. */
+  public boolean isRequired() {
+    return defaultValue == null;
+  }
 }
@@ -0,0 +1,255 @@
+package com.youtube.gaming.mightybot.template;
+
+import java.text.DecimalFormat;
+import java.text.FieldPosition;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * A user-facing format, such as "Sub Goal: {subs}/{goal}", parsed once into literal text and
+ * placeholders. Templates are immutable and can be shared between threads.
+ * <p>
+ * A placeholder is written {@code {name}}, or {@code {name:pattern}} to format numbers with a
+ * {@link DecimalFormat} pattern, e.g. {@code {viewers:#,###}}. A literal brace is written
+ * <code>{{</code>. The names a template may use are declared when {@linkplain #compile compiling}
+ * it, and the values are given in the same order when rendering, so rendering doesn't look
+ * anything up.
+ */
+public final class Template {
+  private static final ThreadLocal<StringBuilder> buffers =
+      ThreadLocal.withInitial(StringBuilder::new);
+
+  private final String text;
+  private final ImmutableList<String> placeholderNames;
+  private final Segment[] segments;
+  private final int[] occurrences;
+
+  private Template(String text, ImmutableList<String> placeholderNames, List<Segment> segments,
+      int[] occurrences) {
+    this.text = text;
+    this.placeholderNames = placeholderNames;
+    this.segments = segments.toArray(new Segment[segments.size()]);
+    this.occurrences = occurrences;
+  }
+
+  /**
+   * Parses the given format.
+   *
+   * @param text the format to parse
+   * @param placeholderNames the names of the placeholders the format may use, in the order their
+   *        values are given to {@link #render(Object...)}
+   * @throws IllegalArgumentException if the format has an unknown placeholder, an unclosed brace
+   *         or an invalid number pattern. The message can be shown to the user as is.
+   */
+  public static Template compile(String text, String... placeholderNames) {
+    Preconditions.checkNotNull(text);
+    ImmutableList<String> names = ImmutableList.copyOf(placeholderNames);
+    List<Segment> segments = new ArrayList<>();
+    int[] occurrences = new int[names.size()];
+
+    StringBuilder literal = new StringBuilder();
+    int i = 0;
+    while (i < text.length()) {
+      char c = text.charAt(i);
+      if (c != '{') {
+        literal.append(c);
+        i++;
+        continue;
+      }
+      if (i + 1 < text.length() && text.charAt(i + 1) == '{') {
+        literal.append('{');
+        i += 2;
+        continue;
+      }
+      int end = text.indexOf('}', i);
+      if (end == -1) {
+        throw new IllegalArgumentException(
+            String.format("Unclosed '{' at position %d in '%s'", i, text));
+      }
+      String placeholder = text.substring(i + 1, end);
+      int colon = placeholder.indexOf(':');
+      String name = colon == -1 ? placeholder : placeholder.substring(0, colon);
+      int index = names.indexOf(name);
+      if (index == -1) {
+        throw new IllegalArgumentException(String.format(
+            "Unknown placeholder '{%s}' in '%s', expected %s", name, text, describe(names)));
+      }
+      DecimalFormat numberFormat = null;
+      if (colon != -1) {
+        String pattern = placeholder.substring(colon + 1);
+        try {
+          numberFormat = new DecimalFormat(pattern);
+        } catch (IllegalArgumentException e) {
+          throw new IllegalArgumentException(String.format(
+              "Invalid number pattern '%s' for '{%s}' in '%s'", pattern, name, text), e);
+        }
+      }
+
+      if (literal.length() > 0) {
+        segments.add(new Literal(literal.toString()));
+        literal.setLength(0);
+      }
+      segments.add(new Placeholder(index, numberFormat));
+      occurrences[index]++;
+      i = end + 1;
+    }
+    if (literal.length() > 0) {
+      segments.add(new Literal(literal.toString()));
+    }
+    return new Template(text, names, segments, occurrences);
+  }
+
+  private static String describe(List<String> names) {
+    if (names.isEmpty()) {
+      return "no placeholder";
+    }
+    return "one of {" + Joiner.on("}, {").join(names) + "}";
+  }
+
+  /** Returns the format this template was parsed from. */
+  public String getText() {
+    return text;
+  }
+
+  /** Returns the names of the placeholders this template may use, in the order of their values. */
+  public List<String> getPlaceholderNames() {
+    return placeholderNames;
+  }
+
+  /** Returns how many times this template uses the given placeholder. */
+  public int getOccurrences(String placeholderName) {
+    int index = placeholderNames.indexOf(placeholderName);
+    Preconditions.checkArgument(index != -1, "Undeclared placeholder: %s", placeholderName);
+    return occurrences[index];
+  }
+
+  /**
+   * Throws if this template doesn't use the given placeholder exactly once.
+   *
+   * @throws IllegalArgumentException with a message that can be shown to the user as is
+   */
+  public Template requireOnce(String placeholderName) {
+    if (getOccurrences(placeholderName) != 1) {
+      throw new IllegalArgumentException(String.format(
+          "There must be one and only one occurrence of '{%s}' in your message: '%s'",
+          placeholderName, text));
+    }
+    return this;
+  }
+
+  /**
+   * Renders this template with the given values, using a buffer reused by the calling thread.
+   *
+   * @param values the values of the placeholders, in the order they were declared in
+   */
+  public String render(Object... values) {
+    StringBuilder buffer = buffers.get();
+    buffer.setLength(0);
+    return renderTo(buffer, values).toString();
+  }
+
+  /**
+   * Appends this template rendered with the given values to the given buffer. Values formatted
+   * with a pattern must be numbers, and {@code null} values are rendered as nothing.
+   *
+   * @param values the values of the placeholders, in the order they were declared in
+   * @return the given buffer
+   */
+  public StringBuilder renderTo(StringBuilder out, Object... values) {
+    Preconditions.checkArgument(values.length == placeholderNames.size(),
+        "Expected %s values for %s, got %s", placeholderNames.size(), placeholderNames,
+        values.length);
+    for (Segment segment : segments) {
+      segment.appendTo(out, values);
+    }
+    return out;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("text", text)
+        .add("placeholderNames", placeholderNames)
+        .toString();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof Template)) {
+      return false;
+    }
+    Template other = (Template) obj;
+    return text.equals(other.text) && placeholderNames.equals(other.placeholderNames);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * text.hashCode() + placeholderNames.hashCode();
+  }
+
+  private interface Segment {
+    void appendTo(StringBuilder out, Object[] values);
+  }
+
+  private static final class Literal implements Segment {
+    private final String text;
+
+    Literal(String text) {
+      this.text = text;
+    }
+
+    @Override
+    public void appendTo(StringBuilder out, Object[] values) {
+      out.append(text);
+    }
+  }
+
+  private static final class Placeholder implements Segment {
+    private final int index;
+    /** Not thread-safe, guarded by itself along with {@link #formatted} and {@link #position}. */
+    @Nullable
+    private final DecimalFormat numberFormat;
+    @Nullable
+    private final StringBuffer formatted;
+    @Nullable
+    private final FieldPosition position;
+
+    Placeholder(int index, @Nullable DecimalFormat numberFormat) {
+      this.index = index;
+      this.numberFormat = numberFormat;
+      this.formatted = numberFormat == null ? null : new StringBuffer();
+      this.position = numberFormat == null ? null : new FieldPosition(0);
+    }
+
+    @Override
+    public void appendTo(StringBuilder out, Object[] values) {
+      Object value = values[index];
+      if (value == null) {
+        return;
+      }
+      if (numberFormat == null || !(value instanceof Number)) {
+        if (value instanceof Long || value instanceof Integer) {
+          out.append(((Number) value).longValue());
+        } else {
+          out.append(value);
+        }
+        return;
+      }
+      synchronized (numberFormat) {
+        formatted.setLength(0);
+        numberFormat.format(value, formatted, position);
+        out.append(formatted);
+      }
+    }
+  }
+}
@@ -5,8 +5,13 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
+import javax.annotation.Nullable;
+
 import com.google.common.base.Optional;
+import com.google.common.base.Strings;
+import com.youtube.gaming.mightybot.exceptions.InvalidConfigurationException;
 import com.youtube.gaming.mightybot.properties.MightyModuleProperties;
+import com.youtube.gaming.mightybot.template.Template;
 
 /**
  * Utility methods for bot modules.
@@ -44,4 +49,32 @@ public class ModuleUtils {
           friendlyNameCapitalized, outputPath));
     }
   }
+
+  /**
+   * Compiles the format read from the given module property.
+   *
+   * @param properties the module properties from which to read the format
+   * @param formatPropertyName the property holding the format
+   * @param defaultFormat the format to use if the property is empty, or {@code null} if the
+   *     property is required
+   * @param placeholderNames the placeholders the format may use, see {@link Template#compile}
+   * @throws InvalidConfigurationException if the format is missing or invalid
+   */
+  public static Template compileModuleTemplate(MightyModuleProperties properties,
+      String formatPropertyName, @Nullable String defaultFormat, String... placeholderNames) {
+    String format = properties.get(formatPropertyName);
+    if (Strings.isNullOrEmpty(format)) {
+      if (defaultFormat == null) {
+        throw new InvalidConfigurationException(properties.addPrefix(formatPropertyName),
+            "Format can't be empty.");
+      }
+      format = defaultFormat;
+    }
+    try {
+      return Template.compile(format, placeholderNames);
+    } catch (IllegalArgumentException e) {
+      throw new InvalidConfigurationException(properties.addPrefix(formatPropertyName),
+          e.getMessage());
+    }
+  }
 }
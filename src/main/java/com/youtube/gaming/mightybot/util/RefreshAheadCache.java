@@ -0,0 +1,196 @@
+package com.youtube.gaming.mightybot.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Clock;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+
+/**
+ * Caches a single value that is expensive to load, such as the result of a YouTube API call.
+ *
+ * <p>
+ * The cached value is an immutable {@link Snapshot} held in an atomic reference, so reading it
+ * never blocks. Only one load runs at a time: callers arriving while a load is in flight share its
+ * result. Once the value is older than its time to live, callers get the stale value while it is
+ * reloaded in the background. Callers only wait for a load when there is no value yet or when the
+ * value is too stale to be served. As long as the value is being read, it is also reloaded in the
+ * background shortly before it expires, so callers normally never pay the load latency.
+ *
+ * @param <T> the type of the cached value, which should be immutable
+ */
+public class RefreshAheadCache<T> {
+  private static final Logger logger = LoggerFactory.getLogger(RefreshAheadCache.class);
+
+  /** Loads the value of a {@link RefreshAheadCache}. */
+  public interface Loader<T> {
+    /** Loads a fresh value. */
+    T load() throws IOException;
+  }
+
+  /** An immutable snapshot of a cached value. */
+  public static final class Snapshot<T> {
+    private final T value;
+    private final long loadedAtMillis;
+    private final long loadLatencyMillis;
+
+    Snapshot(T value, long loadedAtMillis, long loadLatencyMillis) {
+      this.value = value;
+      this.loadedAtMillis = loadedAtMillis;
+      this.loadLatencyMillis = loadLatencyMillis;
+    }
+
+    /** Returns the cached value. */
+    public T getValue() {
+      return value;
+    }
+
+    /** Returns the time at which the load of this value started, in milliseconds. */
+    public long getLoadedAtMillis() {
+      return loadedAtMillis;
+    }
+
+    /** Returns how long it took to load this value, in milliseconds. */
+    public long getLoadLatencyMillis() {
+      return loadLatencyMillis;
+    }
+  }
+
+  private final String name;
+  private final Loader<T> loader;
+  private final Clock clock;
+  private final long timeToLiveMillis;
+  private final long refreshAheadMillis;
+  private final long maxStalenessMillis;
+  private final ScheduledExecutorService scheduler;
+  private final Executor loadExecutor;
+
+  private final AtomicReference<Snapshot<T>> snapshot = new AtomicReference<>();
+  private final AtomicReference<CompletableFuture<Snapshot<T>>> inFlight =
+      new AtomicReference<>();
+  private volatile long lastAccessMillis;
+
+  /**
+   * Creates a new empty cache. Nothing is loaded until {@link #get()} is called.
+   *
+   * @param name name of the cache, used in log messages
+   * @param loader loads the value
+   * @param clock clock used to compute the age of the value
+   * @param timeToLiveMillis age after which the value is reloaded
+   * @param refreshAheadMillis how long before expiry the value is reloaded in the background
+   * @param maxStalenessMillis age after which callers wait for a reload instead of getting the
+   *        stale value
+   * @param scheduler executor timing the refreshes ahead of expiry
+   * @param loadExecutor executor running the loads, which may be the scheduler
+   */
+  public RefreshAheadCache(String name, Loader<T> loader, Clock clock, long timeToLiveMillis,
+      long refreshAheadMillis, long maxStalenessMillis, ScheduledExecutorService scheduler,
+      Executor loadExecutor) {
+    Preconditions.checkArgument(refreshAheadMillis < timeToLiveMillis,
+        "Refresh ahead time must be less than time to live");
+    Preconditions.checkArgument(timeToLiveMillis <= maxStalenessMillis,
+        "Max staleness must be at least the time to live");
+    this.name = Preconditions.checkNotNull(name);
+    this.loader = Preconditions.checkNotNull(loader);
+    this.clock = Preconditions.checkNotNull(clock);
+    this.timeToLiveMillis = timeToLiveMillis;
+    this.refreshAheadMillis = refreshAheadMillis;
+    this.maxStalenessMillis = maxStalenessMillis;
+    this.scheduler = Preconditions.checkNotNull(scheduler);
+    this.loadExecutor = Preconditions.checkNotNull(loadExecutor);
+  }
+
+  /**
+   * Returns the cached value, loading it if there is none yet or if it is too stale. Otherwise,
+   * returns immediately and triggers a background reload if the value is expired.
+   *
+   * @throws IOException if the value had to be loaded and the load failed
+   */
+  public T get() throws IOException {
+    long now = clock.millis();
+    lastAccessMillis = now;
+    Snapshot<T> current = snapshot.get();
+    if (current == null || now - current.loadedAtMillis > maxStalenessMillis) {
+      return await(refresh()).value;
+    }
+    if (now - current.loadedAtMillis >= timeToLiveMillis) {
+      refresh();
+    }
+    return current.value;
+  }
+
+  /** Returns the current snapshot, or an absent optional if nothing was loaded yet. */
+  public Optional<Snapshot<T>> getSnapshot() {
+    return Optional.fromNullable(snapshot.get());
+  }
+
+  /** Starts a load unless one is already in flight, and returns the in-flight load. */
+  private CompletableFuture<Snapshot<T>> refresh() {
+    while (true) {
+      CompletableFuture<Snapshot<T>> current = inFlight.get();
+      if (current != null) {
+        return current;
+      }
+      CompletableFuture<Snapshot<T>> load = new CompletableFuture<>();
+      if (inFlight.compareAndSet(null, load)) {
+        loadExecutor.execute(() -> load(load));
+        return load;
+      }
+    }
+  }
+
+  private void load(CompletableFuture<Snapshot<T>> load) {
+    long start = clock.millis();
+    Snapshot<T> loaded;
+    try {
+      loaded = new Snapshot<>(loader.load(), start, clock.millis() - start);
+    } catch (Throwable e) {
+      // Even for an Error, or the cache would wait for this load forever
+      inFlight.set(null);
+      load.completeExceptionally(e);
+      if (e instanceof Error) {
+        throw (Error) e;
+      }
+      logger.warn("Could not load {}", name, e);
+      return;
+    }
+    snapshot.set(loaded);
+    inFlight.set(null);
+    load.complete(loaded);
+    logger.debug("Loaded {} in {} ms", name, loaded.loadLatencyMillis);
+    scheduleRefreshAhead();
+  }
+
+  /** Reloads the value shortly before it expires, if it was read since the last load. */
+  private void scheduleRefreshAhead() {
+    scheduler.schedule(() -> {
+      if (clock.millis() - lastAccessMillis < timeToLiveMillis) {
+        refresh();
+      }
+    }, timeToLiveMillis - refreshAheadMillis, TimeUnit.MILLISECONDS);
+  }
+
+  private static <T> T await(CompletableFuture<T> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the cache to load");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new RuntimeException(e.getCause());
+    }
+  }
+}
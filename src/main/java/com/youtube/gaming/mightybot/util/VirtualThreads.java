@@ -0,0 +1,50 @@
+package com.youtube.gaming.mightybot.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Utility methods for virtual threads. The bot is compiled for Java 8, so virtual threads are
+ * accessed by reflection and are only available when the bot runs on Java 21 or later.
+ */
+public final class VirtualThreads {
+
+  /** Returns {@code true} if the running JVM supports virtual threads. */
+  public static boolean isSupported() {
+    try {
+      Thread.class.getMethod("ofVirtual");
+      return true;
+    } catch (NoSuchMethodException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Creates an executor that starts a new virtual thread for each task. Threads are named with the
+   * given prefix followed by a counter, e.g. {@code module-0}, {@code module-1}, ...
+   *
+   * @param namePrefix the prefix of the thread names
+   * @return a new executor running each task on its own virtual thread
+   *
+   * @throws UnsupportedOperationException if the running JVM does not support virtual threads
+   */
+  public static ExecutorService newVirtualThreadPerTaskExecutor(String namePrefix) {
+    try {
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      builder = builderClass.getMethod("name", String.class, long.class)
+          .invoke(builder, namePrefix, 0L);
+      ThreadFactory threadFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+      Method newThreadPerTaskExecutor =
+          Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+      return (ExecutorService) newThreadPerTaskExecutor.invoke(null, threadFactory);
+    } catch (NoSuchMethodException | ClassNotFoundException e) {
+      throw new UnsupportedOperationException("Virtual threads require Java 21 or later", e);
+    } catch (IllegalAccessException | InvocationTargetException e) {
+      throw new RuntimeException("Could not create virtual thread executor", e);
+    }
+  }
+}
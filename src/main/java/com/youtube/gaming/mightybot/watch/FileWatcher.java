@@ -0,0 +1,280 @@
+package com.youtube.gaming.mightybot.watch;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ListMultimap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Notifies listeners when files edited by the user change, so that modules don't need to read them
+ * again on every run.
+ *
+ * <p>
+ * The directories of the files are watched with the file system's {@link WatchService}. Changes
+ * are reported once they settled for {@link #SETTLE_DELAY_MILLIS} milliseconds, so that a file
+ * being written isn't read half way. If the file system can't watch a directory, e.g. on some
+ * network drives, its files are polled every {@link #POLLING_INTERVAL_MILLIS} milliseconds
+ * instead. Nothing runs until the first file is watched.
+ *
+ * <p>
+ * This class is thread-safe. Listeners are called from a background thread.
+ */
+public class FileWatcher {
+  private static final Logger logger = LoggerFactory.getLogger(FileWatcher.class);
+
+  /** How long to wait after a change before reporting it, to let the writer finish. */
+  private static final long SETTLE_DELAY_MILLIS = 100;
+  /** How often polled files are checked for changes. */
+  private static final long POLLING_INTERVAL_MILLIS = 2000;
+
+  private final Object lock = new Object();
+  /** Guarded by {@link #lock}, like all the fields below. */
+  private final ListMultimap<Path, Registration> registrations = ArrayListMultimap.create();
+  private final Set<Path> watchedDirectories = new HashSet<>();
+  /** Last known state of the files that can't be watched. */
+  private final Map<Path, FileStamp> polledFiles = new HashMap<>();
+  @Nullable
+  private WatchService watchService;
+  private boolean watchServiceUnavailable;
+  @Nullable
+  private ExecutorService watchExecutor;
+  @Nullable
+  private ScheduledExecutorService pollingExecutor;
+
+  /**
+   * Calls the given listener whenever the given file is created or modified, until the returned
+   * registration is cancelled. Deleting the file isn't reported.
+   */
+  public Registration watch(Path file, Runnable listener) {
+    Path absoluteFile = file.toAbsolutePath().normalize();
+    Registration registration =
+        new Registration(absoluteFile, Preconditions.checkNotNull(listener));
+    synchronized (lock) {
+      boolean alreadyWatched = registrations.containsKey(absoluteFile);
+      registrations.put(absoluteFile, registration);
+      if (!alreadyWatched && !watchDirectory(absoluteFile.getParent())) {
+        startPolling(absoluteFile);
+      }
+    }
+    return registration;
+  }
+
+  /**
+   * Loads the given file again whenever it changes, until {@link WatchedFile#cancel() cancelled}.
+   *
+   * @param file the file to watch
+   * @param loader reads the value of the file
+   * @param initialValue the value of the file when this method is called
+   */
+  public <T> WatchedFile<T> watch(Path file, WatchedFile.Loader<T> loader, T initialValue) {
+    WatchedFile<T> watchedFile = new WatchedFile<>(file, loader, initialValue);
+    watchedFile.setRegistration(watch(file, watchedFile::reload));
+    return watchedFile;
+  }
+
+  /** Returns whether the given directory is watched, registering it if needed. */
+  private boolean watchDirectory(@Nullable Path directory) {
+    if (directory == null || watchServiceUnavailable) {
+      return false;
+    }
+    if (watchedDirectories.contains(directory)) {
+      return true;
+    }
+    try {
+      if (watchService == null) {
+        watchService = directory.getFileSystem().newWatchService();
+        watchExecutor = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("file-watcher").setDaemon(true).build());
+        watchExecutor.execute(this::processEvents);
+      }
+      directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+      watchedDirectories.add(directory);
+      return true;
+    } catch (IOException | RuntimeException e) {
+      if (watchService == null) {
+        watchServiceUnavailable = true;
+        logger.info("Files can't be watched, polling them every {}ms instead",
+            POLLING_INTERVAL_MILLIS, e);
+      } else {
+        logger.info("Can't watch {}, polling its files every {}ms instead", directory,
+            POLLING_INTERVAL_MILLIS, e);
+      }
+      return false;
+    }
+  }
+
+  private void startPolling(Path file) {
+    polledFiles.put(file, FileStamp.of(file));
+    if (pollingExecutor == null) {
+      pollingExecutor = Executors.newSingleThreadScheduledExecutor(
+          new ThreadFactoryBuilder().setNameFormat("file-poller").setDaemon(true).build());
+      pollingExecutor.scheduleWithFixedDelay(this::pollFiles, POLLING_INTERVAL_MILLIS,
+          POLLING_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private void processEvents() {
+    while (true) {
+      WatchKey key;
+      try {
+        key = watchService.take();
+        // Events keep accumulating on the key until it is reset
+        Thread.sleep(SETTLE_DELAY_MILLIS);
+      } catch (InterruptedException | ClosedWatchServiceException e) {
+        return;
+      }
+
+      Path directory = (Path) key.watchable();
+      Set<Path> changedFiles = new HashSet<>();
+      for (WatchEvent<?> event : key.pollEvents()) {
+        if (event.kind() == OVERFLOW) {
+          synchronized (lock) {
+            for (Path file : registrations.keySet()) {
+              if (directory.equals(file.getParent())) {
+                changedFiles.add(file);
+              }
+            }
+          }
+        } else {
+          changedFiles.add(directory.resolve((Path) event.context()));
+        }
+      }
+      if (!key.reset()) {
+        stopWatching(directory);
+      }
+      for (Path file : changedFiles) {
+        notifyListeners(file);
+      }
+    }
+  }
+
+  /** Polls the files of a directory that can no longer be watched, e.g. after it was deleted. */
+  private void stopWatching(Path directory) {
+    synchronized (lock) {
+      watchedDirectories.remove(directory);
+      for (Path file : registrations.keySet()) {
+        if (directory.equals(file.getParent())) {
+          startPolling(file);
+        }
+      }
+    }
+    logger.info("Stopped watching {}, polling its files every {}ms instead", directory,
+        POLLING_INTERVAL_MILLIS);
+  }
+
+  private void pollFiles() {
+    Map<Path, FileStamp> previousStamps;
+    synchronized (lock) {
+      previousStamps = new HashMap<>(polledFiles);
+    }
+    for (Map.Entry<Path, FileStamp> entry : previousStamps.entrySet()) {
+      FileStamp stamp = FileStamp.of(entry.getKey());
+      if (!stamp.equals(entry.getValue())) {
+        synchronized (lock) {
+          polledFiles.replace(entry.getKey(), stamp);
+        }
+        if (stamp.exists) {
+          notifyListeners(entry.getKey());
+        }
+      }
+    }
+  }
+
+  private void notifyListeners(Path file) {
+    List<Registration> listeners;
+    synchronized (lock) {
+      listeners = ImmutableList.copyOf(registrations.get(file));
+    }
+    for (Registration registration : listeners) {
+      try {
+        registration.listener.run();
+      } catch (RuntimeException e) {
+        logger.warn("Error while handling a change of {}", file, e);
+      }
+    }
+  }
+
+  /** A file watched by a listener. */
+  public final class Registration {
+    private final Path file;
+    private final Runnable listener;
+
+    private Registration(Path file, Runnable listener) {
+      this.file = file;
+      this.listener = listener;
+    }
+
+    /** Stops calling the listener. Does nothing if already cancelled. */
+    public void cancel() {
+      synchronized (lock) {
+        if (registrations.remove(file, this) && !registrations.containsKey(file)) {
+          polledFiles.remove(file);
+        }
+      }
+    }
+  }
+
+  /** What tells a polled file changed. */
+  private static final class FileStamp {
+    private final boolean exists;
+    private final long lastModifiedMillis;
+    private final long size;
+
+    private FileStamp(boolean exists, long lastModifiedMillis, long size) {
+      this.exists = exists;
+      this.lastModifiedMillis = lastModifiedMillis;
+      this.size = size;
+    }
+
+    static FileStamp of(Path file) {
+      try {
+        return new FileStamp(true, Files.getLastModifiedTime(file).toMillis(), Files.size(file));
+      } catch (IOException e) {
+        return new FileStamp(false, 0, 0);
+      }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof FileStamp)) {
+        return false;
+      }
+      FileStamp other = (FileStamp) obj;
+      return exists == other.exists && lastModifiedMillis == other.lastModifiedMillis
+          && size == other.size;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(exists, lastModifiedMillis, size);
+    }
+  }
+}
@@ -0,0 +1,74 @@
+package com.youtube.gaming.mightybot.watch;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * The value read from a file edited by the user, read again by a {@link FileWatcher} whenever the
+ * file changes. The new value replaces the previous one at once, so readers see either of them and
+ * never a mix. If the file can't be read or is invalid, the previous value is kept.
+ *
+ * <p>
+ * This class is thread-safe.
+ *
+ * @param <T> the type of the value read from the file
+ */
+public final class WatchedFile<T> {
+  private static final Logger logger = LoggerFactory.getLogger(WatchedFile.class);
+
+  /** Reads the value of a watched file. */
+  public interface Loader<T> {
+    /**
+     * Reads the value of the given file.
+     *
+     * @throws IOException if the file can't be read
+     * @throws RuntimeException if the file is invalid
+     */
+    T load(Path file) throws IOException;
+  }
+
+  private final Path file;
+  private final Loader<T> loader;
+  private final AtomicReference<T> value;
+  private volatile FileWatcher.Registration registration;
+
+  WatchedFile(Path file, Loader<T> loader, T initialValue) {
+    this.file = Preconditions.checkNotNull(file);
+    this.loader = Preconditions.checkNotNull(loader);
+    this.value = new AtomicReference<>(Preconditions.checkNotNull(initialValue));
+  }
+
+  void setRegistration(FileWatcher.Registration registration) {
+    this.registration = registration;
+  }
+
+  /** Returns the latest valid value of the file. */
+  public T get() {
+    return value.get();
+  }
+
+  /** Stops reading the file when it changes. The current value stays available. */
+  public void cancel() {
+    registration.cancel();
+  }
+
+  void reload() {
+    T loaded;
+    try {
+      loaded = Preconditions.checkNotNull(loader.load(file));
+    } catch (IOException | RuntimeException e) {
+      logger.warn("Could not reload {}. Continuing with the previous version: {}", file,
+          e.getMessage());
+      return;
+    }
+    if (!loaded.equals(value.getAndSet(loaded))) {
+      logger.info("Reloaded {}", file);
+    }
+  }
+}
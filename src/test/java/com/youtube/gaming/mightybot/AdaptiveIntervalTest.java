@@ -0,0 +1,77 @@
+package com.youtube.gaming.mightybot;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.Duration;
+
+import org.junit.Test;
+
+public class AdaptiveIntervalTest {
+
+  private static AdaptiveInterval newInterval(long initialSeconds) {
+    return new AdaptiveInterval(Duration.ofSeconds(initialSeconds), Duration.ofSeconds(10),
+        Duration.ofSeconds(60));
+  }
+
+  @Test
+  public void initialIntervalIsClamped() {
+    assertEquals(Duration.ofSeconds(10), newInterval(1).get());
+    assertEquals(Duration.ofSeconds(60), newInterval(600).get());
+  }
+
+  @Test
+  public void firstObservationOnlyRecordsValue() {
+    AdaptiveInterval interval = newInterval(20);
+
+    interval.observe("a");
+
+    assertEquals(Duration.ofSeconds(20), interval.get());
+  }
+
+  @Test
+  public void growsWhileValueIsUnchanged() {
+    AdaptiveInterval interval = newInterval(20);
+
+    interval.observe("a");
+    interval.observe("a");
+    assertEquals(Duration.ofSeconds(30), interval.get());
+    interval.observe("a");
+    assertEquals(Duration.ofSeconds(45), interval.get());
+    interval.observe("a");
+    assertEquals(Duration.ofSeconds(60), interval.get());
+  }
+
+  @Test
+  public void shrinksWhenValueChanges() {
+    AdaptiveInterval interval = newInterval(40);
+
+    interval.observe("a");
+    interval.observe("b");
+    assertEquals(Duration.ofSeconds(20), interval.get());
+    interval.observe("c");
+    assertEquals(Duration.ofSeconds(10), interval.get());
+    interval.observe("d");
+    assertEquals(Duration.ofSeconds(10), interval.get());
+  }
+
+  @Test
+  public void comparesNullValues() {
+    AdaptiveInterval interval = newInterval(20);
+
+    interval.observe(null);
+    interval.observe(null);
+    assertEquals(Duration.ofSeconds(30), interval.get());
+    interval.observe("a");
+    assertEquals(Duration.ofSeconds(15), interval.get());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsMinimumAboveMaximum() {
+    new AdaptiveInterval(Duration.ofSeconds(20), Duration.ofSeconds(30), Duration.ofSeconds(10));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsZeroMinimum() {
+    new AdaptiveInterval(Duration.ofSeconds(20), Duration.ZERO, Duration.ofSeconds(10));
+  }
+}
@@ -0,0 +1,82 @@
+package com.youtube.gaming.mightybot;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import org.junit.Test;
+
+import com.youtube.gaming.mightybot.ModuleScheduler.ScheduledModule;
+
+public class ModuleSchedulerTest {
+  private static final ZoneId UTC = ZoneOffset.UTC;
+  private static final Trigger EVERY_TEN_SECONDS = Trigger.every(Duration.ofSeconds(10));
+
+  private final ScheduledModule scheduled = new ScheduledModule(null, 0);
+
+  private void assertNextRun(long slotMillis, long deadlineMillis) {
+    assertEquals("slot", slotMillis, scheduled.slotMillis);
+    assertEquals("deadline", deadlineMillis, scheduled.deadlineMillis);
+  }
+
+  @Test
+  public void runOnTimeMovesToNextSlot() {
+    for (MissedRunPolicy policy : MissedRunPolicy.values()) {
+      ScheduledModule scheduled = new ScheduledModule(null, 0);
+
+      assertEquals(0, ModuleScheduler.advance(scheduled, EVERY_TEN_SECONDS, UTC, 5000, policy));
+      assertEquals(10000, scheduled.slotMillis);
+      assertEquals(10000, scheduled.deadlineMillis);
+    }
+  }
+
+  @Test
+  public void runEndingAfterItsNextSlotMissedIt() {
+    assertEquals(1, ModuleScheduler.advance(scheduled, EVERY_TEN_SECONDS, UTC, 10000,
+        MissedRunPolicy.SKIP));
+    assertNextRun(20000, 20000);
+  }
+
+  @Test
+  public void skipResumesAtFirstFutureSlot() {
+    assertEquals(3, ModuleScheduler.advance(scheduled, EVERY_TEN_SECONDS, UTC, 35000,
+        MissedRunPolicy.SKIP));
+    assertNextRun(40000, 40000);
+  }
+
+  @Test
+  public void runOnceRunsNowThenResumesOnSchedule() {
+    assertEquals(3, ModuleScheduler.advance(scheduled, EVERY_TEN_SECONDS, UTC, 35000,
+        MissedRunPolicy.RUN_ONCE));
+    assertNextRun(30000, 35000);
+
+    assertEquals(0, ModuleScheduler.advance(scheduled, EVERY_TEN_SECONDS, UTC, 36000,
+        MissedRunPolicy.RUN_ONCE));
+    assertNextRun(40000, 40000);
+  }
+
+  @Test
+  public void catchUpRunsEveryMissedSlot() {
+    assertEquals(3, ModuleScheduler.advance(scheduled, EVERY_TEN_SECONDS, UTC, 35000,
+        MissedRunPolicy.CATCH_UP));
+    assertNextRun(10000, 10000);
+
+    assertEquals(2, ModuleScheduler.advance(scheduled, EVERY_TEN_SECONDS, UTC, 36000,
+        MissedRunPolicy.CATCH_UP));
+    assertNextRun(20000, 20000);
+  }
+
+  @Test
+  public void skipKeepsAlignedTriggerOnClockBoundaries() {
+    Trigger everyMinute = Trigger.alignedTo(Duration.ofMinutes(1));
+    ScheduledModule scheduled =
+        new ScheduledModule(null, Instant.parse("2020-01-01T12:00:00Z").toEpochMilli());
+
+    assertEquals(2, ModuleScheduler.advance(scheduled, everyMinute, UTC,
+        Instant.parse("2020-01-01T12:02:30Z").toEpochMilli(), MissedRunPolicy.SKIP));
+    assertEquals(Instant.parse("2020-01-01T12:03:00Z").toEpochMilli(), scheduled.deadlineMillis);
+  }
+}
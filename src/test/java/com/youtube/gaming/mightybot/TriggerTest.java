@@ -0,0 +1,77 @@
+package com.youtube.gaming.mightybot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import org.junit.Test;
+
+public class TriggerTest {
+  private static final ZoneId UTC = ZoneOffset.UTC;
+
+  private static long millis(String instant) {
+    return Instant.parse(instant).toEpochMilli();
+  }
+
+  @Test
+  public void everyAddsInterval() {
+    Trigger trigger = Trigger.every(Duration.ofMillis(250));
+
+    assertEquals(1250, trigger.nextSlotMillis(1000, UTC));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void everyRejectsZeroInterval() {
+    Trigger.every(Duration.ZERO);
+  }
+
+  @Test
+  public void alignedToFiresAtNextMultipleOfPeriod() {
+    Trigger trigger = Trigger.alignedTo(Duration.ofMinutes(1));
+
+    assertEquals(millis("2020-01-01T12:01:00Z"),
+        trigger.nextSlotMillis(millis("2020-01-01T12:00:30.500Z"), UTC));
+  }
+
+  @Test
+  public void alignedToSkipsCurrentSlot() {
+    Trigger trigger = Trigger.alignedTo(Duration.ofMinutes(1));
+
+    assertEquals(millis("2020-01-01T12:02:00Z"),
+        trigger.nextSlotMillis(millis("2020-01-01T12:01:00Z"), UTC));
+  }
+
+  @Test
+  public void alignedToUsesLocalTime() {
+    ZoneId kolkata = ZoneId.of("Asia/Kolkata");
+    Trigger trigger = Trigger.alignedTo(Duration.ofHours(1));
+    long previous = LocalDateTime.of(2020, 1, 1, 10, 15).atZone(kolkata).toInstant().toEpochMilli();
+
+    assertEquals(LocalDateTime.of(2020, 1, 1, 11, 0).atZone(kolkata).toInstant().toEpochMilli(),
+        trigger.nextSlotMillis(previous, kolkata));
+  }
+
+  @Test
+  public void stretchedByMultipliesSpacing() {
+    Trigger trigger = Trigger.every(Duration.ofSeconds(10)).stretchedBy(2.5);
+
+    assertEquals(26000, trigger.nextSlotMillis(1000, UTC));
+  }
+
+  @Test
+  public void stretchedByOneIsSameTrigger() {
+    Trigger trigger = Trigger.every(Duration.ofSeconds(10));
+
+    assertSame(trigger, trigger.stretchedBy(1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void stretchedByRejectsFactorBelowOne() {
+    Trigger.every(Duration.ofSeconds(10)).stretchedBy(0.5);
+  }
+}
@@ -0,0 +1,158 @@
+package com.youtube.gaming.mightybot.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import org.junit.Test;
+
+public class CircuitBreakerTest {
+  private static final int THRESHOLD = 3;
+  private static final long OPEN_MILLIS = 1000;
+
+  private final ManualClock clock = new ManualClock();
+  private final CircuitBreaker breaker =
+      new CircuitBreaker("videos.list", clock, THRESHOLD, OPEN_MILLIS);
+
+  private void recordFailures(int times) {
+    for (int i = 0; i < times; i++) {
+      breaker.recordFailure("503 Service Unavailable");
+    }
+  }
+
+  private void assertRejected(long retryAtMillis) {
+    try {
+      breaker.checkCallAllowed();
+      fail("Expected the breaker to reject the call");
+    } catch (CircuitOpenException e) {
+      assertEquals("videos.list", e.getEndpoint());
+      assertEquals(retryAtMillis, e.getRetryAt().toEpochMilli());
+    }
+  }
+
+  @Test
+  public void staysClosedBelowThreshold() throws CircuitOpenException {
+    recordFailures(THRESHOLD - 1);
+
+    breaker.checkCallAllowed();
+  }
+
+  @Test
+  public void opensAtThreshold() {
+    recordFailures(THRESHOLD);
+
+    assertRejected(OPEN_MILLIS);
+  }
+
+  @Test
+  public void successResetsConsecutiveFailures() throws CircuitOpenException {
+    recordFailures(THRESHOLD - 1);
+    breaker.recordSuccess();
+    recordFailures(THRESHOLD - 1);
+
+    breaker.checkCallAllowed();
+  }
+
+  @Test
+  public void letsSingleProbeThroughAfterOpenTime() throws CircuitOpenException {
+    recordFailures(THRESHOLD);
+    clock.millis = OPEN_MILLIS;
+
+    breaker.checkCallAllowed();
+    assertRejected(OPEN_MILLIS);
+  }
+
+  @Test
+  public void successfulProbeCloses() throws CircuitOpenException {
+    recordFailures(THRESHOLD);
+    clock.millis = OPEN_MILLIS;
+    breaker.checkCallAllowed();
+
+    breaker.recordSuccess();
+
+    breaker.checkCallAllowed();
+    breaker.checkCallAllowed();
+  }
+
+  @Test
+  public void failedProbeOpensForTwiceAsLong() throws CircuitOpenException {
+    recordFailures(THRESHOLD);
+    clock.millis = OPEN_MILLIS;
+    breaker.checkCallAllowed();
+
+    recordFailures(1);
+
+    assertRejected(3 * OPEN_MILLIS);
+    clock.millis = 3 * OPEN_MILLIS;
+    breaker.checkCallAllowed();
+  }
+
+  @Test
+  public void openTimeIsBounded() throws CircuitOpenException {
+    recordFailures(THRESHOLD);
+    for (int i = 0; i < 20; i++) {
+      clock.millis += CircuitBreaker.MAX_OPEN_MILLIS;
+      breaker.checkCallAllowed();
+      recordFailures(1);
+    }
+
+    assertRejected(clock.millis + CircuitBreaker.MAX_OPEN_MILLIS);
+  }
+
+  @Test
+  public void successAfterFailedProbesResetsOpenTime() throws CircuitOpenException {
+    recordFailures(THRESHOLD);
+    clock.millis = OPEN_MILLIS;
+    breaker.checkCallAllowed();
+    recordFailures(1);
+    clock.millis = 3 * OPEN_MILLIS;
+    breaker.checkCallAllowed();
+    breaker.recordSuccess();
+
+    recordFailures(THRESHOLD);
+
+    assertRejected(clock.millis + OPEN_MILLIS);
+  }
+
+  @Test
+  public void abandonedProbeIsReplaced() throws CircuitOpenException {
+    recordFailures(THRESHOLD);
+    clock.millis = OPEN_MILLIS;
+    breaker.checkCallAllowed();
+
+    // The probe never records its outcome
+    clock.millis = 2 * OPEN_MILLIS;
+
+    breaker.checkCallAllowed();
+    assertRejected(OPEN_MILLIS);
+  }
+
+  /** A clock that only moves when told to. */
+  private static class ManualClock extends Clock {
+    private long millis;
+
+    @Override
+    public long millis() {
+      return millis;
+    }
+
+    @Override
+    public Instant instant() {
+      return Instant.ofEpochMilli(millis);
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
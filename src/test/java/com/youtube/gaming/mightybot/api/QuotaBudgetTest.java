@@ -0,0 +1,175 @@
+package com.youtube.gaming.mightybot.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.ImmutableMap;
+
+public class QuotaBudgetTest {
+  /** Midnight Pacific Time, when YouTube resets quotas. */
+  private static final long MIDNIGHT_MILLIS = Instant.parse("2020-01-01T08:00:00Z").toEpochMilli();
+  private static final long NEXT_MIDNIGHT_MILLIS =
+      Instant.parse("2020-01-02T08:00:00Z").toEpochMilli();
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private long nowMillis = MIDNIGHT_MILLIS;
+  private final Clock clock = new ManualClock(ZoneOffset.UTC);
+  private Path statePath;
+
+  @Before
+  public void setUp() {
+    statePath = folder.getRoot().toPath().resolve("quota.ser");
+  }
+
+  /** Charges the given number of {@code videos.list} calls, which cost 1 unit each. */
+  private static void charge(QuotaBudget budget, String module, int calls)
+      throws CircuitOpenException {
+    budget.setCurrentConsumer(module);
+    try {
+      for (int i = 0; i < calls; i++) {
+        budget.charge("videos.list");
+      }
+    } finally {
+      budget.setCurrentConsumer(null);
+    }
+  }
+
+  /**
+   * Returns a budget in which modules "low" and "high" consumed 10 units per second each over the
+   * last minute, "low" having the lowest priority.
+   */
+  private QuotaBudget newBudgetAfterOneMinute(long dailyBudget) throws CircuitOpenException {
+    QuotaBudget budget = new QuotaBudget(clock, dailyBudget, statePath);
+    budget.registerModule("low", 0);
+    budget.registerModule("high", 1);
+    charge(budget, "low", 600);
+    charge(budget, "high", 600);
+    nowMillis += 60000;
+    return budget;
+  }
+
+  @Test
+  public void chargesCostOfEndpoint() throws CircuitOpenException {
+    QuotaBudget budget = new QuotaBudget(clock, 10000, statePath);
+
+    budget.charge("videos.list");
+    budget.charge("liveChatMessages.insert");
+
+    assertEquals(51, budget.getUsedToday());
+    assertEquals(ImmutableMap.of("videos.list", 1L, "liveChatMessages.insert", 50L),
+        budget.getUnitsByEndpoint());
+  }
+
+  @Test
+  public void refusesCallsBeyondBudgetUntilReset() throws CircuitOpenException {
+    QuotaBudget budget = new QuotaBudget(clock, 60, statePath);
+    budget.charge("liveChatMessages.insert");
+
+    try {
+      budget.charge("liveChatMessages.insert");
+      fail("Expected the budget to be used up");
+    } catch (CircuitOpenException e) {
+      assertEquals(NEXT_MIDNIGHT_MILLIS, e.getRetryAt().toEpochMilli());
+    }
+    assertEquals(50, budget.getUsedToday());
+    // Cheaper calls still fit
+    budget.charge("videos.list");
+    assertEquals(51, budget.getUsedToday());
+  }
+
+  @Test
+  public void rollsOverAtMidnightPacificTime() throws CircuitOpenException {
+    QuotaBudget budget = new QuotaBudget(clock, 10000, statePath);
+    budget.charge("videos.list");
+
+    nowMillis = NEXT_MIDNIGHT_MILLIS - 1;
+    assertEquals(1, budget.getUsedToday());
+    nowMillis = NEXT_MIDNIGHT_MILLIS;
+    assertEquals(0, budget.getUsedToday());
+    assertTrue(budget.getUnitsByEndpoint().isEmpty());
+    assertEquals(NEXT_MIDNIGHT_MILLIS + 24 * 3600 * 1000, budget.getNextResetMillis());
+  }
+
+  @Test
+  public void modulesAreNotStretchedWhileBudgetLasts() throws CircuitOpenException {
+    QuotaBudget budget = newBudgetAfterOneMinute(10000000);
+
+    assertEquals(1, budget.getStretchFactor("low"), 0);
+    assertEquals(1, budget.getStretchFactor("high"), 0);
+    assertFalse(budget.getProjectedExhaustion().isPresent());
+  }
+
+  @Test
+  public void lowestPriorityIsStretchedFirst() throws CircuitOpenException {
+    // Lasts until the reset at 15 units per second, 95% of the remaining budget
+    QuotaBudget budget = newBudgetAfterOneMinute(1200 + 15 * 86340 * 100 / 95);
+
+    assertEquals(2, budget.getStretchFactor("low"), 0.001);
+    assertEquals(1, budget.getStretchFactor("high"), 0);
+    assertTrue(budget.getProjectedExhaustion().isPresent());
+  }
+
+  @Test
+  public void stretchFactorIsBounded() throws CircuitOpenException {
+    QuotaBudget budget = newBudgetAfterOneMinute(1300);
+
+    assertEquals(10, budget.getStretchFactor("low"), 0);
+    assertEquals(10, budget.getStretchFactor("high"), 0);
+  }
+
+  @Test
+  public void savedConsumptionIsRestoredOnSameDay() throws CircuitOpenException {
+    QuotaBudget budget = new QuotaBudget(clock, 10000, statePath);
+    budget.charge("videos.list");
+    budget.charge("videos.list");
+    budget.save();
+
+    assertEquals(2, new QuotaBudget(clock, 10000, statePath).getUsedToday());
+    nowMillis = NEXT_MIDNIGHT_MILLIS;
+    assertEquals(0, new QuotaBudget(clock, 10000, statePath).getUsedToday());
+  }
+
+  /** A clock that only moves when the test changes {@link #nowMillis}. */
+  private class ManualClock extends Clock {
+    private final ZoneId zone;
+
+    ManualClock(ZoneId zone) {
+      this.zone = zone;
+    }
+
+    @Override
+    public long millis() {
+      return nowMillis;
+    }
+
+    @Override
+    public Instant instant() {
+      return Instant.ofEpochMilli(nowMillis);
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return zone;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return new ManualClock(zone);
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package com.youtube.gaming.mightybot.chat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.youtube.gaming.mightybot.api.ChatMessage;
+
+public class ChatMessageBufferTest {
+  private final ChatMessageBuffer buffer = new ChatMessageBuffer(3);
+
+  private void publish(String... ids) {
+    for (String id : ids) {
+      buffer.publish(new ChatMessage(id, "chat", "textMessageEvent", null, "viewer", id, 0));
+    }
+  }
+
+  private static List<String> ids(List<ChatMessage> messages) {
+    List<String> ids = new ArrayList<>();
+    for (ChatMessage message : messages) {
+      ids.add(message.getId());
+    }
+    return ids;
+  }
+
+  @Test
+  public void cursorReadsMessagesPublishedAfterItsCreation() {
+    publish("m1");
+    ChatCursor cursor = buffer.newCursor();
+    publish("m2", "m3");
+
+    assertEquals(ImmutableList.of("m2", "m3"), ids(cursor.poll()));
+    assertTrue(cursor.poll().isEmpty());
+    assertEquals(0, cursor.getDroppedCount());
+  }
+
+  @Test
+  public void cursorsReadIndependently() {
+    ChatCursor first = buffer.newCursor();
+    ChatCursor second = buffer.newCursor();
+    publish("m1");
+    assertEquals(ImmutableList.of("m1"), ids(first.poll()));
+    publish("m2");
+
+    assertEquals(ImmutableList.of("m2"), ids(first.poll()));
+    assertEquals(ImmutableList.of("m1", "m2"), ids(second.poll()));
+  }
+
+  @Test
+  public void overflowSkipsOverwrittenMessages() {
+    ChatCursor cursor = buffer.newCursor();
+    publish("m1", "m2", "m3", "m4", "m5");
+
+    assertEquals(ImmutableList.of("m3", "m4", "m5"), ids(cursor.poll()));
+    assertEquals(2, cursor.getDroppedCount());
+    assertEquals(5, buffer.getPublishedCount());
+  }
+
+  @Test
+  public void overflowOnlyAffectsLaggingCursors() {
+    ChatCursor lagging = buffer.newCursor();
+    ChatCursor upToDate = buffer.newCursor();
+    publish("m1", "m2");
+    assertEquals(ImmutableList.of("m1", "m2"), ids(upToDate.poll()));
+    publish("m3", "m4");
+
+    assertEquals(ImmutableList.of("m3", "m4"), ids(upToDate.poll()));
+    assertEquals(0, upToDate.getDroppedCount());
+    assertEquals(ImmutableList.of("m2", "m3", "m4"), ids(lagging.poll()));
+    assertEquals(1, lagging.getDroppedCount());
+  }
+
+  @Test
+  public void droppedCountAccumulates() {
+    ChatCursor cursor = buffer.newCursor();
+    publish("m1", "m2", "m3", "m4");
+    cursor.poll();
+    publish("m5", "m6", "m7", "m8", "m9");
+
+    assertEquals(ImmutableList.of("m7", "m8", "m9"), ids(cursor.poll()));
+    assertEquals(3, cursor.getDroppedCount());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsZeroCapacity() {
+    new ChatMessageBuffer(0);
+  }
+}
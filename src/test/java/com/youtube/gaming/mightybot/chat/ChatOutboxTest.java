@@ -0,0 +1,168 @@
+package com.youtube.gaming.mightybot.chat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.services.youtube.YouTube;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.youtube.gaming.mightybot.api.ApiResponseCache;
+import com.youtube.gaming.mightybot.api.BatchCoalescer;
+import com.youtube.gaming.mightybot.api.ConditionalRequestExecutor;
+import com.youtube.gaming.mightybot.api.QuotaBudget;
+import com.youtube.gaming.mightybot.api.ResilientRequestExecutor;
+import com.youtube.gaming.mightybot.api.YouTubeApi;
+import com.youtube.gaming.mightybot.properties.MightyProperties;
+
+public class ChatOutboxTest {
+  private static final String CHAT = "chat1";
+  private static final ChatCoalescingPolicy JOIN_ITEMS = items -> String.join(", ", items);
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /** Tasks started by the outbox, run by {@link #drain()}. */
+  private final List<Runnable> tasks = new ArrayList<>();
+  private RecordingYouTubeApi youTubeApi;
+  private QuotaBudget quotaBudget;
+
+  @Before
+  public void setUp() {
+    Clock clock = Clock.systemUTC();
+    YouTube youTube = new YouTube.Builder(new NetHttpTransport(),
+        JacksonFactory.getDefaultInstance(), null).setApplicationName("mightybot-test").build();
+    quotaBudget = new QuotaBudget(clock, 10000, folder.getRoot().toPath().resolve("quota.ser"));
+    ConditionalRequestExecutor conditionalRequestExecutor = new ConditionalRequestExecutor(
+        new ResilientRequestExecutor(new BatchCoalescer(youTube, 0, 1), quotaBudget, clock, 3, 0,
+            0, 5, 60000),
+        100);
+    youTubeApi = new RecordingYouTubeApi(youTube, conditionalRequestExecutor);
+  }
+
+  private ChatOutbox newOutbox(int capacity) {
+    return new ChatOutbox(youTubeApi, quotaBudget, tasks::add, capacity, 1);
+  }
+
+  /** Runs the tasks started by the outbox, which post the queued messages. */
+  private void drain() {
+    while (!tasks.isEmpty()) {
+      tasks.remove(0).run();
+    }
+  }
+
+  private static void assertRejected(CompletableFuture<Void> result) throws InterruptedException {
+    try {
+      result.get();
+      fail("Expected the message to be rejected");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause().toString(), e.getCause() instanceof RejectedExecutionException);
+    }
+  }
+
+  @Test
+  public void postsByPriorityThenInQueueOrder() throws Exception {
+    ChatOutbox outbox = newOutbox(10);
+    outbox.queue(CHAT, "low", ChatPriority.LOW);
+    outbox.queue(CHAT, "normal 1", ChatPriority.NORMAL);
+    outbox.queue(CHAT, "high", ChatPriority.HIGH);
+    CompletableFuture<Void> last = outbox.queue(CHAT, "normal 2", ChatPriority.NORMAL);
+
+    drain();
+
+    assertEquals(ImmutableList.of("high", "normal 1", "normal 2", "low"), youTubeApi.posted);
+    last.get();
+    assertEquals(4, outbox.getSentCount());
+    assertEquals(0, outbox.getQueuedCount());
+  }
+
+  @Test
+  public void duplicateTextIsPostedOnce() {
+    ChatOutbox outbox = newOutbox(10);
+    CompletableFuture<Void> first = outbox.queue(CHAT, "hello", ChatPriority.NORMAL);
+
+    assertSame(first, outbox.queue(CHAT, "hello", ChatPriority.NORMAL));
+    drain();
+    assertEquals(ImmutableList.of("hello"), youTubeApi.posted);
+  }
+
+  @Test
+  public void fullOutboxReplacesMostRecentMessageOfLowestPriority() throws Exception {
+    ChatOutbox outbox = newOutbox(2);
+    outbox.queue(CHAT, "low 1", ChatPriority.LOW);
+    CompletableFuture<Void> replaced = outbox.queue(CHAT, "low 2", ChatPriority.LOW);
+    outbox.queue("chat2", "normal", ChatPriority.NORMAL);
+
+    assertRejected(replaced);
+    assertEquals(1, outbox.getDroppedCount());
+    drain();
+    assertEquals(ImmutableList.of("low 1", "normal"), youTubeApi.posted);
+  }
+
+  @Test
+  public void fullOutboxRejectsMessageOfSameOrLowerPriority() throws Exception {
+    ChatOutbox outbox = newOutbox(1);
+    outbox.queue(CHAT, "first", ChatPriority.NORMAL);
+
+    assertRejected(outbox.queue(CHAT, "second", ChatPriority.NORMAL));
+    assertRejected(outbox.queue(CHAT, "third", ChatPriority.LOW));
+    drain();
+    assertEquals(ImmutableList.of("first"), youTubeApi.posted);
+  }
+
+  @Test
+  public void itemsQueuedBeforePostingAreCoalesced() throws Exception {
+    ChatOutbox outbox = newOutbox(10);
+    CompletableFuture<Void> first =
+        outbox.queueCoalescing(CHAT, "subs", "alice", ChatPriority.NORMAL, JOIN_ITEMS);
+    outbox.queueCoalescing(CHAT, "subs", "bob", ChatPriority.NORMAL, JOIN_ITEMS);
+    outbox.queueCoalescing(CHAT, "subs", "alice", ChatPriority.NORMAL, JOIN_ITEMS);
+
+    drain();
+
+    assertEquals(ImmutableList.of("alice, bob"), youTubeApi.posted);
+    assertEquals(1, outbox.getCoalescedCount());
+    first.get();
+  }
+
+  @Test
+  public void itemsQueuedAfterPostingGoInNewMessage() {
+    ChatOutbox outbox = newOutbox(10);
+    outbox.queueCoalescing(CHAT, "subs", "alice", ChatPriority.NORMAL, JOIN_ITEMS);
+    drain();
+    outbox.queueCoalescing(CHAT, "subs", "bob", ChatPriority.NORMAL, JOIN_ITEMS);
+    drain();
+
+    assertEquals(ImmutableList.of("alice", "bob"), youTubeApi.posted);
+  }
+
+  /** Records the messages posted instead of sending them to YouTube. */
+  private static class RecordingYouTubeApi extends YouTubeApi {
+    private final List<String> posted = new ArrayList<>();
+
+    RecordingYouTubeApi(YouTube youTube, ConditionalRequestExecutor conditionalRequestExecutor) {
+      super(youTube, new MightyProperties(), new ApiResponseCache(ImmutableMap.of(), 100),
+          conditionalRequestExecutor);
+    }
+
+    @Override
+    public void insertLiveChatTextMessage(String liveChatId, String message) {
+      posted.add(message);
+    }
+  }
+}
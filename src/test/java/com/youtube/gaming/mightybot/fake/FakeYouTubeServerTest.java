@@ -0,0 +1,142 @@
+package com.youtube.gaming.mightybot.fake;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.services.youtube.YouTube;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.youtube.gaming.mightybot.api.ApiResponseCache;
+import com.youtube.gaming.mightybot.api.BatchCoalescer;
+import com.youtube.gaming.mightybot.api.ChatMessage;
+import com.youtube.gaming.mightybot.api.CircuitOpenException;
+import com.youtube.gaming.mightybot.api.ConditionalRequestExecutor;
+import com.youtube.gaming.mightybot.api.QuotaBudget;
+import com.youtube.gaming.mightybot.api.ResilientRequestExecutor;
+import com.youtube.gaming.mightybot.api.VideoStatistics;
+import com.youtube.gaming.mightybot.api.YouTubeApi;
+import com.youtube.gaming.mightybot.properties.MightyProperties;
+
+/**
+ * Runs the {@link YouTubeApi} of the bot against a {@link FakeYouTubeServer}. The clock is fixed,
+ * so the scenario doesn't change between two requests.
+ */
+public class FakeYouTubeServerTest {
+  private static final String BROADCAST_ID = "fakeBroadcast";
+  private static final String LIVE_CHAT_ID = "chat-" + BROADCAST_ID;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final Clock clock = Clock.fixed(Instant.parse("2020-01-01T12:00:00Z"), ZoneOffset.UTC);
+  private FakeYouTubeServer server;
+  private QuotaBudget quotaBudget;
+  private ConditionalRequestExecutor conditionalRequestExecutor;
+  private YouTubeApi youTubeApi;
+
+  @After
+  public void stopServer() {
+    if (server != null) {
+      server.stop(0);
+    }
+  }
+
+  /** Starts a server on any free port and points a {@link YouTubeApi} to it. */
+  private void startServer(double quotaExceededRate) throws IOException {
+    Properties properties = new Properties();
+    properties.setProperty("port", "0");
+    properties.setProperty("latency.distribution", "FIXED");
+    properties.setProperty("latency.medianMillis", "0");
+    properties.setProperty("errors.quotaExceededRate", Double.toString(quotaExceededRate));
+    properties.setProperty("broadcast1.id", BROADCAST_ID);
+    properties.setProperty("broadcast1.viewers", "42");
+    properties.setProperty("broadcast1.likes", "7");
+    server = new FakeYouTubeServer(properties, clock, new Random(0));
+    server.start();
+
+    YouTube youTube = new YouTube.Builder(new NetHttpTransport(),
+        JacksonFactory.getDefaultInstance(), null)
+        .setApplicationName("mightybot-test")
+        .setRootUrl(server.getRootUrl())
+        .build();
+    quotaBudget = new QuotaBudget(clock, 10000, folder.getRoot().toPath().resolve("quota.ser"));
+    ResilientRequestExecutor resilientRequestExecutor = new ResilientRequestExecutor(
+        new BatchCoalescer(youTube, 0, 1), quotaBudget, clock, 3, 0, 0, 5, 60000);
+    conditionalRequestExecutor = new ConditionalRequestExecutor(resilientRequestExecutor, 100);
+    // Nothing cached, so that every call reaches the server
+    youTubeApi = new YouTubeApi(youTube, new MightyProperties(),
+        new ApiResponseCache(ImmutableMap.of(), 100), conditionalRequestExecutor);
+  }
+
+  @Test
+  public void listVideoStatisticsIsNotModifiedTheSecondTime() throws IOException {
+    startServer(0);
+
+    List<VideoStatistics> first = youTubeApi.listVideoStatistics(ImmutableList.of(BROADCAST_ID));
+    List<VideoStatistics> second =
+        youTubeApi.listVideoStatistics(ImmutableList.of(BROADCAST_ID));
+
+    assertEquals(1, first.size());
+    assertEquals(BROADCAST_ID, first.get(0).getId());
+    assertEquals(42, first.get(0).getConcurrentViewers());
+    assertEquals(7, first.get(0).getLikeCount());
+    assertEquals(1, second.size());
+    assertEquals(42, second.get(0).getConcurrentViewers());
+    String savings = conditionalRequestExecutor.getSavings().get(YouTubeApi.VIDEOS_LIST);
+    assertTrue(savings, savings.startsWith("1 full, 1 not modified"));
+    assertEquals(2, server.getQuotaUsed());
+  }
+
+  @Test
+  public void insertedMessageIsListed() throws IOException {
+    startServer(0);
+
+    youTubeApi.insertLiveChatTextMessage(LIVE_CHAT_ID, "Hello chat");
+    List<ChatMessage> messages =
+        youTubeApi.listLiveChatMessages(LIVE_CHAT_ID, null).getMessages();
+
+    assertEquals(1, messages.size());
+    assertEquals(LIVE_CHAT_ID, messages.get(0).getLiveChatId());
+    assertEquals("Hello chat", messages.get(0).getText());
+    assertEquals(QuotaBudget.getCost(YouTubeApi.LIVE_CHAT_MESSAGES_INSERT)
+        + QuotaBudget.getCost(YouTubeApi.LIVE_CHAT_MESSAGES_LIST), server.getQuotaUsed());
+  }
+
+  @Test
+  public void quotaExceededStopsCallsUntilReset() throws IOException {
+    startServer(1);
+
+    try {
+      youTubeApi.listVideoStatistics(ImmutableList.of(BROADCAST_ID));
+      fail("Expected quotaExceeded");
+    } catch (GoogleJsonResponseException e) {
+      assertEquals(403, e.getStatusCode());
+      assertEquals("quotaExceeded", e.getDetails().getErrors().get(0).getReason());
+    }
+    // Not retried, and the next call doesn't reach YouTube
+    try {
+      youTubeApi.listVideoStatistics(ImmutableList.of(BROADCAST_ID));
+      fail("Expected the circuit to be open");
+    } catch (CircuitOpenException e) {
+      assertEquals(quotaBudget.getNextResetMillis(), e.getRetryAt().toEpochMilli());
+    }
+    assertEquals(1, quotaBudget.getUsedToday());
+  }
+}
@@ -0,0 +1,135 @@
+package com.youtube.gaming.mightybot.modules;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.youtube.gaming.mightybot.api.Subscriber;
+import com.youtube.gaming.mightybot.api.SubscriberPage;
+import com.youtube.gaming.mightybot.modules.NewSubChatAnnouncer.NewSubscribers;
+import com.youtube.gaming.mightybot.modules.NewSubChatAnnouncer.SubscriberHighWaterMark;
+
+public class NewSubChatAnnouncerTest {
+  /** Pages of recent subscribers by page token, the first page having a {@code null} token. */
+  private final Map<String, SubscriberPage> pages = new HashMap<>();
+  private int pagesRead;
+
+  private void addPage(String pageToken, String nextPageToken, Subscriber... subscribers) {
+    pages.put(pageToken, new SubscriberPage(ImmutableList.copyOf(subscribers), nextPageToken));
+  }
+
+  private NewSubscribers read(SubscriberHighWaterMark highWaterMark) throws IOException {
+    return NewSubChatAnnouncer.readNewSubscribers((pageToken, maxResults) -> {
+      pagesRead++;
+      SubscriberPage page = pages.get(pageToken);
+      if (page == null) {
+        throw new IOException("Unexpected page " + pageToken);
+      }
+      return page;
+    }, highWaterMark);
+  }
+
+  private static Subscriber subscriber(String name, long subscribedAtMillis) {
+    return new Subscriber("channel-" + name, name, subscribedAtMillis);
+  }
+
+  private static SubscriberHighWaterMark markAt(Subscriber... announced) {
+    SubscriberHighWaterMark mark =
+        new SubscriberHighWaterMark(announced[0].getSubscribedAtMillis());
+    for (Subscriber subscriber : announced) {
+      mark.add(subscriber);
+    }
+    return mark;
+  }
+
+  @Test
+  public void readsPagesUntilHighWaterMark() throws IOException {
+    Subscriber alice = subscriber("alice", 100);
+    Subscriber eve = subscriber("eve", 300);
+    addPage(null, "page2", eve, subscriber("dave", 200));
+    addPage("page2", "page3", subscriber("carol", 150), alice, subscriber("bob", 50));
+
+    NewSubscribers newSubscribers = read(markAt(alice));
+
+    assertEquals(ImmutableList.of("carol", "dave", "eve"), newSubscribers.names);
+    assertEquals(2, pagesRead);
+    assertFalse(newSubscribers.truncated);
+    assertTrue(newSubscribers.highWaterMark.covers(eve));
+  }
+
+  @Test
+  public void nothingNewKeepsHighWaterMark() throws IOException {
+    Subscriber alice = subscriber("alice", 100);
+    addPage(null, "page2", alice, subscriber("bob", 50));
+
+    NewSubscribers newSubscribers = read(markAt(alice));
+
+    assertTrue(newSubscribers.names.isEmpty());
+    assertNull(newSubscribers.highWaterMark);
+    assertEquals(1, pagesRead);
+  }
+
+  @Test
+  public void subscribersAtSameTimeAsMarkAreToldApart() throws IOException {
+    Subscriber alice = subscriber("alice", 100);
+    Subscriber bob = subscriber("bob", 100);
+    addPage(null, "page2", bob, alice, subscriber("carol", 50));
+
+    NewSubscribers newSubscribers = read(markAt(alice));
+
+    assertEquals(ImmutableList.of("bob"), newSubscribers.names);
+    assertTrue(newSubscribers.highWaterMark.covers(alice));
+    assertTrue(newSubscribers.highWaterMark.covers(bob));
+    // The next run finds nothing new
+    assertNull(read(newSubscribers.highWaterMark).highWaterMark);
+  }
+
+  @Test
+  public void subscribersAtSameTimeAcrossPagesAreAllAnnounced() throws IOException {
+    Subscriber alice = subscriber("alice", 100);
+    Subscriber bob = subscriber("bob", 200);
+    Subscriber carol = subscriber("carol", 200);
+    addPage(null, "page2", bob);
+    addPage("page2", "page3", carol, alice, subscriber("dave", 50));
+
+    NewSubscribers newSubscribers = read(markAt(alice));
+
+    assertEquals(ImmutableList.of("carol", "bob"), newSubscribers.names);
+    assertTrue(newSubscribers.highWaterMark.covers(bob));
+    assertTrue(newSubscribers.highWaterMark.covers(carol));
+  }
+
+  @Test
+  public void subscribersWithoutChannelIdAreToldApartByName() throws IOException {
+    Subscriber alice = new Subscriber(null, "alice", 100);
+    Subscriber bob = new Subscriber(null, "bob", 100);
+    addPage(null, null, bob, alice);
+
+    NewSubscribers newSubscribers = read(markAt(alice));
+
+    assertEquals(ImmutableList.of("bob"), newSubscribers.names);
+  }
+
+  @Test
+  public void tooManyNewSubscribersAreTruncated() throws IOException {
+    for (int page = 0; page < 30; page++) {
+      addPage(page == 0 ? null : "page" + page, "page" + (page + 1),
+          subscriber("sub" + page, 1000 - page));
+    }
+
+    NewSubscribers newSubscribers = read(markAt(subscriber("alice", 100)));
+
+    assertTrue(newSubscribers.truncated);
+    assertEquals(20, pagesRead);
+    assertEquals("sub19", newSubscribers.names.get(0));
+    assertTrue(newSubscribers.highWaterMark.covers(subscriber("sub0", 1000)));
+  }
+}
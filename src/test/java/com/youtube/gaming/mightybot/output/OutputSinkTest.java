@@ -0,0 +1,90 @@
+package com.youtube.gaming.mightybot.output;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.Stream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.ImmutableList;
+
+public class OutputSinkTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final OutputSink sink = new OutputSink();
+  private Path path;
+
+  @Before
+  public void setUp() {
+    path = folder.getRoot().toPath().resolve("subs.txt");
+  }
+
+  private String read() throws IOException {
+    return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void writesNewFile() throws IOException {
+    assertTrue(sink.write(path, "Subs: 12"));
+
+    assertEquals("Subs: 12", read());
+    assertEquals(1, sink.getWriteCount());
+  }
+
+  @Test
+  public void skipsWriteIfUnchanged() throws IOException {
+    sink.write(path, "Subs: 12");
+    Files.setLastModifiedTime(path, FileTime.fromMillis(0));
+
+    assertFalse(sink.write(path, "Subs: 12"));
+    assertEquals(FileTime.fromMillis(0), Files.getLastModifiedTime(path));
+    assertEquals(1, sink.getWriteCount());
+    assertEquals(1, sink.getSkippedCount());
+  }
+
+  @Test
+  public void writesChangedContent() throws IOException {
+    sink.write(path, "Subs: 12");
+
+    assertTrue(sink.write(path, "Subs: 13"));
+    assertEquals("Subs: 13", read());
+    assertEquals(2, sink.getWriteCount());
+  }
+
+  @Test
+  public void firstWriteComparesWithContentOnDisk() throws IOException {
+    Files.write(path, "Subs: 12".getBytes(StandardCharsets.UTF_8));
+
+    assertFalse(sink.write(path, "Subs: 12"));
+    assertTrue(sink.write(path, "Subs: 13"));
+    assertEquals("Subs: 13", read());
+  }
+
+  @Test
+  public void samePathWrittenDifferentlyIsOneFile() throws IOException {
+    sink.write(path, "Subs: 12");
+
+    assertFalse(sink.write(folder.getRoot().toPath().resolve("x/../subs.txt"), "Subs: 12"));
+  }
+
+  @Test
+  public void leavesNoTemporaryFile() throws IOException {
+    sink.write(path, "Subs: 12");
+    sink.write(path, "Subs: 13");
+
+    try (Stream<Path> files = Files.list(folder.getRoot().toPath())) {
+      assertEquals(ImmutableList.of(path), ImmutableList.copyOf(files.iterator()));
+    }
+  }
+}
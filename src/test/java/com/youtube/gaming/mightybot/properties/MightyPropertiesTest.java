@@ -0,0 +1,60 @@
+package com.youtube.gaming.mightybot.properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Properties;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+public class MightyPropertiesTest {
+
+  private static MightyProperties of(String... namesAndValues) {
+    Properties properties = new Properties();
+    for (int i = 0; i < namesAndValues.length; i += 2) {
+      properties.setProperty(namesAndValues[i], namesAndValues[i + 1]);
+    }
+    return new MightyProperties(properties);
+  }
+
+  @Test
+  public void diffOfSamePropertiesIsEmpty() {
+    assertTrue(of("subCount.enabled", "true").diff(of("subCount.enabled", "true")).isEmpty());
+  }
+
+  @Test
+  public void diffListsChangedAddedAndRemovedProperties() {
+    MightyProperties before = of("subCount.interval", "10", "subCount.goal", "100",
+        "trivia.enabled", "true");
+    MightyProperties after = of("subCount.interval", "20", "trivia.enabled", "true",
+        "currentTime.enabled", "true");
+
+    assertEquals(ImmutableSet.of("subCount.interval", "subCount.goal", "currentTime.enabled"),
+        before.diff(after));
+    assertEquals(before.diff(after), after.diff(before));
+  }
+
+  @Test
+  public void diffIgnoresSurroundingWhitespace() {
+    assertTrue(of("subCount.goal", "100").diff(of("subCount.goal", " 100 ")).isEmpty());
+  }
+
+  @Test
+  public void emptyPropertyIsSameAsAbsent() {
+    assertTrue(of("subCount.goal", "").diff(of()).isEmpty());
+    assertTrue(of().diff(of("subCount.goal", "  ")).isEmpty());
+  }
+
+  @Test
+  public void replaceWithChangesValuesButNotCopies() {
+    MightyProperties properties = of("subCount.goal", "100");
+    MightyProperties copy = properties.copy();
+
+    properties.replaceWith(of("subCount.goal", "200"));
+
+    assertEquals("200", properties.get("subCount.goal"));
+    assertEquals("100", copy.get("subCount.goal"));
+  }
+}
@@ -0,0 +1,146 @@
+package com.youtube.gaming.mightybot.template;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+public class TemplateTest {
+
+  @Test
+  public void rendersPlaceholdersInDeclarationOrder() {
+    Template template = Template.compile("Sub Goal: {subs}/{goal}", "subs", "goal");
+
+    assertEquals("Sub Goal: 12/100", template.render(12L, 100));
+    assertEquals("Sub Goal: 13/100", template.render(13, 100L));
+  }
+
+  @Test
+  public void doubleBraceIsLiteral() {
+    Template template = Template.compile("{{subs} is {subs}}", "subs");
+
+    assertEquals("{subs} is 3}", template.render(3));
+    assertEquals(1, template.getOccurrences("subs"));
+  }
+
+  @Test
+  public void formatsNumbersWithPattern() {
+    Template template = Template.compile("{viewers:000} viewers", "viewers");
+
+    assertEquals("007 viewers", template.render(7));
+    assertEquals("1234 viewers", template.render(1234L));
+  }
+
+  @Test
+  public void rendersValuesThatAreNotNumbersAsIs() {
+    Template template = Template.compile("{viewers:000} viewers", "viewers");
+
+    assertEquals("n/a viewers", template.render("n/a"));
+  }
+
+  @Test
+  public void rendersNullAsNothing() {
+    assertEquals("Title: ", Template.compile("Title: {title}", "title").render((Object) null));
+  }
+
+  @Test
+  public void renderToAppends() {
+    StringBuilder buffer = new StringBuilder("> ");
+
+    Template.compile("{a} and {b}", "a", "b").renderTo(buffer, "x", "y");
+
+    assertEquals("> x and y", buffer.toString());
+  }
+
+  @Test
+  public void placeholdersMayBeUnused() {
+    Template template = Template.compile("Live!", "title");
+
+    assertEquals("Live!", template.render("ignored"));
+    assertEquals(0, template.getOccurrences("title"));
+  }
+
+  @Test
+  public void unknownPlaceholderThrows() {
+    try {
+      Template.compile("{subs}/{goal}", "subs");
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Unknown placeholder '{goal}' in '{subs}/{goal}', expected one of {subs}",
+          e.getMessage());
+    }
+  }
+
+  @Test
+  public void unknownPlaceholderWithoutDeclaredNamesThrows() {
+    try {
+      Template.compile("{subs}");
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage(), e.getMessage().endsWith("expected no placeholder"));
+    }
+  }
+
+  @Test
+  public void unclosedBraceThrows() {
+    try {
+      Template.compile("Subs: {subs", "subs");
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Unclosed '{' at position 6 in 'Subs: {subs'", e.getMessage());
+    }
+  }
+
+  @Test
+  public void invalidPatternThrows() {
+    try {
+      Template.compile("{subs:#.#.#}", "subs");
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage(), e.getMessage().startsWith("Invalid number pattern '#.#.#'"));
+    }
+  }
+
+  @Test
+  public void requireOnceAcceptsSingleOccurrence() {
+    Template template = Template.compile("Welcome {name}!", "name");
+
+    assertSame(template, template.requireOnce("name"));
+  }
+
+  @Test
+  public void requireOnceRejectsMissingPlaceholder() {
+    try {
+      Template.compile("Welcome!", "name").requireOnce("name");
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("There must be one and only one occurrence of '{name}' in your message: "
+          + "'Welcome!'", e.getMessage());
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void requireOnceRejectsRepeatedPlaceholder() {
+    Template.compile("{name}, {name}!", "name").requireOnce("name");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void requireOnceRejectsUndeclaredPlaceholder() {
+    Template.compile("Welcome!", "name").requireOnce("title");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void renderRejectsWrongNumberOfValues() {
+    Template.compile("{a} and {b}", "a", "b").render("x");
+  }
+
+  @Test
+  public void equalTemplatesHaveSameTextAndNames() {
+    assertEquals(Template.compile("{a}", "a"), Template.compile("{a}", "a"));
+    assertEquals(Template.compile("{a}", "a").hashCode(),
+        Template.compile("{a}", "a").hashCode());
+    assertTrue(!Template.compile("{a}", "a").equals(Template.compile("{a}", "a", "b")));
+  }
+}
@@ -0,0 +1,159 @@
+package com.youtube.gaming.mightybot.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class RefreshAheadCacheTest {
+  private static final long TIME_TO_LIVE_MILLIS = 60000;
+  private static final long MAX_STALENESS_MILLIS = 120000;
+
+  private final ManualClock clock = new ManualClock();
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+  private final ExecutorService loadExecutor = Executors.newCachedThreadPool();
+  private final ExecutorService callers = Executors.newCachedThreadPool();
+  private final AtomicInteger loads = new AtomicInteger();
+  /** Counted down by each load once it started. */
+  private volatile CountDownLatch loadStarted = new CountDownLatch(1);
+  /** Awaited by each load before it completes, if set. */
+  private volatile CountDownLatch loadReleased;
+  private volatile IOException loadFailure;
+
+  private final RefreshAheadCache<String> cache = new RefreshAheadCache<>("test", this::load,
+      clock, TIME_TO_LIVE_MILLIS, 5000, MAX_STALENESS_MILLIS, scheduler, loadExecutor);
+
+  @After
+  public void shutDown() throws InterruptedException {
+    callers.shutdownNow();
+    // Loads schedule their refresh ahead when they complete
+    loadExecutor.shutdown();
+    loadExecutor.awaitTermination(5, TimeUnit.SECONDS);
+    scheduler.shutdownNow();
+  }
+
+  private String load() throws IOException {
+    int load = loads.incrementAndGet();
+    loadStarted.countDown();
+    if (loadReleased != null) {
+      try {
+        loadReleased.await();
+      } catch (InterruptedException e) {
+        throw new IOException(e);
+      }
+    }
+    if (loadFailure != null) {
+      throw loadFailure;
+    }
+    return "value" + load;
+  }
+
+  @Test
+  public void concurrentCallersShareSingleLoad() throws Exception {
+    loadReleased = new CountDownLatch(1);
+    Future<String> first = callers.submit(cache::get);
+    assertTrue(loadStarted.await(5, TimeUnit.SECONDS));
+    Future<String> second = callers.submit(cache::get);
+    Future<String> third = callers.submit(cache::get);
+
+    loadReleased.countDown();
+
+    assertEquals("value1", first.get(5, TimeUnit.SECONDS));
+    assertEquals("value1", second.get(5, TimeUnit.SECONDS));
+    assertEquals("value1", third.get(5, TimeUnit.SECONDS));
+    assertEquals(1, loads.get());
+  }
+
+  @Test
+  public void freshValueIsNotReloaded() throws IOException {
+    assertEquals("value1", cache.get());
+    clock.millis = TIME_TO_LIVE_MILLIS - 1;
+
+    assertEquals("value1", cache.get());
+    assertEquals(1, loads.get());
+  }
+
+  @Test
+  public void expiredValueIsServedWhileReloadingOnce() throws Exception {
+    cache.get();
+    clock.millis = TIME_TO_LIVE_MILLIS;
+    loadStarted = new CountDownLatch(1);
+    loadReleased = new CountDownLatch(1);
+
+    assertEquals("value1", cache.get());
+    assertTrue(loadStarted.await(5, TimeUnit.SECONDS));
+    assertEquals("value1", cache.get());
+    loadReleased.countDown();
+
+    Future<String> next = callers.submit(() -> {
+      while (!cache.getSnapshot().get().getValue().equals("value2")) {
+        Thread.sleep(1);
+      }
+      return cache.get();
+    });
+    assertEquals("value2", next.get(5, TimeUnit.SECONDS));
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  public void tooStaleValueIsReloadedBeforeReturning() throws IOException {
+    cache.get();
+    clock.millis = MAX_STALENESS_MILLIS + 1;
+
+    assertEquals("value2", cache.get());
+  }
+
+  @Test
+  public void failedLoadIsNotCached() throws IOException {
+    loadFailure = new IOException("unavailable");
+    try {
+      cache.get();
+      fail("Expected the load to fail");
+    } catch (IOException e) {
+      assertEquals("unavailable", e.getMessage());
+    }
+
+    loadFailure = null;
+    assertEquals("value2", cache.get());
+  }
+
+  /** A clock that only moves when told to. */
+  private static class ManualClock extends Clock {
+    private volatile long millis;
+
+    @Override
+    public long millis() {
+      return millis;
+    }
+
+    @Override
+    public Instant instant() {
+      return Instant.ofEpochMilli(millis);
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      throw new UnsupportedOperationException();
+    }
+  }
+}